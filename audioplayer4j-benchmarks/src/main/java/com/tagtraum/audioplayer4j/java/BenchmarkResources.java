@@ -0,0 +1,47 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Access to the audio files bundled with the benchmarks
+ * (the same files the unit tests use).
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+final class BenchmarkResources {
+
+    private BenchmarkResources() {
+    }
+
+    /**
+     * Copies the given resource to a temporary file, because
+     * decoders may want a file rather than a jar URL.
+     *
+     * @param resource resource name, e.g. {@code test.wav}
+     * @return temporary file
+     */
+    public static Path extractFile(final String resource) {
+        try {
+            final Path file = Files.createTempFile("benchmark", resource);
+            try (final InputStream in = BenchmarkResources.class.getResourceAsStream("/com/tagtraum/audioplayer4j/" + resource)) {
+                if (in == null) throw new IOException("Resource not found: " + resource);
+                Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            file.toFile().deleteOnExit();
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
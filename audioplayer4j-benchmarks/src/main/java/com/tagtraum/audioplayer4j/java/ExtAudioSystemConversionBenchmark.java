@@ -0,0 +1,76 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion chains {@link SingleThreadedAudioInputStream} builds
+ * via {@link ExtAudioSystem#getAudioInputStream(AudioFormat, AudioInputStream)},
+ * applied to the 16 bit, 44.1kHz, stereo, little endian {@code test.wav}.
+ * Each operation builds the chain and converts the whole file.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtAudioSystemConversionBenchmark {
+
+    @Param({"endianness", "sampleSize", "channels", "sampleRate"})
+    public String conversion;
+
+    private File file;
+    private byte[] buf;
+
+    @Setup
+    public void setup() {
+        file = BenchmarkResources.extractFile("test.wav").toFile();
+        buf = new byte[32 * 1024];
+    }
+
+    @Benchmark
+    public long convert() throws Exception {
+        long total = 0;
+        try (final AudioInputStream source = AudioSystem.getAudioInputStream(file);
+             final AudioInputStream converted = ExtAudioSystem.getAudioInputStream(targetFormat(source.getFormat()), source)) {
+            int justRead;
+            while ((justRead = converted.read(buf)) >= 0) {
+                total += justRead;
+            }
+        }
+        return total;
+    }
+
+    private AudioFormat targetFormat(final AudioFormat f) {
+        switch (conversion) {
+            case "endianness":
+                return new AudioFormat(f.getEncoding(), f.getSampleRate(), f.getSampleSizeInBits(), f.getChannels(),
+                    f.getFrameSize(), f.getFrameRate(), !f.isBigEndian());
+            case "sampleSize":
+                return new AudioFormat(f.getEncoding(), f.getSampleRate(), 24, f.getChannels(),
+                    3 * f.getChannels(), f.getFrameRate(), f.isBigEndian());
+            case "channels":
+                return new AudioFormat(f.getEncoding(), f.getSampleRate(), f.getSampleSizeInBits(), 1,
+                    f.getFrameSize() / f.getChannels(), f.getFrameRate(), f.isBigEndian());
+            case "sampleRate":
+                return new AudioFormat(f.getEncoding(), 48000f, f.getSampleSizeInBits(), f.getChannels(),
+                    f.getFrameSize(), 48000f, f.isBigEndian());
+            default:
+                throw new IllegalArgumentException("Unknown conversion: " + conversion);
+        }
+    }
+}
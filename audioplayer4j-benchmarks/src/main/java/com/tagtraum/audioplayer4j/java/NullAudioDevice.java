@@ -0,0 +1,97 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import com.tagtraum.audioplayer4j.AudioDevice;
+
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Line;
+import javax.sound.sampled.Mixer;
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+
+/**
+ * {@link AudioDevice} handing out {@link NullSourceDataLine}s.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+class NullAudioDevice implements AudioDevice {
+
+    private final Mixer mixer = (Mixer) Proxy.newProxyInstance(
+        NullAudioDevice.class.getClassLoader(),
+        new Class<?>[]{Mixer.class},
+        (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals": return proxy == args[0];
+                case "hashCode": return System.identityHashCode(proxy);
+                case "toString": return "NullMixer";
+                // no limit, like a software mixer
+                case "getMaxLines": return AudioSystem.NOT_SPECIFIED;
+                default:
+                    // neutral values, so that the mixer can be probed like a real one
+                    final Class<?> type = method.getReturnType();
+                    if (type.isArray()) return Array.newInstance(type.getComponentType(), 0);
+                    if (type == boolean.class) return false;
+                    return null;
+            }
+        });
+    private final boolean metered;
+    private volatile NullSourceDataLine line;
+
+    /**
+     * Creates a device, whose lines accept any number of frames.
+     */
+    public NullAudioDevice() {
+        this(false);
+    }
+
+    /**
+     * Creates a device.
+     *
+     * @param metered whether its lines are metered
+     * @see NullSourceDataLine#allow(long)
+     */
+    public NullAudioDevice(final boolean metered) {
+        this.metered = metered;
+    }
+
+    /**
+     * The most recently handed out line.
+     *
+     * @return line or {@code null}
+     */
+    public NullSourceDataLine getLastLine() {
+        return line;
+    }
+
+    @Override
+    public String getName() {
+        return "Null";
+    }
+
+    @Override
+    public boolean isDefault() {
+        return false;
+    }
+
+    @Override
+    public Mixer getMixer() {
+        return mixer;
+    }
+
+    @Override
+    public Line getLine(final Line.Info info) {
+        final NullSourceDataLine line = new NullSourceDataLine(metered);
+        this.line = line;
+        return line;
+    }
+
+    @Override
+    public String toString() {
+        return "NullAudioDevice";
+    }
+}
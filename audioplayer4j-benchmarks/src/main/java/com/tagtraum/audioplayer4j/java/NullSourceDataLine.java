@@ -0,0 +1,275 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import javax.sound.sampled.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * {@link SourceDataLine} that consumes all written data instantly,
+ * so that benchmarks measure the cost of the pump and not the
+ * speed of a sound card.
+ * <p>
+ * To avoid triggering the player's buffer underrun detection, the line always
+ * pretends that half of its buffer is still filled.
+ * <p>
+ * A metered line accepts only as many frames as it has been {@linkplain #allow(long) allowed}
+ * to and blocks writes beyond that, just like a real line blocks, while its buffer is full.
+ * This lets a benchmark measure how long the pump takes to write a given number of frames.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+class NullSourceDataLine implements SourceDataLine {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final List<LineListener> listeners = new CopyOnWriteArrayList<>();
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private final FloatControl gainControl = new FloatControl(FloatControl.Type.MASTER_GAIN,
+        -80f, 6f, 0.1f, 0, 0f, "dB") {};
+    private final BooleanControl muteControl = new BooleanControl(BooleanControl.Type.MUTE, false) {};
+    private volatile AudioFormat format;
+    private volatile int bufferSize;
+    private volatile boolean open;
+    private volatile boolean running;
+    private volatile long framesWritten;
+    /** Frames that may still be written, guarded by {@code this}. */
+    private long writableFrames;
+
+    /**
+     * Creates a line that accepts any number of frames.
+     */
+    public NullSourceDataLine() {
+        this(false);
+    }
+
+    /**
+     * Creates a line.
+     *
+     * @param metered if {@code true}, frames must be {@linkplain #allow(long) allowed}, before they can be written
+     */
+    public NullSourceDataLine(final boolean metered) {
+        this.writableFrames = metered ? 0 : Long.MAX_VALUE;
+    }
+
+    /**
+     * Lets a metered line accept the given number of frames more.
+     *
+     * @param frames frames
+     */
+    public synchronized void allow(final long frames) {
+        writableFrames += frames;
+        notifyAll();
+    }
+
+    /**
+     * Lets a metered line accept any number of frames from now on.
+     * The player waits for blocked writes before closing the line, so this must be called first.
+     */
+    public synchronized void unmeter() {
+        writableFrames = Long.MAX_VALUE;
+        notifyAll();
+    }
+
+    /**
+     * Waits until all allowed frames have been written or the line has been closed.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void awaitWritten() throws InterruptedException {
+        while (open && writableFrames > 0) {
+            wait();
+        }
+    }
+
+    /**
+     * Waits until this line has been closed.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitClose() throws InterruptedException {
+        closed.await();
+    }
+
+    @Override
+    public void open(final AudioFormat format, final int bufferSize) {
+        this.format = format;
+        this.bufferSize = bufferSize - bufferSize % format.getFrameSize();
+        this.open = true;
+        fire(LineEvent.Type.OPEN);
+    }
+
+    @Override
+    public void open(final AudioFormat format) {
+        open(format, DEFAULT_BUFFER_SIZE);
+    }
+
+    @Override
+    public void open() {
+        throw new IllegalStateException("Format required.");
+    }
+
+    @Override
+    public int write(final byte[] b, final int off, final int len) {
+        if (len % format.getFrameSize() != 0) throw new IllegalArgumentException("Illegal length: " + len);
+        final int frames;
+        synchronized (this) {
+            try {
+                while (open && writableFrames == 0 && len > 0) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!open) return 0;
+            frames = (int) Math.min(len / format.getFrameSize(), writableFrames);
+            if (writableFrames != Long.MAX_VALUE) {
+                writableFrames -= frames;
+                if (writableFrames == 0) notifyAll();
+            }
+        }
+        framesWritten += frames;
+        return frames * format.getFrameSize();
+    }
+
+    @Override
+    public void drain() {
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void start() {
+        if (!running) {
+            running = true;
+            fire(LineEvent.Type.START);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (running) {
+            running = false;
+            fire(LineEvent.Type.STOP);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isActive() {
+        return running;
+    }
+
+    @Override
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    @Override
+    public int available() {
+        return bufferSize / 2 - (bufferSize / 2) % format.getFrameSize();
+    }
+
+    @Override
+    public int getFramePosition() {
+        return (int) framesWritten;
+    }
+
+    @Override
+    public long getLongFramePosition() {
+        return framesWritten;
+    }
+
+    @Override
+    public long getMicrosecondPosition() {
+        return (long) (framesWritten * 1000000L / format.getFrameRate());
+    }
+
+    @Override
+    public float getLevel() {
+        return AudioSystem.NOT_SPECIFIED;
+    }
+
+    @Override
+    public Line.Info getLineInfo() {
+        return new DataLine.Info(SourceDataLine.class, format);
+    }
+
+    @Override
+    public void close() {
+        if (open) {
+            synchronized (this) {
+                open = false;
+                running = false;
+                // wake up blocked writers
+                notifyAll();
+            }
+            fire(LineEvent.Type.CLOSE);
+            closed.countDown();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public Control[] getControls() {
+        return new Control[]{gainControl, muteControl};
+    }
+
+    @Override
+    public boolean isControlSupported(final Control.Type control) {
+        return FloatControl.Type.MASTER_GAIN.equals(control) || BooleanControl.Type.MUTE.equals(control);
+    }
+
+    @Override
+    public Control getControl(final Control.Type control) {
+        if (FloatControl.Type.MASTER_GAIN.equals(control)) return gainControl;
+        if (BooleanControl.Type.MUTE.equals(control)) return muteControl;
+        throw new IllegalArgumentException("Unsupported control type: " + control);
+    }
+
+    @Override
+    public void addLineListener(final LineListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeLineListener(final LineListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fire(final LineEvent.Type type) {
+        final LineEvent event = new LineEvent(this, type, framesWritten);
+        for (final LineListener listener : listeners) {
+            listener.update(event);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NullSourceDataLine{" +
+            "format=" + format +
+            ", framesWritten=" + framesWritten +
+            '}';
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.sound.sampled.AudioFormat;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast {@link SingleThreadedAudioInputStream} hands decoded
+ * audio to its consumer. Each operation opens, reads and closes a whole file.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SingleThreadedAudioInputStreamBenchmark {
+
+    private static final AudioFormat CD = new AudioFormat(44100f, 16, 2, true, false);
+
+    @Param({"test.wav", "test.aiff", "test.flac", "test.mp3"})
+    public String file;
+
+    private URL url;
+    private byte[] buf;
+
+    @Setup
+    public void setup() throws Exception {
+        url = BenchmarkResources.extractFile(file).toUri().toURL();
+        // same size as the pump uses: 10s
+        buf = new byte[10 * CD.getFrameSize() * (int) CD.getFrameRate()];
+    }
+
+    @Benchmark
+    public long read() throws Exception {
+        long total = 0;
+        try (final SingleThreadedAudioInputStream stream = new SingleThreadedAudioInputStream(url, CD)) {
+            int justRead;
+            while ((justRead = stream.read(buf)) >= 0) {
+                total += justRead;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Pushes half of each read back into the stream, just like the
+     * pump does, when the line does not accept all data.
+     */
+    @Benchmark
+    public long readUnread() throws Exception {
+        long total = 0;
+        try (final SingleThreadedAudioInputStream stream = new SingleThreadedAudioInputStream(url, CD)) {
+            final int frameSize = CD.getFrameSize();
+            int justRead;
+            while ((justRead = stream.read(buf)) >= 0) {
+                final int keep = (justRead / 2) - (justRead / 2) % frameSize;
+                if (keep > 0) {
+                    stream.unread(buf, keep, justRead - keep);
+                    total += keep;
+                } else {
+                    total += justRead;
+                }
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.ref.Cleaner;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures playing a whole file with {@link JavaPlayer}, i.e. everything that happens
+ * between opening a file and the line being closed after the last sample
+ * was written. For the pump's write loop alone, see {@link StreamLinePumpWriteLoopBenchmark}. Audio is written to a {@link NullSourceDataLine}, which
+ * consumes data as fast as it is written.
+ * Line pooling is turned off, so that each line is actually closed.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djavaplayer.linepool.maxidle=0")
+public class StreamLinePumpBenchmark {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    @Param({"test.wav", "test.aiff", "test.flac", "test.mp3"})
+    public String file;
+
+    @Param({"DEDICATED", "SHARED", "VIRTUAL"})
+    public JavaPlayer.Threading threading;
+
+    private URI uri;
+    private NullAudioDevice audioDevice;
+    private JavaPlayer player;
+
+    @Setup
+    public void setup() {
+        uri = BenchmarkResources.extractFile(file).toUri();
+        audioDevice = new NullAudioDevice();
+        player = new JavaPlayer(CLEANER, threading);
+        player.setAudioDevice(audioDevice);
+    }
+
+    @TearDown
+    public void tearDown() {
+        player.close();
+    }
+
+    @Benchmark
+    public long play() throws Exception {
+        player.open(uri);
+        final NullSourceDataLine line = audioDevice.getLastLine();
+        // after reaching the end of a song, the player is not paused and
+        // starts playing right away when opening the next one. it may even
+        // be done already, so only start it when necessary
+        if (player.isPaused()) player.play();
+        // the line is closed, once the pump is done with the song. the pump may still
+        // tidy up afterwards, but the player runs the next song's pump only after that
+        line.awaitClose();
+        return line.getLongFramePosition();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.ref.Cleaner;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the write loop of {@link JavaPlayer}'s pump in isolation, i.e. reading
+ * from the already opened stream and writing to the already opened line, without
+ * opening, probing and closing files. The song plays into a metered {@link NullSourceDataLine},
+ * and each operation lets the pump write {@link #FRAMES} frames.
+ * <p>
+ * Shortly before the end of the song, the player is rewound between operations,
+ * so that the pump never runs out of audio.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamLinePumpWriteLoopBenchmark {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+    /**
+     * Frames written per operation.
+     */
+    public static final int FRAMES = 4096;
+
+    @Param({"test.wav", "test.aiff", "test.flac", "test.mp3"})
+    public String file;
+
+    @Param({"DEDICATED", "SHARED", "VIRTUAL"})
+    public JavaPlayer.Threading threading;
+
+    private JavaPlayer player;
+    private NullSourceDataLine line;
+    private long songFrames;
+
+    @Setup
+    public void setup() throws Exception {
+        final NullAudioDevice audioDevice = new NullAudioDevice(true);
+        player = new JavaPlayer(CLEANER, threading);
+        player.setAudioDevice(audioDevice);
+        player.open(BenchmarkResources.extractFile(file).toUri());
+        line = audioDevice.getLastLine();
+        songFrames = (long) (player.getDuration().toNanos() * (double) line.getFormat().getFrameRate() / 1_000_000_000L);
+        player.play();
+    }
+
+    @TearDown
+    public void tearDown() {
+        line.unmeter();
+        player.close();
+    }
+
+    @Setup(Level.Invocation)
+    public void rewindBeforeEnd() throws InterruptedException {
+        // once the pump has written all of the song, it reads the end of the stream and closes the line,
+        // so rewind while there's still more than one operation's worth of audio left
+        if (player.getFramePosition() + 2 * FRAMES < songFrames) return;
+        final SeekStatistics seekStatistics = player.getSeekStatistics();
+        final long completed = seekStatistics.getCompletedCount();
+        player.setTime(Duration.ZERO);
+        // the seek completes with the first write after it
+        while (seekStatistics.getCompletedCount() == completed) {
+            line.allow(FRAMES);
+            line.awaitWritten();
+        }
+    }
+
+    @Benchmark
+    public long write() throws InterruptedException {
+        line.allow(FRAMES);
+        line.awaitWritten();
+        return line.getLongFramePosition();
+    }
+}
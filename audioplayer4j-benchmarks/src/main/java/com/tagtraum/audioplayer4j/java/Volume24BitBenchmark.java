@@ -0,0 +1,45 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Volume24Bit#filter(byte[], AudioFormat, float)} for
+ * 100ms of 24 bit stereo audio, which is a typical chunk size for the pump.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Volume24BitBenchmark {
+
+    private static final AudioFormat FORMAT = new AudioFormat(44100f, 24, 2, true, false);
+
+    private final Volume24Bit volume24Bit = new Volume24Bit();
+    private byte[] buf;
+
+    @Setup
+    public void setup() {
+        buf = new byte[(int) (FORMAT.getFrameRate() / 10) * FORMAT.getFrameSize()];
+        new Random(0).nextBytes(buf);
+    }
+
+    @Benchmark
+    public byte[] filter() {
+        volume24Bit.filter(buf, FORMAT, 0.8f);
+        return buf;
+    }
+}
@@ -11,4 +11,6 @@ module tagtraum.audioplayer4j {
     requires javafx.swing;
 
     exports com.tagtraum.audioplayer4j;
+
+    uses javax.sound.sampled.spi.AudioFileReader;
 }
\ No newline at end of file
@@ -24,6 +24,7 @@ import java.beans.PropertyChangeListener;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
 import java.nio.file.Files;
@@ -33,7 +34,9 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import static java.time.Duration.ZERO;
@@ -214,6 +217,25 @@ public class TestAudioPlayer {
         testTimeForFile(new JavaPlayer());
     }
 
+    @Test
+    public void testFramePositionForFile() throws UnsupportedAudioFileException, IOException, InterruptedException {
+        final JavaPlayer audioPlayer = new JavaPlayer();
+        assertEquals(AudioSystem.NOT_SPECIFIED, audioPlayer.getFramePosition());
+
+        audioPlayer.open(extractFile("test.wav").toUri());
+        assertEquals(0, audioPlayer.getFramePosition());
+
+        audioPlayer.setTime(ofMillis(500));
+        // give it a second, some players need some time for seeking
+        Thread.sleep(500);
+        // test.wav has 44.1kHz
+        assertEquals(22050, audioPlayer.getFramePosition());
+        assertEquals(ofMillis(500), audioPlayer.getTime());
+
+        audioPlayer.close();
+        assertEquals(AudioSystem.NOT_SPECIFIED, audioPlayer.getFramePosition());
+    }
+
     @ParameterizedTest(name = "{index}: {0}")
     @MethodSource("players")
     public void testTimeForFile(final AudioPlayer audioPlayer) throws IOException, InterruptedException, InvocationTargetException, UnsupportedAudioFileException {
@@ -692,6 +714,78 @@ public class TestAudioPlayer {
         assertFalse(pausedEvents.hasNext());
     }
 
+    @Test
+    public void testEnqueue() throws IOException, InterruptedException, UnsupportedAudioFileException {
+        final JavaPlayer audioPlayer = new JavaPlayer();
+        final MemoryAudioPlayerListener listener = new MemoryAudioPlayerListener();
+        audioPlayer.addAudioPlayerListener(listener);
+
+        final URI uri = extractFile("test.wav").toUri();
+        final URI next = extractFile("test.aiff").toUri();
+        audioPlayer.open(uri);
+        audioPlayer.enqueue(next);
+        audioPlayer.setTime(audioPlayer.getDuration().minus(Duration.of(500, MILLIS)));
+        audioPlayer.play();
+
+        Thread.sleep(1500);
+
+        assertEquals(next, audioPlayer.getURI());
+        assertFalse(audioPlayer.isPaused());
+        final Iterator<String> iterator = listener.getEvents().iterator();
+        assertEquals("started", iterator.next());
+        assertEquals("finished-true", iterator.next());
+        assertEquals("started", iterator.next());
+        assertFalse(iterator.hasNext());
+
+        audioPlayer.close();
+        assertNull(audioPlayer.getURI());
+    }
+
+    @ParameterizedTest(name = "{index}: {0}")
+    @MethodSource("players")
+    public void testPrepare(final AudioPlayer audioPlayer) throws Exception {
+        final URI uri = extractFile("test.wav").toUri();
+        audioPlayer.open(uri);
+        assertTrue(audioPlayer.isPaused());
+        audioPlayer.prepare().get(5, TimeUnit.SECONDS);
+        assertTrue(audioPlayer.isPaused());
+        assertEquals(Duration.ZERO, audioPlayer.getTime());
+
+        audioPlayer.play();
+        Thread.sleep(500);
+        assertFalse(audioPlayer.isPaused());
+        assertTrue(audioPlayer.getTime().compareTo(Duration.ZERO) > 0);
+        // nothing to prepare while playing
+        assertTrue(audioPlayer.prepare().isDone());
+        audioPlayer.close();
+    }
+
+    @ParameterizedTest(name = "{index}: {0}")
+    @MethodSource("players")
+    public void testPositionListener(final AudioPlayer audioPlayer) throws Exception {
+        // frame and microseconds of each call
+        final List<long[]> positions = new CopyOnWriteArrayList<>();
+        final PositionListener listener = (player, frame, micros) -> positions.add(new long[]{frame, micros});
+        audioPlayer.addPositionListener(listener);
+        audioPlayer.open(extractFile("test.wav").toUri());
+        audioPlayer.play();
+        Thread.sleep(1000);
+        audioPlayer.pause();
+        audioPlayer.removePositionListener(listener);
+        assertFalse(positions.isEmpty());
+        assertTrue(positions.get(positions.size() - 1)[1] > 0);
+        for (final long[] position : positions) {
+            if (position[0] >= 0) assertEquals(Math.round(position[0] * 1000000.0 / 44100), position[1]);
+        }
+        // let events that were already on their way arrive
+        Thread.sleep(300);
+        final int count = positions.size();
+        audioPlayer.play();
+        Thread.sleep(500);
+        assertEquals(count, positions.size());
+        audioPlayer.close();
+    }
+
     @ParameterizedTest(name = "{index}: {0}")
     @MethodSource("players")
     public void testStarted(final AudioPlayer audioPlayer) throws IOException, InterruptedException, UnsupportedAudioFileException {
@@ -874,6 +968,8 @@ public class TestAudioPlayer {
 
         // always available
         players.add(arguments(named("JavaPlayer", new JavaPlayer())));
+        players.add(arguments(named("JavaPlayer (shared threads)", new JavaPlayer(Cleaner.create(), JavaPlayer.Threading.SHARED))));
+        players.add(arguments(named("JavaPlayer (virtual threads)", new JavaPlayer(Cleaner.create(), JavaPlayer.Threading.VIRTUAL))));
         // only with JavaFX
         if (isJavaFXAvailable()) players.add(arguments(named("JavaFXPlayer", new JavaFXPlayer())));
         // only on macOS
@@ -11,6 +11,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
@@ -26,6 +27,11 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -60,6 +66,7 @@ public class TestAudioPlayerFactory {
         AudioPlayerFactory.setJavaEnabled(true);
         AudioPlayerFactory.setJavaFXEnabled(true);
         AudioPlayerFactory.setNativeEnabled(true);
+        AudioPlayerFactory.setSharedThreadsEnabled(false);
     }
 
     @ParameterizedTest
@@ -128,6 +135,17 @@ public class TestAudioPlayerFactory {
         } catch (UnsupportedAudioFileException e) {
             System.out.println("Not supported: " + e);
         }
+
+        // Java with shared threads
+        AudioPlayerFactory.setSharedThreadsEnabled(true);
+        try (final AudioPlayer player = AudioPlayerFactory.open(uri)) {
+            assertNotNull(player, "Java implementation MUST be available");
+            TestAudioPlayer.testOpenAudioPlayer(uri, player);
+
+        } catch (UnsupportedAudioFileException e) {
+            System.out.println("Not supported: " + e);
+        }
+        AudioPlayerFactory.setSharedThreadsEnabled(false);
         AudioPlayerFactory.setJavaEnabled(false);
 
         // JavaFX
@@ -158,6 +176,52 @@ public class TestAudioPlayerFactory {
         }
     }
 
+    @Test
+    public void testBackendMemo() throws IOException, UnsupportedAudioFileException {
+        AudioPlayerFactory.resetBackendMemo();
+        assertTrue(AudioPlayerFactory.getKnownGoodBackends().isEmpty());
+        assertTrue(AudioPlayerFactory.getKnownBadBackends().isEmpty());
+
+        AudioPlayerFactory.setJavaFXEnabled(false);
+        AudioPlayerFactory.setNativeEnabled(false);
+        final URI uri = TestAudioPlayer.extractFile("test.wav").toUri();
+        try (final AudioPlayer player = AudioPlayerFactory.open(uri)) {
+            assertEquals(player.getClass(), AudioPlayerFactory.getKnownGoodBackends().get("file:wav"));
+        }
+
+        AudioPlayerFactory.resetBackendMemo();
+        assertTrue(AudioPlayerFactory.getKnownGoodBackends().isEmpty());
+    }
+
+    @Test
+    public void testOpenAsync() throws Exception {
+        final URI uri = TestAudioPlayer.extractFile("test.wav").toUri();
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final CompletableFuture<AudioPlayer> first = AudioPlayerFactory.openAsync(uri, null, executor);
+            final CompletableFuture<AudioPlayer> second = AudioPlayerFactory.openAsync(uri);
+            try (final AudioPlayer player = first.get(10, TimeUnit.SECONDS)) {
+                assertEquals(uri, player.getURI());
+            }
+            try (final AudioPlayer player = second.get(10, TimeUnit.SECONDS)) {
+                assertEquals(uri, player.getURI());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testOpenAsyncMissing() {
+        // Java implementation is always available
+        AudioPlayerFactory.setJavaFXEnabled(false);
+        AudioPlayerFactory.setNativeEnabled(false);
+        final URI uri = Paths.get("does-not-exist.wav").toUri();
+        final ExecutionException e = assertThrows(ExecutionException.class,
+            () -> AudioPlayerFactory.openAsync(uri).get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+    }
+
     public static Stream<URI> testOpenURI() {
         final List<String> resources = new ArrayList<>(Arrays.asList(
             "test.aiff",
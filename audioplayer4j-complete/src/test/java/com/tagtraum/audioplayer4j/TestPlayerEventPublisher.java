@@ -0,0 +1,183 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j;
+
+import org.junit.jupiter.api.Test;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TestPlayerEventPublisher.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestPlayerEventPublisher {
+
+    private static final URI SONG = URI.create("file:///song.wav");
+
+    private final List<PropertyChangeListener> propertyChangeListeners = new CopyOnWriteArrayList<>();
+    private final List<AudioPlayerListener> audioPlayerListeners = new CopyOnWriteArrayList<>();
+    private final AudioPlayer player = player();
+
+    @Test
+    public void testDemandAndConflation() {
+        final PlayerEventPublisher publisher = new PlayerEventPublisher(player, EventExecutors.direct(), 16);
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        assertNotNull(subscriber.subscription);
+        assertEquals(1, propertyChangeListeners.size());
+        assertEquals(1, audioPlayerListeners.size());
+
+        subscriber.subscription.request(1);
+        fireTime(1);
+        fireTime(2);
+        firePaused(false);
+        fireTime(3);
+        audioPlayerListeners.get(0).started(player, SONG);
+        assertEquals(List.of("TIME=PT1S"), subscriber.events());
+
+        // time 2 and 3 were conflated
+        subscriber.subscription.request(10);
+        assertEquals(List.of("TIME=PT1S", "TIME=PT3S", "PAUSED=false", "STARTED=null"), subscriber.events());
+        assertEquals(SONG, subscriber.received.get(3).getURI());
+
+        // with demand, nothing is conflated
+        fireTime(4);
+        fireTime(5);
+        assertEquals(6, subscriber.received.size());
+
+        publisher.close();
+        assertTrue(subscriber.completed);
+        assertTrue(propertyChangeListeners.isEmpty());
+        assertTrue(audioPlayerListeners.isEmpty());
+    }
+
+    @Test
+    public void testOverflow() {
+        final PlayerEventPublisher publisher = new PlayerEventPublisher(player, EventExecutors.direct(), 2);
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        fireTime(1);
+        fireTime(2);
+        firePaused(true);
+        assertNull(subscriber.error);
+        firePaused(false);
+        assertInstanceOf(IllegalStateException.class, subscriber.error);
+        assertTrue(subscriber.received.isEmpty());
+        assertEquals(0, publisher.getNumberOfSubscribers());
+        assertTrue(propertyChangeListeners.isEmpty());
+    }
+
+    @Test
+    public void testCancelAndInvalidRequest() {
+        final PlayerEventPublisher publisher = new PlayerEventPublisher(player, EventExecutors.direct(), 16);
+        final RecordingSubscriber first = new RecordingSubscriber();
+        final RecordingSubscriber second = new RecordingSubscriber();
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+        assertEquals(2, publisher.getNumberOfSubscribers());
+        assertEquals(1, propertyChangeListeners.size());
+
+        first.subscription.cancel();
+        assertEquals(1, publisher.getNumberOfSubscribers());
+        second.subscription.request(0);
+        assertInstanceOf(IllegalArgumentException.class, second.error);
+        assertEquals(0, publisher.getNumberOfSubscribers());
+        assertTrue(propertyChangeListeners.isEmpty());
+
+        publisher.close();
+        final RecordingSubscriber late = new RecordingSubscriber();
+        publisher.subscribe(late);
+        assertTrue(late.completed);
+    }
+
+    @Test
+    public void testInvalidBufferSize() {
+        assertThrows(IllegalArgumentException.class, () -> new PlayerEventPublisher(player, null, 0));
+    }
+
+    private void fireTime(final int seconds) {
+        fire(new PropertyChangeEvent(player, "time", null, Duration.ofSeconds(seconds)));
+    }
+
+    private void firePaused(final boolean paused) {
+        fire(new PropertyChangeEvent(player, "paused", !paused, paused));
+    }
+
+    private void fire(final PropertyChangeEvent event) {
+        for (final PropertyChangeListener listener : propertyChangeListeners) {
+            listener.propertyChange(event);
+        }
+    }
+
+    /**
+     * Minimal player, which just keeps track of its listeners.
+     *
+     * @return player
+     */
+    private AudioPlayer player() {
+        return (AudioPlayer) Proxy.newProxyInstance(TestPlayerEventPublisher.class.getClassLoader(),
+            new Class<?>[]{AudioPlayer.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getURI": return SONG;
+                    case "addPropertyChangeListener": propertyChangeListeners.add((PropertyChangeListener) args[0]); return null;
+                    case "removePropertyChangeListener": propertyChangeListeners.remove(args[0]); return null;
+                    case "addAudioPlayerListener": audioPlayerListeners.add((AudioPlayerListener) args[0]); return null;
+                    case "removeAudioPlayerListener": audioPlayerListeners.remove(args[0]); return null;
+                    case "hashCode": return System.identityHashCode(proxy);
+                    case "equals": return proxy == args[0];
+                    case "toString": return "Player";
+                    default: return null;
+                }
+            });
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<PlayerEvent> {
+        private final List<PlayerEvent> received = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(final PlayerEvent item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+        private List<String> events() {
+            final List<String> events = new ArrayList<>();
+            for (final PlayerEvent event : received) {
+                events.add(event.getType() + "=" + event.getValue());
+            }
+            return events;
+        }
+    }
+}
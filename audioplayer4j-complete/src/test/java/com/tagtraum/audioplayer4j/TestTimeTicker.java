@@ -0,0 +1,157 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TestTimeTicker.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestTimeTicker {
+
+    @Test
+    public void testBatch() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final TimeTicker ticker = new TimeTicker(Duration.ofHours(1), tasks::add);
+        final List<Map<AudioPlayer, Duration>> batches = new ArrayList<>();
+        ticker.addTimeTickListener(batches::add);
+        final AtomicReference<Duration> firstTime = new AtomicReference<>(Duration.ZERO);
+        final AtomicReference<Duration> secondTime = new AtomicReference<>(Duration.ZERO);
+        final AudioPlayer first = player(firstTime);
+        final AudioPlayer second = player(secondTime);
+        ticker.register(first);
+        ticker.register(second);
+        ticker.register(second);
+        assertEquals(2, ticker.getPlayerCount());
+
+        ticker.tick();
+        assertEquals(1, tasks.size());
+        tasks.remove(0).run();
+        assertEquals(Map.of(first, Duration.ZERO, second, Duration.ZERO), batches.remove(0));
+
+        // nothing changed, nothing to deliver
+        ticker.tick();
+        assertTrue(tasks.isEmpty());
+
+        firstTime.set(Duration.ofMillis(200));
+        ticker.tick();
+        // not delivered yet, so the second change is merged into the pending task
+        secondTime.set(Duration.ofMillis(300));
+        ticker.tick();
+        assertEquals(1, tasks.size());
+        tasks.remove(0).run();
+        assertEquals(Map.of(first, Duration.ofMillis(200), second, Duration.ofMillis(300)), batches.remove(0));
+
+        ticker.unregister(first);
+        firstTime.set(Duration.ofMillis(400));
+        ticker.tick();
+        assertTrue(tasks.isEmpty());
+        ticker.close();
+        assertEquals(0, ticker.getPlayerCount());
+    }
+
+    @Test
+    public void testRunning() throws InterruptedException {
+        final TimeTicker ticker = new TimeTicker(Duration.ofMillis(10), EventExecutors.direct());
+        final AtomicReference<Duration> time = new AtomicReference<>(Duration.ZERO);
+        final AudioPlayer player = player(time);
+        final BlockingQueue<Map<AudioPlayer, Duration>> batches = new ArrayBlockingQueue<>(100);
+        ticker.register(player);
+        assertFalse(ticker.isRunning());
+        ticker.addTimeTickListener(batches::offer);
+        assertTrue(ticker.isRunning());
+        try {
+            assertEquals(Map.of(player, Duration.ZERO), batches.poll(5, TimeUnit.SECONDS));
+            time.set(Duration.ofSeconds(1));
+            assertEquals(Map.of(player, Duration.ofSeconds(1)), batches.poll(5, TimeUnit.SECONDS));
+        } finally {
+            ticker.unregister(player);
+        }
+        assertFalse(ticker.isRunning());
+    }
+
+    @Test
+    public void testFailingPlayer() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final TimeTicker ticker = new TimeTicker(Duration.ofHours(1), tasks::add);
+        final List<Map<AudioPlayer, Duration>> batches = new ArrayList<>();
+        ticker.addTimeTickListener(batches::add);
+        final AtomicReference<Duration> time = new AtomicReference<>(Duration.ZERO);
+        final AudioPlayer player = player(time);
+        final AudioPlayer failing = (AudioPlayer) Proxy.newProxyInstance(TestTimeTicker.class.getClassLoader(),
+            new Class<?>[]{AudioPlayer.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getTime": throw new IllegalStateException("Failing");
+                    case "hashCode": return System.identityHashCode(proxy);
+                    case "equals": return proxy == args[0];
+                    case "toString": return "FailingPlayer";
+                    default: return null;
+                }
+            });
+        ticker.register(failing);
+        ticker.register(player);
+
+        ticker.tick();
+        // the other player is still sampled, the failing one is dropped
+        assertEquals(1, ticker.getPlayerCount());
+        tasks.remove(0).run();
+        assertEquals(Map.of(player, Duration.ZERO), batches.remove(0));
+        ticker.close();
+    }
+
+    @Test
+    public void testUnregisterFromAll() {
+        final TimeTicker first = new TimeTicker(Duration.ofHours(1), EventExecutors.direct());
+        final TimeTicker second = new TimeTicker(Duration.ofHours(1), EventExecutors.direct());
+        final AudioPlayer player = player(new AtomicReference<>(Duration.ZERO));
+        first.register(player);
+        second.register(player);
+        TimeTicker.unregisterFromAll(player);
+        assertEquals(0, first.getPlayerCount());
+        assertEquals(0, second.getPlayerCount());
+    }
+
+    @Test
+    public void testInvalidInterval() {
+        assertThrows(IllegalArgumentException.class, () -> new TimeTicker(Duration.ZERO, null));
+        assertThrows(NullPointerException.class, () -> new TimeTicker(null, null));
+        assertSame(EventExecutors.edt(), new TimeTicker().getExecutor());
+    }
+
+    /**
+     * Minimal player, which just knows its time.
+     *
+     * @param time time
+     * @return player
+     */
+    private static AudioPlayer player(final AtomicReference<Duration> time) {
+        return (AudioPlayer) Proxy.newProxyInstance(TestTimeTicker.class.getClassLoader(),
+            new Class<?>[]{AudioPlayer.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getTime": return time.get();
+                    case "hashCode": return System.identityHashCode(proxy);
+                    case "equals": return proxy == args[0];
+                    case "toString": return "Player{" + time.get() + "}";
+                    default: return null;
+                }
+            });
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import com.tagtraum.audioplayer4j.TestAudioPlayer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TestAudioFileSniffer.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestAudioFileSniffer {
+
+    @ParameterizedTest
+    @CsvSource({"test.wav,WAVE", "test.aiff,AIFF", "test.flac,FLAC", "test.ogg,OGG",
+        "test.mp3,MPEG", "test.m4a,MP4", "test.wma,ASF"})
+    public void testSniff(final String file, final AudioFileSniffer.Container expected) throws Exception {
+        final URL url = TestAudioPlayer.extractFile(file).toUri().toURL();
+        assertEquals(expected, AudioFileSniffer.sniff(url));
+    }
+
+    @Test
+    public void testSniffHeader() {
+        // MPEG-1 Layer III frame sync without ID3 tag
+        assertEquals(AudioFileSniffer.Container.MPEG, AudioFileSniffer.sniff(new byte[]{(byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0x64}, 4));
+        // ID3v2 tag followed by FLAC
+        final byte[] taggedFlac = new byte[]{'I', 'D', '3', 4, 0, 0, 0, 0, 0, 2, 0, 0, 'f', 'L', 'a', 'C'};
+        assertEquals(AudioFileSniffer.Container.FLAC, AudioFileSniffer.sniff(taggedFlac, taggedFlac.length));
+        // RIFF, but not WAVE
+        assertNull(AudioFileSniffer.sniff("RIFF\0\0\0\0AVI ".getBytes(), 12));
+        // too short
+        assertNull(AudioFileSniffer.sniff("fLa".getBytes(), 3));
+        assertNull(AudioFileSniffer.sniff("This is not audio.".getBytes(), 18));
+    }
+
+    @Test
+    public void testSniffMissingFile() throws Exception {
+        final Path file = Files.createTempFile("missing", ".wav");
+        Files.delete(file);
+        assertNull(AudioFileSniffer.sniff(file.toUri().toURL()));
+    }
+
+    @Test
+    public void testProbeWithoutExtension() throws Exception {
+        final Path file = Files.createTempFile("aiff_without_extension", "");
+        try {
+            Files.copy(TestAudioPlayer.extractFile("test.aiff"), file, StandardCopyOption.REPLACE_EXISTING);
+            final URL url = file.toUri().toURL();
+            assertEquals(AudioFileSniffer.Container.AIFF, AudioFileSniffer.sniff(url));
+            assertEquals(ExtAudioSystem.getPreferredAudioFileReaders(url).get(0),
+                ExtAudioSystem.probe(url).getAudioFileReader());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TestAudioRingBuffer.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestAudioRingBuffer {
+
+    @Test
+    public void testCapacityIsFrameAligned() {
+        final AudioRingBuffer ringBuffer = new AudioRingBuffer(10, 4);
+        assertEquals(12, ringBuffer.getCapacity());
+        assertEquals(12, ringBuffer.writable());
+        assertEquals(0, ringBuffer.available());
+    }
+
+    @Test
+    public void testWriteReadWrapAround() throws IOException {
+        final AudioRingBuffer ringBuffer = new AudioRingBuffer(8, 2);
+        final ByteArrayInputStream in = new ByteArrayInputStream(bytes(0, 20));
+        final byte[] buf = new byte[6];
+
+        assertEquals(6, ringBuffer.write(in, 6));
+        assertEquals(4, ringBuffer.read(buf, 0, 4));
+        // releases the first 4 bytes
+        assertEquals(2, ringBuffer.read(buf, 4, 2));
+        assertArrayEquals(bytes(0, 6), buf);
+
+        // wraps around: 2 bytes at the end, then 4 at the start
+        assertEquals(2, ringBuffer.write(in, 6));
+        assertEquals(4, ringBuffer.write(in, 6));
+        assertEquals(6, ringBuffer.read(buf, 0, 6));
+        assertArrayEquals(bytes(6, 6), buf);
+    }
+
+    @Test
+    public void testLastReadIsProtected() throws IOException {
+        final AudioRingBuffer ringBuffer = new AudioRingBuffer(8, 2);
+        final ByteArrayInputStream in = new ByteArrayInputStream(bytes(0, 20));
+        final byte[] buf = new byte[8];
+
+        assertEquals(8, ringBuffer.write(in, 8));
+        assertEquals(8, ringBuffer.read(buf, 0, 8));
+        // not yet released
+        assertEquals(0, ringBuffer.writable());
+
+        ringBuffer.unread(4);
+        assertEquals(4, ringBuffer.available());
+        assertEquals(4, ringBuffer.read(buf, 0, 8));
+        assertArrayEquals(bytes(4, 4), new byte[]{buf[0], buf[1], buf[2], buf[3]});
+        // first read is released now
+        assertEquals(4, ringBuffer.writable());
+    }
+
+    @Test
+    public void testUnreadTooMuch() throws IOException {
+        final AudioRingBuffer ringBuffer = new AudioRingBuffer(8, 2);
+        final ByteArrayInputStream in = new ByteArrayInputStream(bytes(0, 20));
+        final byte[] buf = new byte[4];
+        ringBuffer.write(in, 8);
+        ringBuffer.read(buf, 0, 4);
+        assertThrows(IllegalStateException.class, () -> ringBuffer.unread(6));
+    }
+
+    @Test
+    public void testSkip() throws IOException {
+        final AudioRingBuffer ringBuffer = new AudioRingBuffer(8, 2);
+        final ByteArrayInputStream in = new ByteArrayInputStream(bytes(0, 20));
+        final byte[] buf = new byte[4];
+
+        assertEquals(8, ringBuffer.write(in, 8));
+        // partial frames are not skipped
+        assertEquals(4, ringBuffer.skip(5));
+        assertEquals(4, ringBuffer.available());
+        // skipped bytes are released right away
+        assertEquals(4, ringBuffer.writable());
+        assertEquals(4, ringBuffer.read(buf, 0, 4));
+        assertArrayEquals(bytes(4, 4), buf);
+        assertEquals(0, ringBuffer.skip(2));
+    }
+
+    @Test
+    public void testPartialFramesAreNotRead() throws IOException {
+        final AudioRingBuffer ringBuffer = new AudioRingBuffer(8, 4);
+        ringBuffer.write(new ByteArrayInputStream(bytes(0, 8)), 8);
+        assertEquals(4, ringBuffer.read(new byte[7], 0, 7));
+    }
+
+    @Test
+    public void testEndOfStream() throws IOException, InterruptedException {
+        final AudioRingBuffer ringBuffer = new AudioRingBuffer(8, 2);
+        final ByteArrayInputStream in = new ByteArrayInputStream(bytes(0, 2));
+        assertEquals(2, ringBuffer.write(in, 8));
+        assertEquals(-1, ringBuffer.write(in, 8));
+        assertFalse(ringBuffer.isEndOfStream());
+        assertTrue(ringBuffer.await(1, TimeUnit.SECONDS));
+        ringBuffer.read(new byte[2], 0, 2);
+        assertTrue(ringBuffer.isEndOfStream());
+
+        ringBuffer.clear();
+        assertFalse(ringBuffer.isEndOfStream());
+        assertEquals(0, ringBuffer.available());
+    }
+
+    @Test
+    public void testAwaitTimeout() throws InterruptedException {
+        final AudioRingBuffer ringBuffer = new AudioRingBuffer(8, 2);
+        assertFalse(ringBuffer.await(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testProducerConsumer() throws InterruptedException {
+        final int total = 1024 * 1024;
+        final AudioRingBuffer ringBuffer = new AudioRingBuffer(1000, 4);
+        final ByteArrayInputStream in = new ByteArrayInputStream(bytes(0, total));
+        final Thread producer = new Thread(() -> {
+            try {
+                while (ringBuffer.write(in, 333) >= 0) {
+                    Thread.yield();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        producer.start();
+
+        final byte[] buf = new byte[128];
+        int position = 0;
+        while (true) {
+            assertTrue(ringBuffer.await(5, TimeUnit.SECONDS));
+            if (ringBuffer.isEndOfStream()) break;
+            final int justRead = ringBuffer.read(buf, 0, buf.length);
+            for (int i = 0; i < justRead; i++) {
+                assertEquals((byte) (position + i), buf[i], "Mismatch at " + (position + i));
+            }
+            position += justRead;
+        }
+        producer.join();
+        assertEquals(total, position);
+    }
+
+    private static byte[] bytes(final int start, final int length) {
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (start + i);
+        }
+        return bytes;
+    }
+}
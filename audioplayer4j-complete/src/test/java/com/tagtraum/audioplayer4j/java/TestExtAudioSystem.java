@@ -0,0 +1,70 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import com.tagtraum.audioplayer4j.TestAudioPlayer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TestExtAudioSystem.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestExtAudioSystem {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"test.wav", "test.aiff", "test.flac", "test.mp3"})
+    public void testProbe(final String file) throws Exception {
+        final URL url = TestAudioPlayer.extractFile(file).toUri().toURL();
+        final ExtAudioSystem.Probe probe = ExtAudioSystem.probe(url);
+        assertEquals(url, probe.getURL());
+
+        final AudioFileFormat audioFileFormat = probe.getAudioFileFormat();
+        assertEquals(ExtAudioSystem.getAudioFileFormat(url).toString(), audioFileFormat.toString());
+
+        // a probe may be used more than once
+        for (int i = 0; i < 2; i++) {
+            try (final AudioInputStream stream = probe.getAudioInputStream(32 * 1024)) {
+                assertTrue(stream.getFormat().matches(audioFileFormat.getFormat()),
+                    "Expected " + audioFileFormat.getFormat() + ", but got " + stream.getFormat());
+                assertTrue(stream.read(new byte[4 * 1024]) > 0);
+            }
+        }
+    }
+
+    @Test
+    public void testProvidersAreShared() throws Exception {
+        final URL url = TestAudioPlayer.extractFile("test.flac").toUri().toURL();
+        final ExtAudioSystem.Probe first = ExtAudioSystem.probe(url);
+        final ExtAudioSystem.Probe second = ExtAudioSystem.probe(url);
+        assertNotNull(first.getAudioFileReader());
+        assertSame(first.getAudioFileReader(), second.getAudioFileReader());
+    }
+
+    @Test
+    public void testProbeUnsupported() throws Exception {
+        final Path file = Files.createTempFile("not_audio", ".wav");
+        try {
+            Files.write(file, "This is not audio.".getBytes());
+            final URL url = file.toUri().toURL();
+            assertThrows(UnsupportedAudioFileException.class, () -> ExtAudioSystem.probe(url));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,410 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import com.tagtraum.audioplayer4j.AudioDevice;
+import com.tagtraum.audioplayer4j.AudioPlayer;
+import com.tagtraum.audioplayer4j.EventExecutors;
+import com.tagtraum.audioplayer4j.PositionListener;
+import com.tagtraum.audioplayer4j.TestAudioPlayer;
+import com.tagtraum.audioplayer4j.TimeTicker;
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Line;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.SourceDataLine;
+import java.beans.PropertyChangeEvent;
+import java.io.FileNotFoundException;
+import java.lang.ref.Cleaner;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TestJavaPlayer.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestJavaPlayer {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    @Test
+    public void testThreading() {
+        assertEquals(JavaPlayer.Threading.DEDICATED, new JavaPlayer(CLEANER).getThreading());
+        assertEquals(JavaPlayer.Threading.SHARED, new JavaPlayer(CLEANER, JavaPlayer.Threading.SHARED).getThreading());
+        final JavaPlayer.Threading expected = Runtime.version().major() >= 21
+            ? JavaPlayer.Threading.VIRTUAL
+            : JavaPlayer.Threading.SHARED;
+        assertEquals(expected, new JavaPlayer(CLEANER, JavaPlayer.Threading.VIRTUAL).getThreading());
+    }
+
+    @Test
+    public void testFramePositionWithoutResource() {
+        final JavaPlayer player = new JavaPlayer(CLEANER);
+        assertEquals(AudioSystem.NOT_SPECIFIED, player.getFramePosition());
+        assertNull(player.getTime());
+    }
+
+    @Test
+    public void testCloseUnregistersFromTicker() {
+        final JavaPlayer player = new JavaPlayer(CLEANER);
+        final TimeTicker ticker = new TimeTicker(Duration.ofHours(1), EventExecutors.direct());
+        ticker.register(player);
+        player.close();
+        assertEquals(0, ticker.getPlayerCount());
+    }
+
+    @Test
+    public void testSeekStatisticsWithoutResource() {
+        final JavaPlayer player = new JavaPlayer(CLEANER);
+        assertThrows(IllegalStateException.class, () -> player.setTime(Duration.ofSeconds(1)));
+        final SeekStatistics statistics = player.getSeekStatistics();
+        assertEquals(0, statistics.getRequestCount());
+        assertNull(statistics.getMeanLatency());
+    }
+
+    @Test
+    public void testReadAheadWatermarks() {
+        final JavaPlayer player = new JavaPlayer(CLEANER);
+        assertEquals(SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_LOW_WATERMARK, player.getReadAheadLowWatermark());
+        assertEquals(SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_HIGH_WATERMARK, player.getReadAheadHighWatermark());
+
+        player.setReadAheadHighWatermark(Duration.ofSeconds(5));
+        player.setReadAheadLowWatermark(Duration.ofSeconds(2));
+        assertEquals(Duration.ofSeconds(2), player.getReadAheadLowWatermark());
+        assertEquals(Duration.ofSeconds(5), player.getReadAheadHighWatermark());
+
+        assertThrows(IllegalArgumentException.class, () -> player.setReadAheadLowWatermark(Duration.ofSeconds(6)));
+        assertThrows(IllegalArgumentException.class, () -> player.setReadAheadHighWatermark(Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> player.setReadAheadLowWatermark(Duration.ofSeconds(-1)));
+        assertThrows(NullPointerException.class, () -> player.setReadAheadHighWatermark(null));
+        assertEquals(Duration.ofSeconds(2), player.getReadAheadLowWatermark());
+        assertEquals(Duration.ofSeconds(5), player.getReadAheadHighWatermark());
+    }
+
+    @Test
+    public void testEnqueueInvalid() {
+        final JavaPlayer player = new JavaPlayer(CLEANER);
+        assertThrows(NullPointerException.class, () -> player.enqueue(null));
+        assertThrows(FileNotFoundException.class, () -> player.enqueue(Paths.get("does-not-exist.wav").toUri()));
+        player.clearQueue();
+        assertNull(player.getURI());
+    }
+
+    @Test
+    public void testOpenAsyncInvalid() {
+        final JavaPlayer player = new JavaPlayer(CLEANER);
+        final CompletableFuture<AudioPlayer> future = player.openAsync(Paths.get("does-not-exist.wav").toUri(), null);
+        final ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(FileNotFoundException.class, e.getCause());
+        assertNull(player.getURI());
+    }
+
+    @Test
+    public void testPrepareWithoutResource() {
+        assertThrows(IllegalStateException.class, () -> new JavaPlayer(CLEANER).prepare());
+    }
+
+    @Test
+    public void testEventExecutor() {
+        final JavaPlayer player = new JavaPlayer(CLEANER);
+        assertSame(EventExecutors.edt(), player.getEventExecutor());
+
+        player.setEventExecutor(EventExecutors.direct());
+        assertSame(EventExecutors.direct(), player.getEventExecutor());
+        final List<Thread> threads = new ArrayList<>();
+        player.addPropertyChangeListener("minTimeEventDifference", evt -> threads.add(Thread.currentThread()));
+        player.setMinTimeEventDifference(100);
+        assertEquals(List.of(Thread.currentThread()), threads);
+
+        final List<Runnable> tasks = new ArrayList<>();
+        final Executor queue = tasks::add;
+        player.setEventExecutor(queue);
+        final List<PropertyChangeEvent> events = new ArrayList<>();
+        player.addPropertyChangeListener("minTimeEventDifference", events::add);
+        player.setMinTimeEventDifference(50);
+        assertTrue(events.isEmpty());
+        assertEquals(1, tasks.size());
+        tasks.get(0).run();
+        assertEquals(50, events.get(0).getNewValue());
+
+        player.setEventExecutor(null);
+        assertSame(EventExecutors.edt(), player.getEventExecutor());
+    }
+
+    @Test
+    public void testLimitedLineCount() throws Exception {
+        // device that supports just one open line at a time
+        final List<SourceDataLine> lines = new ArrayList<>();
+        final AudioDevice device = limitedDevice(1, lines);
+        final JavaPlayer first = new JavaPlayer(CLEANER);
+        first.setAudioDevice(device);
+        first.open(TestAudioPlayer.extractFile("test.wav").toUri());
+        // the line stays open in the pool
+        first.close();
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).isOpen());
+
+        // different format, so the idle line cannot be re-used, but must be closed
+        final JavaPlayer second = new JavaPlayer(CLEANER);
+        second.setAudioDevice(device);
+        try {
+            second.open(TestAudioPlayer.extractFile("test.aiff").toUri());
+            assertFalse(lines.get(0).isOpen());
+            assertTrue(lines.get(lines.size() - 1).isOpen());
+        } finally {
+            second.close();
+            LinePool.getInstance().clear(device);
+        }
+    }
+
+    @Test
+    public void testCoalescedSeeks() throws Exception {
+        final Semaphore writes = new Semaphore(0);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final AtomicLong framesSinceFlush = new AtomicLong();
+        final JavaPlayer player = new JavaPlayer(CLEANER);
+        try {
+            player.setAudioDevice(meteredDevice(writes, blocked, framesSinceFlush));
+            player.open(TestAudioPlayer.extractFile("test.wav").toUri());
+            player.play();
+            // the pump is stuck writing, so it cannot pick up any of the requests
+            assertTrue(blocked.await(10, TimeUnit.SECONDS));
+            player.setTime(Duration.ofMillis(500));
+            player.setTime(Duration.ofMillis(1000));
+            player.setTime(Duration.ofMillis(1500));
+            assertEquals(Duration.ofMillis(1500), player.getTime());
+            final SeekStatistics seekStatistics = player.getSeekStatistics();
+            assertEquals(3, seekStatistics.getRequestCount());
+            assertEquals(2, seekStatistics.getCoalescedCount());
+
+            // let the pending write finish and the first write after the seek happen
+            writes.release(2);
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (seekStatistics.getCompletedCount() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            // only the latest request was executed
+            assertEquals(1, seekStatistics.getCompletedCount());
+            assertTrue(framesSinceFlush.get() > 0);
+            // playback continues at the last target, followed by what has been written since
+            // test.wav has 44.1kHz
+            final long seekFrame = 3 * 44100 / 2;
+            assertEquals(seekFrame, player.getFramePosition() - framesSinceFlush.get());
+            assertTrue(player.getTime().compareTo(Duration.ofMillis(1500)) > 0);
+        } finally {
+            player.close();
+            LinePool.getInstance().clear(player.getAudioDevice());
+        }
+    }
+
+    @Test
+    public void testPositionListenersOutsideLock() throws Exception {
+        final JavaPlayer player = new JavaPlayer(CLEANER);
+        player.setAudioDevice(limitedDevice(1, new ArrayList<>()));
+        player.open(TestAudioPlayer.extractFile("test.wav").toUri());
+        try {
+            final List<String> calls = new CopyOnWriteArrayList<>();
+            final CompletableFuture<Void> calledBack = new CompletableFuture<>();
+            final PositionListener other = (audioPlayer, frame, micros) -> calls.add("other");
+            final PositionListener listener = (audioPlayer, frame, micros) -> {
+                calls.add("listener");
+                try {
+                    // must not deadlock
+                    CompletableFuture.runAsync(() -> audioPlayer.removePositionListener(other)).get(5, TimeUnit.SECONDS);
+                    calledBack.complete(null);
+                } catch (Exception e) {
+                    calledBack.completeExceptionally(e);
+                }
+            };
+            final PositionListener removed = (audioPlayer, frame, micros) -> calls.add("removed");
+            assertThrows(NullPointerException.class, () -> player.addPositionListener(null));
+            player.addPositionListener(listener);
+            player.addPositionListener(listener);
+            player.addPositionListener(removed);
+            player.addPositionListener(other);
+            player.removePositionListener(removed);
+            // removing an unknown listener is harmless
+            player.removePositionListener(removed);
+            player.setTime(Duration.ofSeconds(1));
+            calledBack.get(10, TimeUnit.SECONDS);
+            // the listeners keep being called, while we look at the calls
+            final List<String> called = new ArrayList<>(calls);
+            // listener was added just once, removed is not called
+            assertEquals(List.of("listener", "other"), called.subList(0, 2));
+            assertFalse(called.contains("removed"), called.toString());
+        } finally {
+            player.close();
+            LinePool.getInstance().clear(player.getAudioDevice());
+        }
+    }
+
+    /**
+     * Device with a limited number of lines, which are open at the same time.
+     * The lines accept no data, which is fine, as long as nothing is played.
+     *
+     * @param maxOpenLines max number of open lines
+     * @param lines all lines obtained from the device
+     * @return device
+     */
+    private static AudioDevice limitedDevice(final int maxOpenLines, final List<SourceDataLine> lines) {
+        final AtomicInteger openLines = new AtomicInteger();
+        return device("LimitedDevice", () -> {
+            final SourceDataLine line = line(openLines, maxOpenLines);
+            lines.add(line);
+            return line;
+        });
+    }
+
+    /**
+     * Device, whose lines accept one write per permit, i.e. a running line's
+     * write blocks until a permit is available. Stopping the line unblocks it.
+     *
+     * @param writes permits for writing
+     * @param blocked counted down, when a write has to wait for a permit
+     * @param framesSinceFlush frames written since the last flush
+     * @return device
+     */
+    private static AudioDevice meteredDevice(final Semaphore writes, final CountDownLatch blocked, final AtomicLong framesSinceFlush) {
+        return device("MeteredDevice", () -> meteredLine(writes, blocked, framesSinceFlush));
+    }
+
+    private static AudioDevice device(final String name, final Supplier<SourceDataLine> lines) {
+        final Mixer mixer = (Mixer) Proxy.newProxyInstance(TestJavaPlayer.class.getClassLoader(),
+            new Class<?>[]{Mixer.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getSourceLineInfo": return new Line.Info[0];
+                    case "hashCode": return System.identityHashCode(proxy);
+                    case "equals": return proxy == args[0];
+                    case "toString": return name + "Mixer";
+                    default: return defaultValue(method);
+                }
+            });
+        return (AudioDevice) Proxy.newProxyInstance(TestJavaPlayer.class.getClassLoader(),
+            new Class<?>[]{AudioDevice.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getMixer": return mixer;
+                    case "getLine": return lines.get();
+                    case "hashCode": return System.identityHashCode(proxy);
+                    case "equals": return proxy == args[0];
+                    case "getName":
+                    case "toString": return name;
+                    default: return defaultValue(method);
+                }
+            });
+    }
+
+    private static SourceDataLine line(final AtomicInteger openLines, final int maxOpenLines) {
+        final AtomicReference<AudioFormat> format = new AtomicReference<>();
+        final AtomicInteger bufferSize = new AtomicInteger();
+        return (SourceDataLine) Proxy.newProxyInstance(TestJavaPlayer.class.getClassLoader(),
+            new Class<?>[]{SourceDataLine.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "open":
+                        if (format.get() != null) return null;
+                        if (openLines.incrementAndGet() > maxOpenLines) {
+                            openLines.decrementAndGet();
+                            throw new LineUnavailableException("No more lines");
+                        }
+                        format.set((AudioFormat) args[0]);
+                        bufferSize.set(args.length > 1 ? (Integer) args[1] : 4096);
+                        return null;
+                    case "close":
+                        if (format.getAndSet(null) != null) openLines.decrementAndGet();
+                        return null;
+                    case "isOpen": return format.get() != null;
+                    case "getFormat": return format.get();
+                    case "getBufferSize": return bufferSize.get();
+                    case "hashCode": return System.identityHashCode(proxy);
+                    case "equals": return proxy == args[0];
+                    case "toString": return "LimitedLine{" + format.get() + "}";
+                    default: return defaultValue(method);
+                }
+            });
+    }
+
+    private static SourceDataLine meteredLine(final Semaphore writes, final CountDownLatch blocked, final AtomicLong framesSinceFlush) {
+        final AtomicReference<AudioFormat> format = new AtomicReference<>();
+        final AtomicInteger bufferSize = new AtomicInteger();
+        final AtomicBoolean running = new AtomicBoolean();
+        final AtomicLong frames = new AtomicLong();
+        return (SourceDataLine) Proxy.newProxyInstance(TestJavaPlayer.class.getClassLoader(),
+            new Class<?>[]{SourceDataLine.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "open":
+                        format.set((AudioFormat) args[0]);
+                        bufferSize.set(args.length > 1 ? (Integer) args[1] : 4096);
+                        return null;
+                    case "close":
+                        format.set(null);
+                        running.set(false);
+                        return null;
+                    case "start":
+                        running.set(true);
+                        return null;
+                    case "stop":
+                        running.set(false);
+                        return null;
+                    case "flush":
+                        framesSinceFlush.set(0);
+                        return null;
+                    case "write":
+                        while (!writes.tryAcquire(10, TimeUnit.MILLISECONDS)) {
+                            blocked.countDown();
+                            if (!running.get()) return 0;
+                        }
+                        final int length = (Integer) args[2];
+                        final int written = length / format.get().getFrameSize();
+                        frames.addAndGet(written);
+                        framesSinceFlush.addAndGet(written);
+                        return length;
+                    case "isOpen": return format.get() != null;
+                    case "isRunning":
+                    case "isActive": return running.get();
+                    case "getFormat": return format.get();
+                    case "getBufferSize":
+                    case "available": return bufferSize.get();
+                    case "getLongFramePosition": return frames.get();
+                    case "getFramePosition": return (int) frames.get();
+                    case "hashCode": return System.identityHashCode(proxy);
+                    case "equals": return proxy == args[0];
+                    case "toString": return "MeteredLine{" + format.get() + "}";
+                    default: return defaultValue(method);
+                }
+            });
+    }
+
+    private static Object defaultValue(final Method method) {
+        final Class<?> type = method.getReturnType();
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        return null;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import com.tagtraum.audioplayer4j.AudioDevice;
+import com.tagtraum.audioplayer4j.device.DefaultAudioDevice;
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.SourceDataLine;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TestLinePool.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestLinePool {
+
+    private static final AudioFormat CD = new AudioFormat(44100f, 16, 2, true, false);
+    private static final AudioFormat DAT = new AudioFormat(48000f, 16, 2, true, false);
+
+    @Test
+    public void testAcquireReleased() {
+        final LinePool pool = new LinePool(2, Duration.ofSeconds(30));
+        final AudioDevice device = DefaultAudioDevice.getInstance();
+        assertNull(pool.acquire(device, CD, 4410));
+
+        final SourceDataLine line = line(CD);
+        pool.release(device, line, 4410);
+        assertEquals(1, pool.getIdleLineCount());
+        assertTrue(line.isOpen());
+
+        // different format or buffer size
+        assertNull(pool.acquire(device, DAT, 4410));
+        assertNull(pool.acquire(device, CD, 8820));
+        // equal, but not identical format
+        assertSame(line, pool.acquire(device, new AudioFormat(44100f, 16, 2, true, false), 4410));
+        assertEquals(0, pool.getIdleLineCount());
+        assertNull(pool.acquire(device, CD, 4410));
+    }
+
+    @Test
+    public void testMaxIdleLines() {
+        final LinePool pool = new LinePool(2, Duration.ofSeconds(30));
+        final AudioDevice device = DefaultAudioDevice.getInstance();
+        final SourceDataLine first = line(CD);
+        final SourceDataLine second = line(CD);
+        final SourceDataLine third = line(CD);
+        pool.release(device, first, 4410);
+        pool.release(device, second, 4410);
+        pool.release(device, third, 4410);
+
+        assertEquals(2, pool.getIdleLineCount());
+        assertFalse(first.isOpen());
+        // most recently released first
+        assertSame(third, pool.acquire(device, CD, 4410));
+        assertSame(second, pool.acquire(device, CD, 4410));
+    }
+
+    @Test
+    public void testPoolingOff() {
+        final LinePool pool = new LinePool(0, Duration.ofSeconds(30));
+        final SourceDataLine line = line(CD);
+        pool.release(DefaultAudioDevice.getInstance(), line, 4410);
+        assertFalse(line.isOpen());
+        assertEquals(0, pool.getIdleLineCount());
+    }
+
+    @Test
+    public void testIdleTimeout() throws InterruptedException {
+        final LinePool pool = new LinePool(2, Duration.ofMillis(50));
+        final SourceDataLine line = line(CD);
+        pool.release(DefaultAudioDevice.getInstance(), line, 4410);
+        for (int i = 0; i < 100 && line.isOpen(); i++) {
+            Thread.sleep(20);
+        }
+        assertFalse(line.isOpen());
+        assertEquals(0, pool.getIdleLineCount());
+    }
+
+    @Test
+    public void testClear() {
+        final LinePool pool = new LinePool(2, Duration.ofSeconds(30));
+        final SourceDataLine line = line(CD);
+        pool.release(DefaultAudioDevice.getInstance(), line, 4410);
+        pool.clear();
+        assertFalse(line.isOpen());
+        assertNull(pool.acquire(DefaultAudioDevice.getInstance(), CD, 4410));
+    }
+
+    @Test
+    public void testClearDevice() {
+        final LinePool pool = new LinePool(2, Duration.ofSeconds(30));
+        final AudioDevice device = DefaultAudioDevice.getInstance();
+        final AudioDevice otherDevice = device("Other");
+        final SourceDataLine line = line(CD);
+        final SourceDataLine otherLine = line(CD);
+        pool.release(device, line, 4410);
+        pool.release(otherDevice, otherLine, 4410);
+
+        assertEquals(1, pool.clear(otherDevice));
+        assertFalse(otherLine.isOpen());
+        assertTrue(line.isOpen());
+        assertEquals(0, pool.clear(otherDevice));
+        assertSame(line, pool.acquire(device, CD, 4410));
+    }
+
+    /**
+     * Device that is only equal to itself.
+     *
+     * @param name name
+     * @return device
+     */
+    private static AudioDevice device(final String name) {
+        return (AudioDevice) Proxy.newProxyInstance(TestLinePool.class.getClassLoader(),
+            new Class<?>[]{AudioDevice.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getName":
+                    case "toString": return name;
+                    case "hashCode": return System.identityHashCode(proxy);
+                    case "equals": return proxy == args[0];
+                    default: return null;
+                }
+            });
+    }
+
+    /**
+     * Minimal open line, which just knows its format and whether it's open.
+     *
+     * @param format format
+     * @return line
+     */
+    private static SourceDataLine line(final AudioFormat format) {
+        final AtomicBoolean open = new AtomicBoolean(true);
+        return (SourceDataLine) Proxy.newProxyInstance(TestLinePool.class.getClassLoader(),
+            new Class<?>[]{SourceDataLine.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getFormat": return format;
+                    case "isOpen": return open.get();
+                    case "close": open.set(false); return null;
+                    case "toString": return "Line{" + format + "}";
+                    default: return null;
+                }
+            });
+    }
+}
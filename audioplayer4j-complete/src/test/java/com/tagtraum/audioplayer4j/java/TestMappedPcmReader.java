@@ -0,0 +1,111 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import com.tagtraum.audioplayer4j.TestAudioPlayer;
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TestMappedPcmReader.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestMappedPcmReader {
+
+    private static final AudioFormat CD = new AudioFormat(44100f, 16, 2, true, false);
+
+    @Test
+    public void testRead() throws Exception {
+        final Path file = Files.createTempFile("mapped", ".pcm");
+        try {
+            final byte[] bytes = new byte[10 + 4 * 1000];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) i;
+            }
+            Files.write(file, bytes);
+            final MappedPcmReader reader;
+            try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                reader = new MappedPcmReader(file, channel, 10, 4 * 1000, 4);
+            }
+            // still readable after the channel is closed
+            assertEquals(1000, reader.getFrameLength());
+            final byte[] buf = new byte[4 * 300 + 3];
+            // whole frames only
+            assertEquals(4 * 300, reader.read(buf, 0, buf.length));
+            assertArrayEquals(Arrays.copyOfRange(bytes, 10, 10 + 4 * 300), Arrays.copyOf(buf, 4 * 300));
+            assertEquals(300, reader.getFramePosition());
+
+            reader.setFramePosition(900);
+            reader.touch(900, 1000);
+            assertEquals(4 * 100, reader.read(buf, 3, buf.length - 3));
+            assertArrayEquals(Arrays.copyOfRange(bytes, 10 + 4 * 900, bytes.length), Arrays.copyOfRange(buf, 3, 3 + 4 * 100));
+            assertEquals(-1, reader.read(buf, 0, buf.length));
+
+            reader.setFramePosition(-5);
+            assertEquals(0, reader.getFramePosition());
+            reader.setFramePosition(5000);
+            assertEquals(1000, reader.getFramePosition());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        final Path file = Files.createTempFile("mapped", ".pcm");
+        try {
+            Files.write(file, new byte[4 * 10000]);
+            final MappedPcmReader reader;
+            try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                reader = new MappedPcmReader(file, channel, 0, 4 * 10000, 4);
+                // truncated after it was mapped
+                channel.truncate(0);
+            }
+            final byte[] buf = new byte[4 * 10000];
+            assertThrows(IOException.class, () -> reader.touch(0, buf.length));
+            assertThrows(IOException.class, () -> reader.read(buf, 0, buf.length));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testOpen() throws Exception {
+        final URL url = TestAudioPlayer.extractFile("test.wav").toUri().toURL();
+        final AudioFormat other = new AudioFormat(44100f, 16, 2, true, true);
+        final MappedPcmReader reader = MappedPcmReader.open(url, CD, 1000, CD);
+        assertNotNull(reader);
+        assertEquals(1000, reader.getFrameLength());
+        // conversion needed
+        assertNull(MappedPcmReader.open(url, CD, 1000, other));
+        assertNull(MappedPcmReader.open(url, new AudioFormat(AudioFormat.Encoding.PCM_UNSIGNED, 44100f, 8, 2, 2, 44100f, false),
+            1000, new AudioFormat(AudioFormat.Encoding.PCM_UNSIGNED, 44100f, 8, 2, 2, 44100f, false)));
+        // compressed files are not even indexed
+        assertNull(MappedPcmReader.open(TestAudioPlayer.extractFile("test.mp3").toUri().toURL(),
+            new AudioFormat(new AudioFormat.Encoding("MPEG1L3"), 44100f, AudioSystem.NOT_SPECIFIED, 2, AudioSystem.NOT_SPECIFIED, 38.28f, false),
+            1000, CD));
+        // turned off
+        System.setProperty(MappedPcmReader.JAVAPLAYER_MMAP, "false");
+        try {
+            assertNull(MappedPcmReader.open(url, CD, 1000, CD));
+        } finally {
+            System.clearProperty(MappedPcmReader.JAVAPLAYER_MMAP);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import com.tagtraum.audioplayer4j.TestAudioPlayer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TestMetadataCache.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestMetadataCache {
+
+    private static final AudioFileFormat WAVE = new AudioFileFormat(AudioFileFormat.Type.WAVE,
+        new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, 44100f, 16, 2, 4, 44100f, false, Map.of("bitrate", 1411200)),
+        133632, Map.of("duration", 3030204L, "provider", "test"));
+
+    private Path tempDir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("metadata_cache");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        try (final Stream<Path> paths = Files.walk(tempDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testGetPut() throws Exception {
+        final MetadataCache cache = new MetadataCache(2, null);
+        final URL url = copy("test.wav").toUri().toURL();
+        assertNull(cache.get(url));
+        cache.put(url, "SomeReader", WAVE);
+        final MetadataCache.Entry entry = cache.get(url);
+        assertNotNull(entry);
+        assertEquals("SomeReader", entry.getProvider());
+        assertSame(WAVE, entry.getAudioFileFormat());
+    }
+
+    @Test
+    public void testModified() throws Exception {
+        final MetadataCache cache = new MetadataCache(2, null);
+        final Path file = copy("test.wav");
+        final URL url = file.toUri().toURL();
+        cache.put(url, null, WAVE);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() - 10_000L));
+        assertNull(cache.get(url));
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws Exception {
+        final MetadataCache cache = new MetadataCache(2, null);
+        final URL first = copy("test.wav").toUri().toURL();
+        final URL second = copy("test.aiff").toUri().toURL();
+        final URL third = copy("test.flac").toUri().toURL();
+        cache.put(first, null, WAVE);
+        cache.put(second, null, WAVE);
+        assertNotNull(cache.get(first));
+        cache.put(third, null, WAVE);
+        assertEquals(2, cache.getEntryCount());
+        assertNotNull(cache.get(first));
+        assertNull(cache.get(second));
+        assertNotNull(cache.get(third));
+    }
+
+    @Test
+    public void testCachingOff() throws Exception {
+        final MetadataCache cache = new MetadataCache(0, null);
+        final URL url = copy("test.wav").toUri().toURL();
+        cache.put(url, null, WAVE);
+        assertNull(cache.get(url));
+    }
+
+    @Test
+    public void testRemoteURL() throws Exception {
+        final MetadataCache cache = new MetadataCache(2, null);
+        final URL url = new URL("http://www.tagtraum.com/test.wav");
+        cache.put(url, null, WAVE);
+        assertNull(cache.get(url));
+    }
+
+    @Test
+    public void testDirectoryStore() throws Exception {
+        final MetadataCache.DirectoryStore store = new MetadataCache.DirectoryStore(tempDir.resolve("cache"));
+        final URL url = copy("test.wav").toUri().toURL();
+        new MetadataCache(2, store).put(url, "SomeReader", WAVE);
+
+        // new cache, nothing in memory
+        final MetadataCache cache = new MetadataCache(2, store);
+        final MetadataCache.Entry entry = cache.get(url);
+        assertNotNull(entry);
+        assertEquals(1, cache.getEntryCount());
+        assertEquals("SomeReader", entry.getProvider());
+        final AudioFileFormat audioFileFormat = entry.getAudioFileFormat();
+        // players compare types and encodings by identity
+        assertSame(AudioFileFormat.Type.WAVE, audioFileFormat.getType());
+        assertSame(AudioFormat.Encoding.PCM_SIGNED, audioFileFormat.getFormat().getEncoding());
+        assertTrue(WAVE.getFormat().matches(audioFileFormat.getFormat()));
+        assertEquals(WAVE.getFrameLength(), audioFileFormat.getFrameLength());
+        assertEquals(WAVE.properties(), audioFileFormat.properties());
+        assertEquals(WAVE.getFormat().properties(), audioFileFormat.getFormat().properties());
+    }
+
+    @Test
+    public void testDirectoryStoreMissing() throws Exception {
+        final MetadataCache.DirectoryStore store = new MetadataCache.DirectoryStore(tempDir.resolve("missing"));
+        assertNull(store.load("file:/some/file.wav"));
+    }
+
+    @Test
+    public void testSeekIndex() throws Exception {
+        final MetadataCache.DirectoryStore store = new MetadataCache.DirectoryStore(tempDir.resolve("cache"));
+        final Path file = copy("test.flac");
+        final URL url = file.toUri().toURL();
+        final SeekIndex seekIndex = SeekIndex.build(file, AudioFileSniffer.Container.FLAC);
+        final MetadataCache cache = new MetadataCache(2, store);
+        // no metadata, no index
+        cache.putSeekIndex(url, seekIndex);
+        assertNull(cache.getSeekIndex(url));
+        cache.put(url, null, WAVE);
+        cache.putSeekIndex(url, seekIndex);
+        assertSame(seekIndex, cache.getSeekIndex(url));
+
+        // new cache, nothing in memory
+        final SeekIndex stored = new MetadataCache(2, store).getSeekIndex(url);
+        assertNotNull(stored);
+        assertEquals(seekIndex.toString(), stored.toString());
+        assertEquals(seekIndex.offset(seekIndex.checkpoint(50000)), stored.offset(stored.checkpoint(50000)));
+
+        // new metadata discards the index
+        cache.put(url, null, WAVE);
+        assertNull(cache.getSeekIndex(url));
+        assertNull(new MetadataCache(2, store).getSeekIndex(url));
+    }
+
+    @Test
+    public void testProbeIsCached() throws Exception {
+        final URL url = copy("test.flac").toUri().toURL();
+        final ExtAudioSystem.Probe probe = ExtAudioSystem.probe(url);
+        final ExtAudioSystem.Probe cachedProbe = ExtAudioSystem.probe(url);
+        assertSame(probe.getAudioFileFormat(), cachedProbe.getAudioFileFormat());
+        assertSame(probe.getAudioFileReader(), cachedProbe.getAudioFileReader());
+        try (final AudioInputStream stream = cachedProbe.getAudioInputStream(32 * 1024)) {
+            assertTrue(stream.read(new byte[4 * 1024]) > 0);
+        }
+    }
+
+    private Path copy(final String name) throws Exception {
+        final Path file = tempDir.resolve(name);
+        Files.copy(TestAudioPlayer.extractFile(name), file, StandardCopyOption.REPLACE_EXISTING);
+        return file;
+    }
+}
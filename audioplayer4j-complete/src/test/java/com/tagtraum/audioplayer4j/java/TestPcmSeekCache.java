@@ -0,0 +1,107 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TestPcmSeekCache.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestPcmSeekCache {
+
+    private static final int FRAME_SIZE = 4;
+
+    @Test
+    public void testPutAndRead() {
+        final PcmSeekCache cache = new PcmSeekCache(FRAME_SIZE, 1024 * 1024);
+        final int blockFrames = cache.getBlockFrames();
+        // spans three blocks, starting in the middle of the first
+        final long start = blockFrames / 2;
+        final byte[] audio = frames(start, 2 * blockFrames);
+        cache.put(start, audio, 0, audio.length);
+        assertEquals(3, cache.getBlockCount());
+
+        assertTrue(cache.contains(start, start + 2 * blockFrames));
+        assertFalse(cache.contains(start - 1, start + 10));
+        assertFalse(cache.contains(start, start + 2 * blockFrames + 1));
+
+        final byte[] buf = new byte[audio.length];
+        assertEquals(audio.length, cache.read(start, buf, 0, buf.length));
+        assertArrayEquals(audio, buf);
+
+        // reads stop at the first missing frame
+        assertEquals(10 * FRAME_SIZE, cache.read(start + 2 * blockFrames - 10, buf, 0, buf.length));
+        assertEquals(0, cache.read(start - 1, buf, 0, buf.length));
+        // partial frames are not read
+        assertEquals(FRAME_SIZE, cache.read(start, buf, 0, FRAME_SIZE + 1));
+    }
+
+    @Test
+    public void testAdjacentAndDisjointPuts() {
+        final PcmSeekCache cache = new PcmSeekCache(FRAME_SIZE, 1024 * 1024);
+        final byte[] first = frames(0, 100);
+        final byte[] second = frames(100, 100);
+        cache.put(0, first, 0, first.length);
+        cache.put(100, second, 0, second.length);
+        assertTrue(cache.contains(0, 200));
+
+        // a disjoint range in the same block replaces the old one
+        final byte[] third = frames(300, 10);
+        cache.put(300, third, 0, third.length);
+        assertTrue(cache.contains(300, 310));
+        assertFalse(cache.contains(0, 200));
+    }
+
+    @Test
+    public void testEviction() {
+        final PcmSeekCache cache = new PcmSeekCache(FRAME_SIZE, 2 * 64 * 1024);
+        final int blockFrames = cache.getBlockFrames();
+        assertEquals(2, cache.getMaxBlocks());
+        final byte[] block = new byte[blockFrames * FRAME_SIZE];
+        cache.put(0, block, 0, block.length);
+        cache.put(blockFrames, block, 0, block.length);
+        // touch the first block, so that the second one is least recently used
+        assertTrue(cache.read(0, new byte[FRAME_SIZE], 0, FRAME_SIZE) > 0);
+        cache.put(2 * blockFrames, block, 0, block.length);
+        assertEquals(2, cache.getBlockCount());
+        assertTrue(cache.contains(0, blockFrames));
+        assertFalse(cache.contains(blockFrames, 2 * blockFrames));
+        assertTrue(cache.contains(2 * blockFrames, 3 * blockFrames));
+    }
+
+    @Test
+    public void testOff() {
+        final PcmSeekCache cache = new PcmSeekCache(FRAME_SIZE, 0);
+        final byte[] audio = frames(0, 10);
+        cache.put(0, audio, 0, audio.length);
+        assertEquals(0, cache.getBlockCount());
+        assertFalse(cache.contains(0, 10));
+    }
+
+    /**
+     * Audio, in which each frame contains its frame number.
+     *
+     * @param start first frame
+     * @param count number of frames
+     * @return audio data
+     */
+    private static byte[] frames(final long start, final int count) {
+        final byte[] audio = new byte[count * FRAME_SIZE];
+        for (int i = 0; i < count; i++) {
+            final int frame = (int) (start + i);
+            audio[i * FRAME_SIZE] = (byte) (frame >> 24);
+            audio[i * FRAME_SIZE + 1] = (byte) (frame >> 16);
+            audio[i * FRAME_SIZE + 2] = (byte) (frame >> 8);
+            audio[i * FRAME_SIZE + 3] = (byte) frame;
+        }
+        return audio;
+    }
+}
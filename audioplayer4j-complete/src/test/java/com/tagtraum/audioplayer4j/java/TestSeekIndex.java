@@ -0,0 +1,165 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import com.tagtraum.audioplayer4j.TestAudioPlayer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TestSeekIndex.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestSeekIndex {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"test.wav", "test.aiff"})
+    public void testLinear(final String name) throws Exception {
+        final Path file = TestAudioPlayer.extractFile(name);
+        final SeekIndex index = SeekIndex.build(file, AudioFileSniffer.sniff(file.toUri().toURL()));
+        assertNotNull(index);
+        assertTrue(index.isLinear());
+        final byte[] pcm;
+        try (final AudioInputStream in = AudioSystem.getAudioInputStream(file.toFile())) {
+            assertEquals(in.getFormat().getFrameSize(), index.getBytesPerFrame());
+            pcm = in.readAllBytes();
+        }
+        final byte[] bytes = Files.readAllBytes(file);
+        final int frameSize = index.getBytesPerFrame();
+        for (final long frame : new long[]{0, 1, 50000, pcm.length / frameSize - 100}) {
+            assertEquals(frame, index.checkpoint(frame));
+            final int offset = (int) index.offset(frame);
+            assertArrayEquals(Arrays.copyOfRange(pcm, (int) frame * frameSize, (int) frame * frameSize + 100 * frameSize),
+                Arrays.copyOfRange(bytes, offset, offset + 100 * frameSize));
+        }
+    }
+
+    @Test
+    public void testMpeg() throws Exception {
+        final Path file = TestAudioPlayer.extractFile("test.mp3");
+        final SeekIndex index = SeekIndex.build(file, AudioFileSniffer.Container.MPEG);
+        assertNotNull(index);
+        assertFalse(index.isLinear());
+        assertTrue(index.getCheckpointCount() > 1);
+        final byte[] bytes = Files.readAllBytes(file);
+        long previous = -1;
+        for (long frame = 0; frame < 130000; frame += 1000) {
+            final long checkpoint = index.checkpoint(frame);
+            assertTrue(checkpoint <= frame);
+            assertTrue(checkpoint >= previous);
+            // checkpoints are frame boundaries
+            final int offset = (int) index.offset(checkpoint);
+            final int header = (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16
+                | (bytes[offset + 2] & 0xFF) << 8 | bytes[offset + 3] & 0xFF;
+            assertTrue(SeekIndex.mpegFrameLength(header) > 0);
+            previous = checkpoint;
+        }
+    }
+
+    @Test
+    public void testMpegInfoFrame() throws Exception {
+        final Path file = TestAudioPlayer.extractFile("test.mp3");
+        final SeekIndex index = SeekIndex.build(file, AudioFileSniffer.Container.MPEG);
+        final byte[] bytes = Files.readAllBytes(file);
+        // insert a Xing frame with the first frame's header in front of the first frame
+        final int first = (int) index.offset(0);
+        final int header = (bytes[first] & 0xFF) << 24 | (bytes[first + 1] & 0xFF) << 16
+            | (bytes[first + 2] & 0xFF) << 8 | bytes[first + 3] & 0xFF;
+        final byte[] xing = new byte[SeekIndex.mpegFrameLength(header)];
+        System.arraycopy(bytes, first, xing, 0, 4);
+        final int sideInfoLength = (header >>> 6 & 0x3) == 3 ? 17 : 32;
+        System.arraycopy("Xing".getBytes("ASCII"), 0, xing, 4 + sideInfoLength, 4);
+        final Path withXing = Files.createTempFile("test", "xing.mp3");
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write(bytes, 0, first);
+            out.write(xing);
+            out.write(bytes, first, bytes.length - first);
+            Files.write(withXing, out.toByteArray());
+
+            // the Xing frame is no audio frame
+            final SeekIndex xingIndex = SeekIndex.build(withXing, AudioFileSniffer.Container.MPEG);
+            assertEquals(index.getCheckpointCount(), xingIndex.getCheckpointCount());
+            for (long frame = 0; frame < 130000; frame += 1000) {
+                assertEquals(index.checkpoint(frame), xingIndex.checkpoint(frame));
+                assertEquals(index.offset(index.checkpoint(frame)) + xing.length, xingIndex.offset(xingIndex.checkpoint(frame)));
+            }
+        } finally {
+            Files.delete(withXing);
+        }
+    }
+
+    @Test
+    public void testFlac() throws Exception {
+        final Path file = TestAudioPlayer.extractFile("test.flac");
+        final SeekIndex index = SeekIndex.build(file, AudioFileSniffer.Container.FLAC);
+        assertNotNull(index);
+        assertFalse(index.isLinear());
+        assertTrue(index.getCheckpointCount() > 1);
+        final byte[] bytes = Files.readAllBytes(file);
+        for (long frame = 0; frame < 130000; frame += 1000) {
+            final long checkpoint = index.checkpoint(frame);
+            assertTrue(checkpoint <= frame);
+            // checkpoints are frame headers carrying their own position
+            final int offset = (int) index.offset(checkpoint);
+            final byte[] header = Arrays.copyOfRange(bytes, offset, offset + 16);
+            assertEquals(checkpoint, SeekIndex.flacFrameNumber(header, 4096));
+            // a corrupt header is recognized
+            header[4]++;
+            assertEquals(-1, SeekIndex.flacFrameNumber(header, 4096));
+        }
+    }
+
+    @Test
+    public void testOpenFlac() throws Exception {
+        // restarted streams start with the FLAC headers
+        final URL url = TestAudioPlayer.extractFile("test.flac").toUri().toURL();
+        final SeekIndex index = SeekIndex.build(TestAudioPlayer.extractFile("test.flac"), AudioFileSniffer.Container.FLAC);
+        try (final InputStream in = index.open(url, index.checkpoint(50000))) {
+            assertTrue(in.markSupported());
+            final byte[] magic = new byte[4];
+            assertEquals(4, in.readNBytes(magic, 0, 4));
+            assertEquals("fLaC", new String(magic, "ASCII"));
+        }
+    }
+
+    @Test
+    public void testUnsupported() throws Exception {
+        final Path file = TestAudioPlayer.extractFile("test.ogg");
+        assertNull(SeekIndex.build(file, AudioFileSniffer.Container.OGG));
+    }
+
+    @Test
+    public void testWriteRead() throws Exception {
+        final Path file = TestAudioPlayer.extractFile("test.mp3");
+        final SeekIndex index = SeekIndex.build(file, AudioFileSniffer.Container.MPEG);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.write(new DataOutputStream(out));
+        final SeekIndex read = SeekIndex.read(new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(index.toString(), read.toString());
+        for (long frame = 0; frame < 130000; frame += 1000) {
+            assertEquals(index.checkpoint(frame), read.checkpoint(frame));
+            assertEquals(index.offset(index.checkpoint(frame)), read.offset(read.checkpoint(frame)));
+        }
+    }
+}
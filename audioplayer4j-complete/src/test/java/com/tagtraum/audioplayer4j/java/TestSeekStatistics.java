@@ -0,0 +1,71 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TestSeekStatistics.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestSeekStatistics {
+
+    @Test
+    public void testEmpty() {
+        final SeekStatistics statistics = new SeekStatistics();
+        assertEquals(0, statistics.getRequestCount());
+        assertEquals(0, statistics.getCoalescedCount());
+        assertEquals(0, statistics.getCompletedCount());
+        assertNull(statistics.getMinLatency());
+        assertNull(statistics.getMaxLatency());
+        assertNull(statistics.getMeanLatency());
+        assertNull(statistics.getLatencyPercentile(50));
+        assertThrows(IllegalArgumentException.class, () -> statistics.getLatencyPercentile(0));
+        assertThrows(IllegalArgumentException.class, () -> statistics.getLatencyPercentile(101));
+    }
+
+    @Test
+    public void testCounts() {
+        final SeekStatistics statistics = new SeekStatistics();
+        statistics.requested(false);
+        statistics.requested(true);
+        statistics.requested(true);
+        assertEquals(3, statistics.getRequestCount());
+        assertEquals(2, statistics.getCoalescedCount());
+        statistics.reset();
+        assertEquals(0, statistics.getRequestCount());
+        assertEquals(0, statistics.getCoalescedCount());
+    }
+
+    @Test
+    public void testLatencies() {
+        final SeekStatistics statistics = new SeekStatistics();
+        // 90 fast seeks, 10 slow ones
+        for (int i = 0; i < 90; i++) {
+            statistics.completed(Duration.ofMillis(3).toNanos());
+        }
+        for (int i = 0; i < 10; i++) {
+            statistics.completed(Duration.ofMillis(100).toNanos());
+        }
+        assertEquals(100, statistics.getCompletedCount());
+        assertEquals(Duration.ofMillis(3), statistics.getMinLatency());
+        assertEquals(Duration.ofMillis(100), statistics.getMaxLatency());
+        assertEquals(Duration.ofNanos((90 * 3 + 10 * 100) * 1000000L / 100), statistics.getMeanLatency());
+        // upper bounds of the buckets
+        assertEquals(Duration.ofMillis(4), statistics.getLatencyPercentile(50));
+        assertEquals(Duration.ofMillis(4), statistics.getLatencyPercentile(90));
+        assertEquals(Duration.ofMillis(100), statistics.getLatencyPercentile(95));
+        assertEquals(Duration.ofMillis(100), statistics.getLatencyPercentile(100));
+        statistics.reset();
+        assertNull(statistics.getMaxLatency());
+    }
+}
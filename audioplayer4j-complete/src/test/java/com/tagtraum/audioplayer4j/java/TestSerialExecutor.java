@@ -0,0 +1,125 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TestSerialExecutor.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestSerialExecutor {
+
+    @Test
+    public void testOrderOnSharedPool() throws InterruptedException {
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            final List<SerialExecutor> serialExecutors = new ArrayList<>();
+            final List<List<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                serialExecutors.add(new SerialExecutor(pool));
+                results.add(Collections.synchronizedList(new ArrayList<>()));
+            }
+            for (int task = 0; task < 1000; task++) {
+                for (int i = 0; i < serialExecutors.size(); i++) {
+                    final List<Integer> result = results.get(i);
+                    final int value = task;
+                    serialExecutors.get(i).execute(() -> result.add(value));
+                }
+            }
+            for (final SerialExecutor serialExecutor : serialExecutors) {
+                serialExecutor.shutdown();
+                assertTrue(serialExecutor.awaitTermination(5, TimeUnit.SECONDS));
+            }
+            for (final List<Integer> result : results) {
+                assertEquals(1000, result.size());
+                for (int task = 0; task < 1000; task++) {
+                    assertEquals(task, result.get(task));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testNoConcurrentExecution() throws InterruptedException {
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            final SerialExecutor serialExecutor = new SerialExecutor(pool);
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+            for (int task = 0; task < 100; task++) {
+                serialExecutor.execute(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.yield();
+                    running.decrementAndGet();
+                });
+            }
+            serialExecutor.shutdown();
+            assertTrue(serialExecutor.awaitTermination(5, TimeUnit.SECONDS));
+            assertEquals(1, maxRunning.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubmit() throws Exception {
+        final ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            final SerialExecutor serialExecutor = new SerialExecutor(pool);
+            assertEquals("result", serialExecutor.submit(() -> "result").get(5, TimeUnit.SECONDS));
+            final Future<Object> failed = serialExecutor.submit(() -> {
+                throw new IllegalStateException();
+            });
+            final ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            // still usable after a failed task
+            assertEquals("again", serialExecutor.submit(() -> "again").get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testShutdown() throws InterruptedException {
+        final ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            final SerialExecutor serialExecutor = new SerialExecutor(pool);
+            final CountDownLatch latch = new CountDownLatch(1);
+            serialExecutor.execute(() -> {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            });
+            serialExecutor.shutdown();
+            assertTrue(serialExecutor.isShutdown());
+            assertFalse(serialExecutor.isTerminated());
+            assertThrows(RejectedExecutionException.class, () -> serialExecutor.execute(() -> {}));
+            assertFalse(serialExecutor.awaitTermination(10, TimeUnit.MILLISECONDS));
+            latch.countDown();
+            assertTrue(serialExecutor.awaitTermination(5, TimeUnit.SECONDS));
+            assertTrue(serialExecutor.isTerminated());
+            // backing pool is still usable
+            assertFalse(pool.isShutdown());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import com.tagtraum.audioplayer4j.TestAudioPlayer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * TestSingleThreadedAudioInputStream.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestSingleThreadedAudioInputStream {
+
+    private static final AudioFormat CD = new AudioFormat(44100f, 16, 2, true, false);
+
+    @Test
+    public void testReadAll() throws Exception {
+        readAll(10 * 1024);
+    }
+
+    @Test
+    public void testReadAllWithBufferLargerThanRingBuffer() throws Exception {
+        // JavaPlayer reads with a 10s buffer
+        readAll(10 * CD.getFrameSize() * (int) CD.getFrameRate());
+    }
+
+    @Test
+    public void testReadAllWithTinyWatermarks() throws Exception {
+        readAll(10 * 1024, Duration.ZERO, Duration.ofMillis(1));
+    }
+
+    @Test
+    public void testReadAllOnSharedExecutor() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            readAll(10 * 1024, SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_LOW_WATERMARK,
+                SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_HIGH_WATERMARK, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testReadAllOnVirtualThreads() throws Exception {
+        assumeTrue(PlayerExecutors.isVirtualThreadsSupported(), "Virtual threads are not supported");
+        readAll(10 * 1024, SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_LOW_WATERMARK,
+            SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_HIGH_WATERMARK, PlayerExecutors.getVirtualDecoderExecutor());
+    }
+
+    @Test
+    public void testReadAllFromProbe() throws Exception {
+        final Path file = TestAudioPlayer.extractFile("test.wav");
+        final byte[] expected = readDirectly(file);
+        final ExtAudioSystem.Probe probe = ExtAudioSystem.probe(file.toUri().toURL());
+        try (final SingleThreadedAudioInputStream stream = new SingleThreadedAudioInputStream(probe, CD,
+            SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_LOW_WATERMARK,
+            SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_HIGH_WATERMARK, null)) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buf = new byte[10 * 1024];
+            int justRead;
+            while ((justRead = stream.read(buf)) >= 0) {
+                out.write(buf, 0, justRead);
+            }
+            assertArrayEquals(expected, out.toByteArray());
+        }
+    }
+
+    @Test
+    public void testReadAheadBeyondOneChunk() throws Exception {
+        final Path file = TestAudioPlayer.extractFile("test.wav");
+        final URL url = file.toUri().toURL();
+        try (final SingleThreadedAudioInputStream stream = new SingleThreadedAudioInputStream(url, CD,
+            Duration.ofMillis(500), Duration.ofSeconds(1))) {
+            final byte[] buf = new byte[10 * CD.getFrameSize() * (int) CD.getFrameRate()];
+            assertTrue(stream.read(buf) > 0);
+            // give the decoder time to read ahead up to the high watermark
+            Thread.sleep(500);
+            assertTrue(stream.read(buf) > 32 * 1024);
+        }
+    }
+
+    @Test
+    public void testInvalidWatermarks() throws Exception {
+        final URL url = TestAudioPlayer.extractFile("test.wav").toUri().toURL();
+        assertThrows(IllegalArgumentException.class, () -> new SingleThreadedAudioInputStream(url, CD,
+            Duration.ofSeconds(2), Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new SingleThreadedAudioInputStream(url, CD,
+            Duration.ofSeconds(-1), Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new SingleThreadedAudioInputStream(url, CD,
+            Duration.ZERO, Duration.ZERO));
+    }
+
+    private static void readAll(final int bufferSize) throws Exception {
+        readAll(bufferSize, SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_LOW_WATERMARK,
+            SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_HIGH_WATERMARK);
+    }
+
+    private static void readAll(final int bufferSize, final Duration lowWatermark, final Duration highWatermark) throws Exception {
+        readAll(bufferSize, lowWatermark, highWatermark, null);
+    }
+
+    private static void readAll(final int bufferSize, final Duration lowWatermark, final Duration highWatermark,
+                                final Executor executor) throws Exception {
+        final Path file = TestAudioPlayer.extractFile("test.wav");
+        final byte[] expected = readDirectly(file);
+        final URL url = file.toUri().toURL();
+        try (final SingleThreadedAudioInputStream stream = new SingleThreadedAudioInputStream(url, CD, lowWatermark, highWatermark, executor)) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buf = new byte[bufferSize];
+            int justRead;
+            while ((justRead = stream.read(buf)) >= 0) {
+                out.write(buf, 0, justRead);
+            }
+            assertArrayEquals(expected, out.toByteArray());
+            assertEquals(expected.length / CD.getFrameSize(), stream.getFrameNumber());
+        }
+    }
+
+    @Test
+    public void testReadUnread() throws Exception {
+        final Path file = TestAudioPlayer.extractFile("test.wav");
+        final byte[] expected = readDirectly(file);
+        final URL url = file.toUri().toURL();
+        try (final SingleThreadedAudioInputStream stream = new SingleThreadedAudioInputStream(url, CD)) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buf = new byte[10 * 1024];
+            int justRead;
+            while ((justRead = stream.read(buf)) >= 0) {
+                // pretend only the first half could be used
+                final int used = Math.max(CD.getFrameSize(), justRead / 2 - (justRead / 2) % CD.getFrameSize());
+                out.write(buf, 0, used);
+                stream.unread(buf, used, justRead - used);
+                assertEquals(out.size() / CD.getFrameSize(), stream.getFrameNumber());
+            }
+            assertArrayEquals(expected, out.toByteArray());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"test.wav", "test.aiff", "test.flac"})
+    public void testSkip(final String name) throws Exception {
+        final ExtAudioSystem.Probe probe = ExtAudioSystem.probe(TestAudioPlayer.extractFile(name).toUri().toURL());
+        final byte[] expected;
+        try (final SingleThreadedAudioInputStream stream = new SingleThreadedAudioInputStream(probe, CD,
+            SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_LOW_WATERMARK,
+            SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_HIGH_WATERMARK, null)) {
+            expected = readRemaining(stream);
+        }
+        try (final SingleThreadedAudioInputStream stream = new SingleThreadedAudioInputStream(probe, CD,
+            SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_LOW_WATERMARK,
+            SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_HIGH_WATERMARK, null)) {
+            final byte[] buf = new byte[10 * 1024];
+            final int justRead = stream.read(buf);
+            // part of the last read is pushed back and skipped with the buffered audio and beyond
+            stream.unread(buf, justRead / 2, justRead / 2);
+            final long from = stream.getFrameNumber();
+            assertEquals(60000, stream.skip(60000));
+            assertEquals(from + 60000, stream.getFrameNumber());
+            final byte[] actual = readRemaining(stream);
+            assertArrayEquals(Arrays.copyOfRange(expected, (int) (from + 60000) * CD.getFrameSize(), expected.length), actual);
+            // nothing left
+            assertEquals(0, stream.skip(1000));
+        }
+        try (final SingleThreadedAudioInputStream stream = new SingleThreadedAudioInputStream(probe, CD,
+            SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_LOW_WATERMARK,
+            SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_HIGH_WATERMARK, null)) {
+            // beyond the end
+            assertEquals(expected.length / CD.getFrameSize(), stream.skip(expected.length));
+            assertEquals(-1, stream.read(new byte[1024]));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"test.aiff", "test.flac", "test.mp3"})
+    public void testRestart(final String name) throws Exception {
+        final ExtAudioSystem.Probe probe = ExtAudioSystem.probe(TestAudioPlayer.extractFile(name).toUri().toURL());
+        final byte[] expected;
+        try (final SingleThreadedAudioInputStream stream = new SingleThreadedAudioInputStream(probe, CD,
+            SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_LOW_WATERMARK,
+            SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_HIGH_WATERMARK, null)) {
+            expected = readRemaining(stream);
+        }
+        try (final SingleThreadedAudioInputStream stream = new SingleThreadedAudioInputStream(probe, CD,
+            SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_LOW_WATERMARK,
+            SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_HIGH_WATERMARK, null)) {
+            assertTrue(stream.read(new byte[10 * 1024]) > 0);
+            if (stream.isSeekable()) {
+                // depending on the installed providers, the stream may seek instead, then it's not indexed
+                assertTrue(stream.getSeekIndex().isDone());
+                assertNull(stream.getSeekIndex().get());
+                assertEquals(AudioSystem.NOT_SPECIFIED, stream.restart(50000));
+                return;
+            }
+            // the first request starts building the index in the background
+            assertNotNull(stream.getSeekIndex().get(10, TimeUnit.SECONDS));
+            final long frame = stream.restart(50000);
+            assertTrue(frame > 0 && frame <= 50000, "Unexpected restart frame: " + frame);
+            assertEquals(frame, stream.getFrameNumber());
+            final byte[] actual = readRemaining(stream);
+            // audio before the target frame may be pre-roll, e.g. for MPEG
+            final int target = 50000 * CD.getFrameSize();
+            final int preroll = target - (int) frame * CD.getFrameSize();
+            assertArrayEquals(Arrays.copyOfRange(expected, target, expected.length),
+                Arrays.copyOfRange(actual, preroll, actual.length));
+        }
+    }
+
+    @Test
+    public void testQueueTimeout() throws Exception {
+        final ExtAudioSystem.Probe probe = ExtAudioSystem.probe(TestAudioPlayer.extractFile("test.aiff").toUri().toURL());
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final CountDownLatch release = new CountDownLatch(1);
+        try (final SingleThreadedAudioInputStream stream = new SingleThreadedAudioInputStream(probe, CD,
+            SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_LOW_WATERMARK,
+            SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_HIGH_WATERMARK, executor)) {
+            assertTrue(stream.read(new byte[10 * 1024]) > 0);
+            assertNotNull(stream.getSeekIndex().get(10, TimeUnit.SECONDS));
+            final long frameNumber = stream.getFrameNumber();
+            stream.setQueueTimeout(Duration.ofMillis(200));
+            // the decoder is stuck, e.g. on slow I/O
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            final long start = System.nanoTime();
+            assertThrows(IOException.class, () -> stream.skip(60000));
+            assertThrows(IOException.class, () -> stream.restart(50000));
+            // well before the tasks' own timeouts
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4));
+
+            // the cancelled tasks never run
+            release.countDown();
+            assertTrue(stream.read(new byte[10 * 1024]) > 0);
+            assertTrue(stream.getFrameNumber() > frameNumber && stream.getFrameNumber() < 60000);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"test.wav", "test.aiff"})
+    public void testMapped(final String name) throws Exception {
+        final Path file = TestAudioPlayer.extractFile(name);
+        final byte[] pcm;
+        final AudioFormat format;
+        try (final AudioInputStream in = AudioSystem.getAudioInputStream(file.toFile())) {
+            format = in.getFormat();
+            pcm = in.readAllBytes();
+        }
+        final int frameSize = format.getFrameSize();
+        // the file's own format needs no conversion and is read from the mapped file
+        try (final SingleThreadedAudioInputStream stream = new SingleThreadedAudioInputStream(file.toUri().toURL(), format)) {
+            assertTrue(stream.isSeekable());
+            assertEquals(AudioSystem.NOT_SPECIFIED, stream.restart(1000));
+            assertArrayEquals(pcm, readRemaining(stream));
+            assertEquals(pcm.length / frameSize, stream.getFrameNumber());
+
+            stream.seek(Duration.ofSeconds(1));
+            assertEquals(44100, stream.getFrameNumber());
+            final byte[] buf = new byte[10 * 1024];
+            assertEquals(buf.length, stream.read(buf));
+            assertArrayEquals(Arrays.copyOfRange(pcm, 44100 * frameSize, 44100 * frameSize + buf.length), buf);
+            stream.unread(buf, buf.length / 2, buf.length / 2);
+            assertEquals(1000, stream.skip(1000));
+            final long frame = 44100 + buf.length / 2 / frameSize + 1000;
+            assertEquals(frame, stream.getFrameNumber());
+            assertArrayEquals(Arrays.copyOfRange(pcm, (int) frame * frameSize, pcm.length), readRemaining(stream));
+            assertEquals(0, stream.skip(1000));
+        }
+    }
+
+    private static byte[] readRemaining(final SingleThreadedAudioInputStream stream) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buf = new byte[10 * 1024];
+        int justRead;
+        while ((justRead = stream.read(buf)) >= 0) {
+            out.write(buf, 0, justRead);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] readDirectly(final Path file) throws Exception {
+        try (final AudioInputStream in = AudioSystem.getAudioInputStream(file.toFile())) {
+            assertTrue(in.getFormat().matches(CD), "Unexpected test file format: " + in.getFormat());
+            return in.readAllBytes();
+        }
+    }
+}
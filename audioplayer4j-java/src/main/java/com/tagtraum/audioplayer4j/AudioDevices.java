@@ -13,9 +13,13 @@ import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.Line;
 import javax.sound.sampled.Mixer;
 import javax.sound.sampled.SourceDataLine;
-import javax.swing.Timer;
-import javax.swing.*;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -27,14 +31,11 @@ import java.util.logging.Logger;
 public class AudioDevices {
 
     private static final Logger LOG = Logger.getLogger(AudioDevices.class.getName());
-    private static final Timer timer;
+    private static final long WATCH_INTERVAL_MS = 10000;
     private static AudioDevice[] audioDevices = new AudioDevice[0];
-    private static final List<AudioDevicesListener> listeners = new ArrayList<>();
-
-    static {
-        timer = new Timer(10000, e -> new Thread(AudioDevices::getAudioDevices).start());
-        timer.setRepeats(true);
-    }
+    private static final List<AudioDevicesListener> listeners = new CopyOnWriteArrayList<>();
+    private static volatile Executor eventExecutor = EventExecutors.edt();
+    private static ScheduledFuture<?> watcher;
 
     private AudioDevices() {
     }
@@ -82,7 +83,7 @@ public class AudioDevices {
 
     /**
      * Add a listener.
-     * Note that notifications aren't instantaneous and happen on the EDT.
+     * Note that notifications aren't instantaneous and, by default, happen on the EDT.
      *
      * @param listener listener
      */
@@ -111,18 +112,43 @@ public class AudioDevices {
                 listener.deviceChanged(oldDevices, currentDevices);
             }
         };
-        if (SwingUtilities.isEventDispatchThread()) r.run();
-        else SwingUtilities.invokeLater(r);
+        eventExecutor.execute(r);
+    }
+
+    /**
+     * Executor used to notify {@link AudioDevicesListener}s.
+     *
+     * @return executor
+     * @see EventExecutors
+     */
+    public static Executor getEventExecutor() {
+        return eventExecutor;
+    }
+
+    /**
+     * Sets the executor used to notify {@link AudioDevicesListener}s.
+     *
+     * @param eventExecutor executor, {@code null} for the EDT
+     * @see EventExecutors
+     */
+    public static void setEventExecutor(final Executor eventExecutor) {
+        AudioDevices.eventExecutor = eventExecutor == null ? EventExecutors.edt() : eventExecutor;
     }
 
-    private static void startAudioDeviceObserver() {
-        timer.start();
+    private static synchronized void startAudioDeviceObserver() {
+        if (watcher == null) {
+            watcher = WatcherHolder.EXECUTOR.scheduleWithFixedDelay(AudioDevices::getAudioDevices,
+                WATCH_INTERVAL_MS, WATCH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
         // initialize
         getAudioDevices();
     }
 
-    private static void stopAudioDeviceObserver() {
-        timer.stop();
+    private static synchronized void stopAudioDeviceObserver() {
+        if (watcher != null) {
+            watcher.cancel(false);
+            watcher = null;
+        }
     }
 
     /**
@@ -130,7 +156,15 @@ public class AudioDevices {
      *
      * @return true, if the system is watching for changes
      */
-    public static boolean isWatching() {
-        return timer.isRunning();
+    public static synchronized boolean isWatching() {
+        return watcher != null;
+    }
+
+    private static class WatcherHolder {
+        private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(r, "Audio Device Watcher Thread");
+            t.setDaemon(true);
+            return t;
+        });
     }
 }
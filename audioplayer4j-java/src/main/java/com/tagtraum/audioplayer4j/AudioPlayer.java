@@ -11,6 +11,9 @@ import java.beans.PropertyChangeListener;
 import java.io.IOException;
 import java.net.URI;
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Audio player.<br>
@@ -24,6 +27,9 @@ import java.time.Duration;
  * via {@link AudioPlayerFactory#open(URI)}.
  * The player's state may be observed via {@link PropertyChangeListener}s,
  * the played resource via an {@link AudioPlayerListener}.
+ * To consume all events with backpressure, use a {@link PlayerEventPublisher}.
+ * Events are delivered on the Swing EDT, unless a different
+ * {@link #setEventExecutor(Executor) event executor} is set.
  *
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  */
@@ -50,6 +56,37 @@ public interface AudioPlayer extends AutoCloseable {
      */
     void open(URI uri) throws UnsupportedAudioFileException, IOException;
 
+    /**
+     * Opens the audio resource with the given URI on the given executor,
+     * so that the caller is not blocked while the resource is probed and
+     * playback is prepared. Don't call any other methods of this player,
+     * before the returned future is complete.
+     *
+     * @param uri audio resource URI
+     * @param executor executor to open the resource on, {@code null} for a default executor
+     * @return future that completes with this player, once the resource is open,
+     *  or exceptionally with the exception thrown by {@link #open(URI)}
+     * @see AudioPlayerFactory#openAsync(URI, AudioDevice, Executor)
+     */
+    default CompletableFuture<AudioPlayer> openAsync(final URI uri, final Executor executor) {
+        final CompletableFuture<AudioPlayer> future = new CompletableFuture<>();
+        try {
+            (executor == null ? AudioPlayerFactory.getOpenExecutor() : executor).execute(() -> {
+                // cancelled before we even started?
+                if (future.isDone()) return;
+                try {
+                    open(uri);
+                    future.complete(this);
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     /**
      * URI of the audio resource to be played. May be {@code null}.
      *
@@ -81,6 +118,22 @@ public interface AudioPlayer extends AutoCloseable {
         return audioPlayer;
     }
 
+    /**
+     * Prepares playback of the loaded resource while paused, e.g. by decoding
+     * ahead and pre-filling output buffers, so that a subsequent {@link #play()}
+     * starts with minimal latency. Does not start playback.
+     * <p>
+     * The player stays prepared until the loaded resource is played,
+     * i.e. after seeking while paused, output buffers are filled again.
+     * Implementations that cannot prepare playback return a completed future.
+     *
+     * @return future that completes, once the player is prepared
+     * @throws IllegalStateException if no resource is loaded
+     */
+    default CompletableFuture<Void> prepare() throws IllegalStateException {
+        return CompletableFuture.completedFuture(null);
+    }
+
     /**
      * Pause playback of the loaded resource.
      *
@@ -114,6 +167,38 @@ public interface AudioPlayer extends AutoCloseable {
      */
     void reset();
 
+    /**
+     * Appends a resource to the queue of resources that are played,
+     * once the loaded resource has ended. Implementations may prepare
+     * the next resource while the current one is still playing,
+     * so that there is no gap between them.
+     * <p>
+     * Queued resources are played in order. When a queued resource is
+     * started, {@link #getURI()} changes accordingly.
+     * {@link #close()} clears the queue.
+     *
+     * @param uri audio resource URI
+     * @throws NullPointerException if uri is {@code null}
+     * @throws UnsupportedAudioFileException if the URI does not describe
+     *  a playable audio resource
+     * @throws IOException if the URI cannot be accessed due to IO problems
+     * @throws UnsupportedOperationException if this player does not support a queue
+     * @see #clearQueue()
+     */
+    default void enqueue(final URI uri) throws UnsupportedAudioFileException, IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support a queue.");
+    }
+
+    /**
+     * Removes all resources from the queue.
+     * Does not affect the loaded resource.
+     *
+     * @see #enqueue(URI)
+     */
+    default void clearQueue() {
+        // nothing to clear
+    }
+
     /**
      * Get current time.
      *
@@ -287,6 +372,52 @@ public interface AudioPlayer extends AutoCloseable {
      */
     void removePropertyChangeListener(String propertyName, PropertyChangeListener propertyChangeListener);
 
+    /**
+     * Add a {@link PositionListener}, which is called whenever the position changes.
+     * Adding the same listener twice has no effect.
+     * <p>
+     * The default implementation does nothing, i.e. players that don't support
+     * position listeners never call them. Use {@code time} property change events instead.
+     *
+     * @param listener listener
+     */
+    default void addPositionListener(final PositionListener listener) {
+    }
+
+    /**
+     * Remove a {@link PositionListener}.
+     *
+     * @param listener listener
+     */
+    default void removePositionListener(final PositionListener listener) {
+    }
+
+    /**
+     * Executor used for delivering property change and {@link AudioPlayerListener}
+     * events. By default, events are delivered on the Swing EDT.
+     *
+     * @return executor
+     * @see EventExecutors
+     */
+    default Executor getEventExecutor() {
+        return EventExecutors.edt();
+    }
+
+    /**
+     * Sets the executor used for delivering property change and
+     * {@link AudioPlayerListener} events, e.g. {@link EventExecutors#direct()}
+     * for players that are not tied to a Swing UI.
+     *
+     * @param executor executor, {@code null} for the EDT
+     * @throws UnsupportedOperationException if the player does not support other executors
+     * @see EventExecutors
+     */
+    default void setEventExecutor(final Executor executor) {
+        if (executor != null && executor != EventExecutors.edt()) {
+            throw new UnsupportedOperationException("Events are always delivered on the EDT");
+        }
+    }
+
     /**
      * Add an {@link AudioPlayerListener}.
      *
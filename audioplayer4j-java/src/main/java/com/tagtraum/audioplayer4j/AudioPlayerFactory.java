@@ -14,6 +14,22 @@ import javax.sound.sampled.UnsupportedAudioFileException;
 import java.io.IOException;
 import java.lang.ref.Cleaner;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,11 +37,22 @@ import java.util.logging.Logger;
  * Factory for {@link AudioPlayer} instances.
  * To get an instance, use {@link AudioPlayerFactory#open(URI)} or,
  * if playback on a specific {@link AudioDevice} is desired,
- * use {@link AudioPlayerFactory#open(URI, AudioDevice)}.<br>
+ * use {@link AudioPlayerFactory#open(URI, AudioDevice)}.
+ * To open players without blocking the calling thread, use
+ * {@link #openAsync(URI, AudioDevice, java.util.concurrent.Executor)}.<br>
  * 
  * You may disable certain implementations by calling
  * {@link #setJavaEnabled(boolean)}, {@link #setJavaFXEnabled(boolean)},
- * or {@link #setNativeEnabled(boolean)}.
+ * or {@link #setNativeEnabled(boolean)}.<br>
+ *
+ * If you keep many players open at the same time, consider
+ * {@link #setSharedThreadsEnabled(boolean) sharing threads} among them
+ * or, on Java 21 or later, {@link #setVirtualThreadsEnabled(boolean) using virtual threads}.
+ * Headless applications may want to {@link #setEventExecutor(Executor) deliver events}
+ * without the Swing EDT.<br>
+ *
+ * The factory remembers which implementation succeeded for which kind of
+ * resource and tries it first next time, see {@link #getKnownGoodBackends()}.
  *
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  */
@@ -34,11 +61,17 @@ public class AudioPlayerFactory {
     private static final Logger LOG = Logger.getLogger(AudioPlayerFactory.class.getName());
     private static final boolean MAC = System.getProperty("os.name").toLowerCase().contains("mac");
     private static final Cleaner CLEANER = Cleaner.create();
+    private static final Map<String, Backend> GOOD_BACKENDS = new ConcurrentHashMap<>();
+    // sets are never modified once they are in the map
+    private static final Map<String, Set<Backend>> BAD_BACKENDS = new ConcurrentHashMap<>();
     private static Boolean JAVA_FX;
 
     private static boolean nativeEnabled = true;
     private static boolean javaEnabled = true;
     private static boolean javaFXEnabled = true;
+    private static boolean sharedThreadsEnabled = false;
+    private static boolean virtualThreadsEnabled = false;
+    private static volatile Executor eventExecutor = EventExecutors.edt();
 
     private AudioPlayerFactory() {
     }
@@ -97,6 +130,73 @@ public class AudioPlayerFactory {
         AudioPlayerFactory.javaFXEnabled = javaFXEnabled;
     }
 
+    /**
+     * Indicates whether Java-based players share decoding and playback threads.
+     *
+     * @return true or false
+     */
+    public static boolean isSharedThreadsEnabled() {
+        return sharedThreadsEnabled;
+    }
+
+    /**
+     * Lets Java-based players created from now on share a pool of decoding threads
+     * sized to the number of available cores and a pool of playback threads,
+     * instead of using dedicated threads per player and per opened stream.
+     * Paused players don't hold a playback thread, but each playing player does,
+     * so the number of playback threads grows with the number of players playing at the same time
+     * (see {@link com.tagtraum.audioplayer4j.java.JavaPlayer.Threading#SHARED}).
+     *
+     * @param sharedThreadsEnabled true or false
+     */
+    public static void setSharedThreadsEnabled(final boolean sharedThreadsEnabled) {
+        AudioPlayerFactory.sharedThreadsEnabled = sharedThreadsEnabled;
+    }
+
+    /**
+     * Indicates whether Java-based players use virtual threads.
+     *
+     * @return true or false
+     */
+    public static boolean isVirtualThreadsEnabled() {
+        return virtualThreadsEnabled;
+    }
+
+    /**
+     * Lets Java-based players created from now on use virtual threads for
+     * decoding and playback, so that paused players don't tie up platform threads.
+     * Takes precedence over {@link #setSharedThreadsEnabled(boolean)}.
+     * Virtual threads require Java 21 or later. On older runtimes,
+     * shared threads are used instead.
+     *
+     * @param virtualThreadsEnabled true or false
+     */
+    public static void setVirtualThreadsEnabled(final boolean virtualThreadsEnabled) {
+        AudioPlayerFactory.virtualThreadsEnabled = virtualThreadsEnabled;
+    }
+
+    /**
+     * Executor used by players created from now on to deliver events.
+     *
+     * @return executor
+     * @see EventExecutors
+     */
+    public static Executor getEventExecutor() {
+        return eventExecutor;
+    }
+
+    /**
+     * Lets players created from now on deliver their events via the given executor,
+     * instead of the Swing EDT. Headless applications may want to use
+     * {@link EventExecutors#direct()} to avoid starting AWT.
+     *
+     * @param eventExecutor executor, {@code null} for the EDT
+     * @see AudioPlayer#setEventExecutor(Executor)
+     */
+    public static void setEventExecutor(final Executor eventExecutor) {
+        AudioPlayerFactory.eventExecutor = eventExecutor == null ? EventExecutors.edt() : eventExecutor;
+    }
+
     /**
      * Opens an {@link AudioPlayer} instance suitable for the given URI using
      * the default audio device for playback.
@@ -121,50 +221,29 @@ public class AudioPlayerFactory {
      * @see #open(URI)
      */
     public static AudioPlayer open(final URI uri, final AudioDevice audioDevice) throws IOException, UnsupportedAudioFileException {
+        final String signature = getSignature(uri);
+        final List<Backend> failedBackends = new ArrayList<>();
         Exception lastException = null;
 
-        // prefer AVFoundationPlayer on macOS, because it probably
-        // uses the least system resources
-        if (MAC && isNativeEnabled()) {
-            try {
-                final AudioPlayer audioPlayer = new AVFoundationPlayer(CLEANER);
-                if (audioDevice != null) {
-                    audioPlayer.setAudioDevice(audioDevice);
-                }
-                audioPlayer.open(uri);
-                return audioPlayer;
-            } catch (Exception e) {
-                LOG.log(Level.INFO, "Failed to open with " + AVFoundationPlayer.class.getSimpleName() + ": " + uri, e);
-                lastException = e;
-            }
-        }
-
-        // Java is always available, but can it play the desired resource?
-        if (isJavaEnabled()) {
+        for (final Backend backend : getBackends(signature)) {
+            // checked lazily, because checking for JavaFX is expensive
+            if (!backend.isEnabled()) continue;
             try {
-                final AudioPlayer audioPlayer = new JavaPlayer(CLEANER);
-                if (audioDevice != null) {
-                    audioPlayer.setAudioDevice(audioDevice);
+                final AudioPlayer audioPlayer = backend.create();
+                if (eventExecutor != EventExecutors.edt()) {
+                    audioPlayer.setEventExecutor(eventExecutor);
                 }
-                audioPlayer.open(uri);
-                return audioPlayer;
-            } catch (Exception e) {
-                LOG.log(Level.INFO, "Failed to open with " + JavaPlayer.class.getSimpleName() + ": " + uri, e);
-                lastException = e;
-            }
-        }
-
-        // last fallback, if JavaFX is available
-        if (isJavaFXEnabled() && isJavaFXAvailable()) {
-            try {
-                final AudioPlayer audioPlayer = new JavaFXPlayer();
                 if (audioDevice != null) {
                     audioPlayer.setAudioDevice(audioDevice);
                 }
                 audioPlayer.open(uri);
+                rememberBackends(signature, backend, failedBackends);
                 return audioPlayer;
             } catch (Exception e) {
-                LOG.log(Level.INFO, "Failed to open with " + JavaFXPlayer.class.getSimpleName() + ": " + uri, e);
+                final String message = "Failed to open with " + backend.getPlayerClass().getSimpleName() + ": " + uri;
+                if (LOG.isLoggable(Level.FINE)) LOG.log(Level.FINE, message, e);
+                else LOG.info(message + " (" + e + ")");
+                failedBackends.add(backend);
                 lastException = e;
             }
         }
@@ -177,6 +256,163 @@ public class AudioPlayerFactory {
         return null;
     }
 
+    /**
+     * Opens an {@link AudioPlayer} instance suitable for the given URI using
+     * the default audio device for playback, without blocking the caller.
+     *
+     * @param uri audio resource URI
+     * @return future audio player instance
+     * @see #openAsync(URI, AudioDevice, Executor)
+     */
+    public static CompletableFuture<AudioPlayer> openAsync(final URI uri) {
+        return openAsync(uri, null, null);
+    }
+
+    /**
+     * Opens an {@link AudioPlayer} instance suitable for the given URI using
+     * the given audio device for playback, without blocking the caller.
+     * Probing the resource, acquiring a line and starting the decoder all
+     * happen on the given executor.
+     * <p>
+     * If the returned future is cancelled after the player was opened,
+     * the player is closed.
+     *
+     * @param uri audio resource URI
+     * @param audioDevice desired audio device, {@code null} for the default device
+     * @param executor executor to open the player on, {@code null} for a default
+     *                 executor, which uses daemon threads
+     * @return future that completes with the audio player instance (or {@code null},
+     *  if all implementations are disabled) or exceptionally with the exception
+     *  thrown by {@link #open(URI, AudioDevice)}
+     * @see #open(URI, AudioDevice)
+     */
+    public static CompletableFuture<AudioPlayer> openAsync(final URI uri, final AudioDevice audioDevice, final Executor executor) {
+        final CompletableFuture<AudioPlayer> future = new CompletableFuture<>();
+        try {
+            (executor == null ? getOpenExecutor() : executor).execute(() -> {
+                // cancelled before we even started?
+                if (future.isDone()) return;
+                try {
+                    final AudioPlayer audioPlayer = open(uri, audioDevice);
+                    if (!future.complete(audioPlayer) && audioPlayer != null) {
+                        // nobody is going to close it
+                        audioPlayer.close();
+                    }
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Default executor for opening players asynchronously.
+     *
+     * @return executor
+     */
+    static Executor getOpenExecutor() {
+        return OpenerHolder.EXECUTOR;
+    }
+
+    /**
+     * Backends that successfully opened resources with a given signature.
+     * Signatures consist of the URI scheme and the lowercase file extension,
+     * e.g. {@code file:mp3}.
+     * {@link #open(URI, AudioDevice)} tries the known-good backend first.
+     *
+     * @return unmodifiable snapshot, mapping signatures to player classes
+     * @see #resetBackendMemo()
+     */
+    public static Map<String, Class<? extends AudioPlayer>> getKnownGoodBackends() {
+        final Map<String, Class<? extends AudioPlayer>> knownGood = new TreeMap<>();
+        GOOD_BACKENDS.forEach((signature, backend) -> knownGood.put(signature, backend.getPlayerClass()));
+        return Collections.unmodifiableMap(knownGood);
+    }
+
+    /**
+     * Backends that failed to open resources with a given signature,
+     * while another backend succeeded. {@link #open(URI, AudioDevice)} tries
+     * known-bad backends last.
+     *
+     * @return unmodifiable snapshot, mapping signatures to player classes
+     * @see #getKnownGoodBackends()
+     * @see #resetBackendMemo()
+     */
+    public static Map<String, Set<Class<? extends AudioPlayer>>> getKnownBadBackends() {
+        final Map<String, Set<Class<? extends AudioPlayer>>> knownBad = new TreeMap<>();
+        BAD_BACKENDS.forEach((signature, backends) -> {
+            final Set<Class<? extends AudioPlayer>> classes = new LinkedHashSet<>();
+            for (final Backend backend : backends) {
+                classes.add(backend.getPlayerClass());
+            }
+            knownBad.put(signature, Collections.unmodifiableSet(classes));
+        });
+        return Collections.unmodifiableMap(knownBad);
+    }
+
+    /**
+     * Forgets which backends succeeded or failed, e.g. after installing
+     * additional codecs.
+     *
+     * @see #getKnownGoodBackends()
+     * @see #getKnownBadBackends()
+     */
+    public static void resetBackendMemo() {
+        GOOD_BACKENDS.clear();
+        BAD_BACKENDS.clear();
+    }
+
+    /**
+     * Backends in the order in which they should be tried.
+     * By default, native comes first, because it probably uses the least system
+     * resources, then Java, which is always available, and JavaFX as last resort.
+     *
+     * @param signature signature
+     * @return backends
+     */
+    private static List<Backend> getBackends(final String signature) {
+        final Backend good = GOOD_BACKENDS.get(signature);
+        final Set<Backend> bad = BAD_BACKENDS.getOrDefault(signature, EnumSet.noneOf(Backend.class));
+        final List<Backend> backends = new ArrayList<>();
+        if (good != null) backends.add(good);
+        for (final Backend backend : Backend.values()) {
+            if (backend != good && !bad.contains(backend)) backends.add(backend);
+        }
+        // still try backends that failed before, they may have failed because of a particular resource
+        for (final Backend backend : bad) {
+            if (backend != good) backends.add(backend);
+        }
+        return backends;
+    }
+
+    private static void rememberBackends(final String signature, final Backend good, final List<Backend> failed) {
+        GOOD_BACKENDS.put(signature, good);
+        // failures only count, if they were not caused by the resource itself
+        BAD_BACKENDS.compute(signature, (s, oldBad) -> {
+            final Set<Backend> bad = oldBad == null ? EnumSet.noneOf(Backend.class) : EnumSet.copyOf(oldBad);
+            bad.remove(good);
+            bad.addAll(failed);
+            return bad.isEmpty() ? null : bad;
+        });
+    }
+
+    private static String getSignature(final URI uri) {
+        final String path = uri.getPath() == null ? uri.getSchemeSpecificPart() : uri.getPath();
+        final int slash = path == null ? -1 : path.lastIndexOf('/');
+        final int dot = path == null ? -1 : path.lastIndexOf('.');
+        final String extension = dot > slash ? path.substring(dot + 1).toLowerCase() : "";
+        return uri.getScheme() + ":" + extension;
+    }
+
+    private static JavaPlayer.Threading getJavaPlayerThreading() {
+        if (isVirtualThreadsEnabled()) return JavaPlayer.Threading.VIRTUAL;
+        if (isSharedThreadsEnabled()) return JavaPlayer.Threading.SHARED;
+        return JavaPlayer.Threading.DEDICATED;
+    }
+
     /**
      * Test, if the JavaFX MediaPlayer is available.
      *
@@ -197,4 +433,66 @@ public class AudioPlayerFactory {
         return JAVA_FX;
     }
 
+    private static class OpenerHolder {
+        private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger id = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread t = new Thread(r, "Audio Player Opener Thread " + id.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    private enum Backend {
+        NATIVE(AVFoundationPlayer.class) {
+            @Override
+            boolean isEnabled() {
+                return MAC && isNativeEnabled();
+            }
+
+            @Override
+            AudioPlayer create() {
+                return new AVFoundationPlayer(CLEANER);
+            }
+        },
+        JAVA(JavaPlayer.class) {
+            @Override
+            boolean isEnabled() {
+                return isJavaEnabled();
+            }
+
+            @Override
+            AudioPlayer create() {
+                return new JavaPlayer(CLEANER, getJavaPlayerThreading());
+            }
+        },
+        JAVA_FX(JavaFXPlayer.class) {
+            @Override
+            boolean isEnabled() {
+                return isJavaFXEnabled() && isJavaFXAvailable();
+            }
+
+            @Override
+            AudioPlayer create() {
+                return new JavaFXPlayer();
+            }
+        };
+
+        private final Class<? extends AudioPlayer> playerClass;
+
+        Backend(final Class<? extends AudioPlayer> playerClass) {
+            this.playerClass = playerClass;
+        }
+
+        Class<? extends AudioPlayer> getPlayerClass() {
+            return playerClass;
+        }
+
+        abstract boolean isEnabled();
+
+        abstract AudioPlayer create() throws Exception;
+    }
 }
@@ -9,7 +9,7 @@ package com.tagtraum.audioplayer4j;
 import java.net.URI;
 
 /**
- * Listener for {@link AudioPlayer} start and finish events.
+ * Listener for {@link AudioPlayer} start, finish and failure events.
  *
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  */
@@ -35,4 +35,17 @@ public interface AudioPlayerListener {
      */
     void finished(AudioPlayer audioPlayer, URI uri, boolean endOfMedia);
 
+    /**
+     * Playback of an audio resource failed, e.g. because the resource
+     * could not be read or a queued resource could not be opened.
+     * Errors thrown by methods like {@link AudioPlayer#open(URI)} are not reported
+     * here, but thrown to the caller. Not all players report failures.
+     *
+     * @param audioPlayer player that plays the resource
+     * @param uri         URI describing the audio resource
+     * @param exception   what went wrong
+     */
+    default void failed(final AudioPlayer audioPlayer, final URI uri, final Exception exception) {
+    }
+
 }
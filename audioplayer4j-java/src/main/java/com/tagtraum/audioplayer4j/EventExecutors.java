@@ -0,0 +1,78 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j;
+
+import javax.swing.*;
+import java.util.concurrent.Executor;
+
+/**
+ * Executors for delivering {@link AudioPlayer} and {@link AudioDevices} events.
+ * <p>
+ * By default, events are delivered on the Swing event dispatch thread (EDT),
+ * which is what Swing UIs expect. Applications without UI, e.g. servers with
+ * many players, may want to avoid starting AWT and sharing a single event queue
+ * among all players. They can use {@link #direct()} or any other executor.
+ * To preserve the order of events, the executor should run tasks in the order
+ * in which they were submitted, e.g. a single threaded executor.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see AudioPlayer#setEventExecutor(Executor)
+ * @see AudioPlayerFactory#setEventExecutor(Executor)
+ * @see AudioDevices#setEventExecutor(Executor)
+ */
+public final class EventExecutors {
+
+    private static final Executor EDT = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            if (SwingUtilities.isEventDispatchThread()) command.run();
+            else SwingUtilities.invokeLater(command);
+        }
+
+        @Override
+        public String toString() {
+            return "EventExecutors.edt()";
+        }
+    };
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public String toString() {
+            return "EventExecutors.direct()";
+        }
+    };
+
+    private EventExecutors() {
+    }
+
+    /**
+     * Delivers events on the Swing event dispatch thread.
+     * Events that occur on the EDT are delivered right away.
+     * This is the default.
+     *
+     * @return executor
+     */
+    public static Executor edt() {
+        return EDT;
+    }
+
+    /**
+     * Delivers events right away on whatever thread they occur on,
+     * e.g. a playback thread. Listeners must therefore return quickly and
+     * must not call back into the player in ways that block.
+     *
+     * @return executor
+     */
+    public static Executor direct() {
+        return DIRECT;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeSupport;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link PropertyChangeSupport} that delivers events via an {@link Executor},
+ * similar to {@link javax.swing.event.SwingPropertyChangeSupport}, which
+ * always delivers on the EDT.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see EventExecutors
+ */
+public class ExecutorPropertyChangeSupport extends PropertyChangeSupport {
+
+    private static final long serialVersionUID = 1L;
+    private transient volatile Executor executor;
+
+    /**
+     * Creates a support object that delivers events on the EDT.
+     *
+     * @param sourceBean the bean to be given as the source for any events
+     */
+    public ExecutorPropertyChangeSupport(final Object sourceBean) {
+        this(sourceBean, EventExecutors.edt());
+    }
+
+    /**
+     * Creates a support object that delivers events via the given executor.
+     *
+     * @param sourceBean the bean to be given as the source for any events
+     * @param executor executor
+     */
+    public ExecutorPropertyChangeSupport(final Object sourceBean, final Executor executor) {
+        super(sourceBean);
+        this.executor = Objects.requireNonNull(executor, "executor must not be null");
+    }
+
+    /**
+     * Executor used for delivering events.
+     *
+     * @return executor
+     */
+    public Executor getExecutor() {
+        final Executor executor = this.executor;
+        // not serialized
+        return executor == null ? EventExecutors.edt() : executor;
+    }
+
+    /**
+     * Sets the executor used for delivering events.
+     *
+     * @param executor executor
+     */
+    public void setExecutor(final Executor executor) {
+        this.executor = Objects.requireNonNull(executor, "executor must not be null");
+    }
+
+    @Override
+    public void firePropertyChange(final PropertyChangeEvent event) {
+        // don't bother the executor, if nobody is listening, e.g. to frequent "time" events
+        if (!hasListeners(event.getPropertyName())) return;
+        getExecutor().execute(() -> super.firePropertyChange(event));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j;
+
+import java.net.URI;
+import java.util.Objects;
+
+/**
+ * Event published by a {@link PlayerEventPublisher}.
+ * Combines the property change and {@link AudioPlayerListener} events of an
+ * {@link AudioPlayer} in a single type.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public final class PlayerEvent {
+
+    /**
+     * Kind of event.
+     */
+    public enum Type {
+        /** The {@code "time"} property changed, {@link #getValue()} is a {@link java.time.Duration}. */
+        TIME,
+        /** The {@code "paused"} property changed, {@link #getValue()} is a {@link Boolean}. */
+        PAUSED,
+        /** The {@code "uri"} property changed, {@link #getValue()} is a {@link URI}. */
+        URI,
+        /** The {@code "duration"} property changed, {@link #getValue()} is a {@link java.time.Duration}. */
+        DURATION,
+        /** Playback of {@link #getURI()} started. */
+        STARTED,
+        /** Playback of {@link #getURI()} finished, see {@link #isEndOfMedia()}. */
+        FINISHED,
+        /** Playback of {@link #getURI()} failed, {@link #getValue()} is an {@link Exception}. */
+        ERROR
+    }
+
+    private final AudioPlayer source;
+    private final Type type;
+    private final java.net.URI uri;
+    private final Object value;
+    private final boolean endOfMedia;
+
+    PlayerEvent(final AudioPlayer source, final Type type, final java.net.URI uri, final Object value, final boolean endOfMedia) {
+        this.source = Objects.requireNonNull(source, "source must not be null");
+        this.type = Objects.requireNonNull(type, "type must not be null");
+        this.uri = uri;
+        this.value = value;
+        this.endOfMedia = endOfMedia;
+    }
+
+    /**
+     * Player the event occurred in.
+     *
+     * @return player
+     */
+    public AudioPlayer getSource() {
+        return source;
+    }
+
+    /**
+     * Kind of event.
+     *
+     * @return type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Resource the event refers to. For property changes, this is the
+     * player's URI at the time the event was published.
+     *
+     * @return URI, may be {@code null}
+     */
+    public java.net.URI getURI() {
+        return uri;
+    }
+
+    /**
+     * New property value or, for {@link Type#ERROR}, the exception.
+     *
+     * @return value, may be {@code null}
+     * @see Type
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * For {@link Type#FINISHED}, indicates whether the resource has been played until the end.
+     *
+     * @return true or false
+     */
+    public boolean isEndOfMedia() {
+        return endOfMedia;
+    }
+
+    @Override
+    public String toString() {
+        return "PlayerEvent{" +
+            "type=" + type +
+            ", uri=" + uri +
+            ", value=" + value +
+            (type == Type.FINISHED ? ", endOfMedia=" + endOfMedia : "") +
+            '}';
+    }
+}
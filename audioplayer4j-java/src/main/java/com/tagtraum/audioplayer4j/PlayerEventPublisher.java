@@ -0,0 +1,364 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Publishes the events of an {@link AudioPlayer} as {@link PlayerEvent}s to
+ * {@link Flow.Subscriber}s, honoring their demand.
+ * <p>
+ * Each subscriber has its own buffer and is called on the publisher's executor,
+ * one signal at a time. {@link PlayerEvent.Type#TIME} events are conflated:
+ * if a subscriber hasn't consumed the previous time event yet, it is replaced
+ * with the new one. Other events are buffered. If a subscriber falls behind by
+ * more than the maximum buffer size, its subscription is cancelled and it
+ * receives an {@link IllegalStateException} via {@link Flow.Subscriber#onError(Throwable)}.
+ * <p>
+ * The publisher listens to the player only while it has subscribers.
+ * The player delivers its events via its {@link AudioPlayer#getEventExecutor() event executor},
+ * so to avoid the Swing EDT altogether, also set {@link EventExecutors#direct()} on the player.
+ * Closing the publisher completes all subscriptions.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class PlayerEventPublisher implements Flow.Publisher<PlayerEvent>, AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(PlayerEventPublisher.class.getName());
+
+    private final AudioPlayer audioPlayer;
+    private final Executor executor;
+    private final int maxBufferSize;
+    private final List<PlayerSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final PropertyChangeListener propertyChangeListener = this::propertyChange;
+    private final AudioPlayerListener audioPlayerListener = new AudioPlayerListener() {
+        @Override
+        public void started(final AudioPlayer audioPlayer, final URI uri) {
+            publish(new PlayerEvent(audioPlayer, PlayerEvent.Type.STARTED, uri, null, false));
+        }
+
+        @Override
+        public void finished(final AudioPlayer audioPlayer, final URI uri, final boolean endOfMedia) {
+            publish(new PlayerEvent(audioPlayer, PlayerEvent.Type.FINISHED, uri, null, endOfMedia));
+        }
+
+        @Override
+        public void failed(final AudioPlayer audioPlayer, final URI uri, final Exception exception) {
+            publish(new PlayerEvent(audioPlayer, PlayerEvent.Type.ERROR, uri, exception, false));
+        }
+    };
+    private boolean listening;
+    private boolean closed;
+
+    /**
+     * Creates a publisher that calls subscribers on the common {@link ForkJoinPool}
+     * and buffers up to {@link Flow#defaultBufferSize()} events per subscriber.
+     *
+     * @param audioPlayer player
+     */
+    public PlayerEventPublisher(final AudioPlayer audioPlayer) {
+        this(audioPlayer, null, Flow.defaultBufferSize());
+    }
+
+    /**
+     * Creates a publisher.
+     *
+     * @param audioPlayer player
+     * @param executor executor to call subscribers on, {@code null} for the common {@link ForkJoinPool}
+     * @param maxBufferSize maximum number of events buffered per subscriber
+     * @throws IllegalArgumentException if maxBufferSize is not positive
+     */
+    public PlayerEventPublisher(final AudioPlayer audioPlayer, final Executor executor, final int maxBufferSize) {
+        if (maxBufferSize <= 0) throw new IllegalArgumentException("maxBufferSize must be positive: " + maxBufferSize);
+        this.audioPlayer = Objects.requireNonNull(audioPlayer, "audioPlayer must not be null");
+        this.executor = executor == null ? ForkJoinPool.commonPool() : executor;
+        this.maxBufferSize = maxBufferSize;
+    }
+
+    /**
+     * Player whose events are published.
+     *
+     * @return player
+     */
+    public AudioPlayer getAudioPlayer() {
+        return audioPlayer;
+    }
+
+    /**
+     * Maximum number of events buffered per subscriber.
+     *
+     * @return buffer size
+     */
+    public int getMaxBufferSize() {
+        return maxBufferSize;
+    }
+
+    /**
+     * Number of current subscribers.
+     *
+     * @return number of subscribers
+     */
+    public int getNumberOfSubscribers() {
+        return subscriptions.size();
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super PlayerEvent> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber must not be null");
+        final PlayerSubscription subscription = new PlayerSubscription(subscriber);
+        final boolean alreadyClosed;
+        synchronized (this) {
+            alreadyClosed = closed;
+            if (!alreadyClosed) {
+                subscriptions.add(subscription);
+                updateListening();
+            }
+        }
+        if (alreadyClosed) subscription.complete(null);
+        else subscription.signal();
+    }
+
+    /**
+     * Stops listening to the player and completes all subscriptions.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            updateListening();
+        }
+        for (final PlayerSubscription subscription : subscriptions) {
+            subscription.complete(null);
+        }
+    }
+
+    private synchronized void updateListening() {
+        final boolean listen = !closed && !subscriptions.isEmpty();
+        if (listen && !listening) {
+            audioPlayer.addPropertyChangeListener(propertyChangeListener);
+            audioPlayer.addAudioPlayerListener(audioPlayerListener);
+        } else if (!listen && listening) {
+            audioPlayer.removePropertyChangeListener(propertyChangeListener);
+            audioPlayer.removeAudioPlayerListener(audioPlayerListener);
+        }
+        listening = listen;
+    }
+
+    private void remove(final PlayerSubscription subscription) {
+        synchronized (this) {
+            if (subscriptions.remove(subscription)) {
+                updateListening();
+            }
+        }
+    }
+
+    private void propertyChange(final PropertyChangeEvent evt) {
+        final PlayerEvent.Type type;
+        switch (String.valueOf(evt.getPropertyName())) {
+            case "time": type = PlayerEvent.Type.TIME; break;
+            case "paused": type = PlayerEvent.Type.PAUSED; break;
+            case "uri": type = PlayerEvent.Type.URI; break;
+            case "duration": type = PlayerEvent.Type.DURATION; break;
+            default: return;
+        }
+        final URI uri = type == PlayerEvent.Type.URI ? (URI) evt.getNewValue() : audioPlayer.getURI();
+        publish(new PlayerEvent(audioPlayer, type, uri, evt.getNewValue(), false));
+    }
+
+    private void publish(final PlayerEvent event) {
+        for (final PlayerSubscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PlayerEventPublisher{" +
+            "audioPlayer=" + audioPlayer +
+            ", subscribers=" + subscriptions.size() +
+            '}';
+    }
+
+    /**
+     * Buffer and demand of a single subscriber.
+     * Signals are delivered by {@link #run()}, which is never executed concurrently.
+     */
+    private final class PlayerSubscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super PlayerEvent> subscriber;
+        private final AtomicInteger wip = new AtomicInteger();
+        // guarded by this
+        private final ArrayDeque<Slot> buffer = new ArrayDeque<>();
+        private Slot timeSlot;
+        private long demand;
+        private boolean cancelled;
+        private boolean completing;
+        private Throwable error;
+        // only accessed by run()
+        private boolean subscribed;
+        private boolean terminated;
+
+        private PlayerSubscription(final Flow.Subscriber<? super PlayerEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        private void offer(final PlayerEvent event) {
+            synchronized (this) {
+                if (cancelled || completing) return;
+                if (event.getType() == PlayerEvent.Type.TIME && timeSlot != null) {
+                    // conflate, keeping the position in the buffer
+                    timeSlot.event = event;
+                    return;
+                }
+                if (buffer.size() >= maxBufferSize) {
+                    cancelled = true;
+                    error = new IllegalStateException("Subscriber fell behind by more than " + maxBufferSize + " events");
+                    buffer.clear();
+                    timeSlot = null;
+                } else {
+                    final Slot slot = new Slot(event);
+                    if (event.getType() == PlayerEvent.Type.TIME) timeSlot = slot;
+                    buffer.add(slot);
+                }
+            }
+            signal();
+        }
+
+        private void complete(final Throwable throwable) {
+            synchronized (this) {
+                if (cancelled || completing) return;
+                completing = true;
+                error = throwable;
+            }
+            signal();
+        }
+
+        @Override
+        public void request(final long n) {
+            synchronized (this) {
+                if (cancelled) return;
+                if (n <= 0) {
+                    // see Reactive Streams rule 3.9
+                    cancelled = true;
+                    error = new IllegalArgumentException("Non-positive request: " + n);
+                    buffer.clear();
+                    timeSlot = null;
+                } else {
+                    demand += n;
+                    // overflow means effectively unbounded
+                    if (demand < 0) demand = Long.MAX_VALUE;
+                }
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                buffer.clear();
+                timeSlot = null;
+            }
+            remove(this);
+        }
+
+        private void signal() {
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    LOG.log(Level.WARNING, "Failed to deliver events to " + subscriber, e);
+                    wip.set(0);
+                    cancel();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (terminated) return;
+                try {
+                    if (!subscribed) {
+                        subscribed = true;
+                        subscriber.onSubscribe(this);
+                    }
+                    drain();
+                } catch (RuntimeException e) {
+                    // see Reactive Streams rule 2.13
+                    LOG.log(Level.WARNING, "Subscriber failed, cancelling subscription: " + subscriber, e);
+                    terminated = true;
+                    cancel();
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            while (true) {
+                final PlayerEvent event;
+                final Throwable throwable;
+                final boolean terminate;
+                synchronized (this) {
+                    throwable = error;
+                    if (cancelled) {
+                        // deliver a pending error, but nothing else
+                        if (throwable == null) {
+                            terminated = true;
+                            return;
+                        }
+                        terminate = true;
+                        event = null;
+                    } else if (!buffer.isEmpty() && demand > 0) {
+                        final Slot slot = buffer.poll();
+                        if (slot == timeSlot) timeSlot = null;
+                        demand--;
+                        event = slot.event;
+                        terminate = false;
+                    } else if (buffer.isEmpty() && completing) {
+                        terminate = true;
+                        event = null;
+                    } else {
+                        return;
+                    }
+                }
+                if (terminate) {
+                    terminated = true;
+                    remove(this);
+                    if (throwable != null) subscriber.onError(throwable);
+                    else subscriber.onComplete();
+                    return;
+                }
+                subscriber.onNext(event);
+            }
+        }
+    }
+
+    private static final class Slot {
+        private PlayerEvent event;
+
+        private Slot(final PlayerEvent event) {
+            this.event = event;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j;
+
+/**
+ * Lightweight listener for the playback position of an {@link AudioPlayer},
+ * meant for rendering progress or levels at high rates.
+ * <p>
+ * Unlike {@code "time"} property change events, position updates are not
+ * throttled by {@link AudioPlayer#getMinTimeEventDifference()}, carry primitive
+ * values, and are delivered right away on the thread that updated the position,
+ * e.g. the playback thread. {@link com.tagtraum.audioplayer4j.java.JavaPlayer}
+ * does so without allocating any objects.
+ * Implementations must therefore return quickly and must not block.
+ * To update a UI, hand the values over to the UI thread, e.g. by storing
+ * them in a field that is read when the next frame is painted.
+ * <p>
+ * Players that don't track frames deliver updates along with their {@code "time"}
+ * events, i.e. via their {@link AudioPlayer#getEventExecutor() event executor} and
+ * with a frame of {@code -1}.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see AudioPlayer#addPositionListener(PositionListener)
+ */
+@FunctionalInterface
+public interface PositionListener {
+
+    /**
+     * The playback position changed.
+     *
+     * @param audioPlayer player
+     * @param frame position in frames or {@code -1}, if the player does not know frames
+     * @param micros position in microseconds
+     */
+    void positionChanged(AudioPlayer audioPlayer, long frame, long micros);
+
+}
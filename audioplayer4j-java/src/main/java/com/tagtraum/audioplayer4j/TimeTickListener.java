@@ -0,0 +1,28 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Listener for batched time updates delivered by a {@link TimeTicker}.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+@FunctionalInterface
+public interface TimeTickListener {
+
+    /**
+     * Is called once per tick, if the time of at least one player changed.
+     *
+     * @param times unmodifiable map of players, whose time changed since the last
+     *              delivered tick, to their current time (which may be {@code null})
+     */
+    void timeChanged(Map<AudioPlayer, Duration> times);
+
+}
@@ -0,0 +1,282 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Samples the time of many {@link AudioPlayer}s once per tick and delivers
+ * all changes in a single batch to its {@link TimeTickListener}s.
+ * <p>
+ * Every player fires its own {@code "time"} property change events.
+ * With many players playing at the same time, e.g. previews in a list,
+ * that's a lot of events, each of them its own task on the
+ * {@link AudioPlayer#getEventExecutor() event executor}. A ticker
+ * instead delivers one task per tick, no matter how many players it watches.
+ * If a delivery is still pending when the next tick occurs, the changes
+ * are merged into the pending delivery.
+ * <p>
+ * Players must be {@link #register(AudioPlayer) registered}. The players of this library
+ * unregister themselves from all tickers when they are closed, other players should call
+ * {@link #unregisterFromAll(AudioPlayer)}. A player that fails to report its time is unregistered.
+ * The ticker only runs while it has both players and listeners.
+ * All tickers share a single sampling thread.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TimeTicker implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(TimeTicker.class.getName());
+    /** Tickers that have players. */
+    private static final Set<TimeTicker> TICKERS = new CopyOnWriteArraySet<>();
+    private final Duration interval;
+    private final Executor executor;
+    private final List<AudioPlayer> players = new CopyOnWriteArrayList<>();
+    private final List<TimeTickListener> listeners = new CopyOnWriteArrayList<>();
+    // only accessed by the sampling thread
+    private final Map<AudioPlayer, Duration> lastTimes = new HashMap<>();
+    private final Object pendingLock = new Object();
+    private Map<AudioPlayer, Duration> pending;
+    private ScheduledFuture<?> ticks;
+
+    /**
+     * Creates a ticker with an interval of {@link AudioPlayer#DEFAULT_MIN_TIME_EVENT_DIFFERENCE}
+     * that delivers on the EDT.
+     */
+    public TimeTicker() {
+        this(Duration.ofMillis(AudioPlayer.DEFAULT_MIN_TIME_EVENT_DIFFERENCE), EventExecutors.edt());
+    }
+
+    /**
+     * Creates a ticker.
+     *
+     * @param interval time between two ticks
+     * @param executor executor to deliver batches on, {@code null} for the EDT
+     * @throws IllegalArgumentException if the interval is not positive
+     * @see EventExecutors
+     */
+    public TimeTicker(final Duration interval, final Executor executor) {
+        Objects.requireNonNull(interval, "interval must not be null");
+        if (interval.isZero() || interval.isNegative()) {
+            throw new IllegalArgumentException("Interval must be positive: " + interval);
+        }
+        this.interval = interval;
+        this.executor = executor == null ? EventExecutors.edt() : executor;
+    }
+
+    /**
+     * Shared ticker with the default interval, delivering on the EDT.
+     *
+     * @return shared ticker
+     */
+    public static TimeTicker getShared() {
+        return SharedHolder.TICKER;
+    }
+
+    /**
+     * Time between two ticks.
+     *
+     * @return interval
+     */
+    public Duration getInterval() {
+        return interval;
+    }
+
+    /**
+     * Executor batches are delivered on.
+     *
+     * @return executor
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Lets this ticker sample the given player's time.
+     *
+     * @param audioPlayer player
+     */
+    public void register(final AudioPlayer audioPlayer) {
+        Objects.requireNonNull(audioPlayer, "audioPlayer must not be null");
+        if (!players.contains(audioPlayer)) {
+            players.add(audioPlayer);
+            updateSchedule();
+        }
+    }
+
+    /**
+     * Stops sampling the given player's time.
+     *
+     * @param audioPlayer player
+     */
+    public void unregister(final AudioPlayer audioPlayer) {
+        if (players.remove(audioPlayer)) {
+            updateSchedule();
+        }
+    }
+
+    /**
+     * Unregisters the given player from all tickers, e.g. because it was closed.
+     *
+     * @param audioPlayer player
+     */
+    public static void unregisterFromAll(final AudioPlayer audioPlayer) {
+        for (final TimeTicker ticker : TICKERS) {
+            ticker.unregister(audioPlayer);
+        }
+    }
+
+    /**
+     * Number of registered players.
+     *
+     * @return number of players
+     */
+    public int getPlayerCount() {
+        return players.size();
+    }
+
+    /**
+     * Add a listener.
+     *
+     * @param listener listener
+     */
+    public void addTimeTickListener(final TimeTickListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener must not be null"));
+        updateSchedule();
+    }
+
+    /**
+     * Remove a listener.
+     *
+     * @param listener listener
+     */
+    public void removeTimeTickListener(final TimeTickListener listener) {
+        listeners.remove(listener);
+        updateSchedule();
+    }
+
+    /**
+     * Indicates whether this ticker is currently sampling.
+     *
+     * @return true, if at least one player is registered and one listener is added
+     */
+    public synchronized boolean isRunning() {
+        return ticks != null;
+    }
+
+    /**
+     * Unregisters all players and removes all listeners.
+     */
+    @Override
+    public void close() {
+        players.clear();
+        listeners.clear();
+        updateSchedule();
+    }
+
+    private synchronized void updateSchedule() {
+        if (players.isEmpty()) TICKERS.remove(this);
+        else TICKERS.add(this);
+        final boolean run = !players.isEmpty() && !listeners.isEmpty();
+        if (run && ticks == null) {
+            final long nanos = interval.toNanos();
+            ticks = SamplerHolder.EXECUTOR.scheduleAtFixedRate(() -> {
+                try {
+                    tick();
+                } catch (RuntimeException e) {
+                    // don't let one failure cancel all future ticks
+                    LOG.log(Level.WARNING, "Failed to tick " + this, e);
+                }
+            }, nanos, nanos, TimeUnit.NANOSECONDS);
+        } else if (!run && ticks != null) {
+            ticks.cancel(false);
+            ticks = null;
+        }
+    }
+
+    /**
+     * Samples all players and submits a delivery, if anything changed.
+     */
+    void tick() {
+        final Map<AudioPlayer, Duration> changed = new LinkedHashMap<>();
+        for (final AudioPlayer audioPlayer : players) {
+            // sampled without holding a lock, as some players block for getTime()
+            final Duration time;
+            try {
+                time = audioPlayer.getTime();
+            } catch (RuntimeException e) {
+                // don't let one broken player stop the updates for all others
+                LOG.log(Level.WARNING, "Failed to sample time of " + audioPlayer + ". Unregistering it.", e);
+                unregister(audioPlayer);
+                continue;
+            }
+            final Duration lastTime = lastTimes.get(audioPlayer);
+            if (!lastTimes.containsKey(audioPlayer) || !Objects.equals(time, lastTime)) {
+                lastTimes.put(audioPlayer, time);
+                changed.put(audioPlayer, time);
+            }
+        }
+        lastTimes.keySet().retainAll(players);
+        if (changed.isEmpty()) return;
+
+        final boolean submit;
+        synchronized (pendingLock) {
+            submit = pending == null;
+            if (submit) pending = changed;
+            else pending.putAll(changed);
+        }
+        if (submit) executor.execute(this::deliver);
+    }
+
+    private void deliver() {
+        final Map<AudioPlayer, Duration> times;
+        synchronized (pendingLock) {
+            times = Collections.unmodifiableMap(pending);
+            pending = null;
+        }
+        for (final TimeTickListener listener : listeners) {
+            listener.timeChanged(times);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TimeTicker{" +
+            "interval=" + interval +
+            ", players=" + players.size() +
+            ", listeners=" + listeners.size() +
+            '}';
+    }
+
+    private static class SharedHolder {
+        private static final TimeTicker TICKER = new TimeTicker();
+    }
+
+    private static class SamplerHolder {
+        private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(r, "Audio Player Time Ticker Thread");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
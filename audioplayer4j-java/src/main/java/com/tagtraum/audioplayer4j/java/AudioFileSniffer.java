@@ -0,0 +1,142 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Recognizes the container format of an audio file by its first bytes,
+ * so that {@link ExtAudioSystem} can ask the matching provider first,
+ * instead of letting every provider open and partially parse the file.
+ * <p>
+ * Only local files are sniffed, as reading the header of a remote
+ * resource costs an additional request.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+final class AudioFileSniffer {
+
+    private static final Logger LOG = Logger.getLogger(AudioFileSniffer.class.getName());
+    /**
+     * Number of bytes read from the start of a file.
+     */
+    static final int HEADER_LENGTH = 4 * 1024;
+    private static final byte[] ASF_HEADER_GUID = {
+        0x30, 0x26, (byte) 0xB2, 0x75, (byte) 0x8E, 0x66, (byte) 0xCF, 0x11,
+        (byte) 0xA6, (byte) 0xD9, 0x00, (byte) 0xAA, 0x00, 0x62, (byte) 0xCE, 0x6C
+    };
+
+    /**
+     * Container formats recognized by {@link AudioFileSniffer}.
+     */
+    enum Container {
+        /** RIFF/RF64 WAVE. */
+        WAVE,
+        /** AIFF or AIFF-C. */
+        AIFF,
+        /** Native FLAC. */
+        FLAC,
+        /** Ogg (Vorbis, Opus, FLAC). */
+        OGG,
+        /** MPEG audio or ADTS AAC, possibly preceded by an ID3v2 tag. */
+        MPEG,
+        /** ISO base media file, e.g. M4A. */
+        MP4,
+        /** Advanced Systems Format, e.g. WMA. */
+        ASF
+    }
+
+    private AudioFileSniffer() {
+    }
+
+    /**
+     * Sniffs the container format of a local file.
+     *
+     * @param url url
+     * @return container or {@code null}, if the URL does not point to a local file
+     * or the format is not recognized
+     */
+    static Container sniff(final URL url) {
+        if (!"file".equals(url.getProtocol())) return null;
+        try {
+            final Path path = Paths.get(url.toURI());
+            final byte[] header = new byte[HEADER_LENGTH];
+            final int length;
+            try (final InputStream in = Files.newInputStream(path)) {
+                length = in.readNBytes(header, 0, HEADER_LENGTH);
+            }
+            final Container container = sniff(header, length);
+            if (LOG.isLoggable(Level.FINE)) LOG.fine("Sniffed " + container + " for " + url);
+            return container;
+        } catch (URISyntaxException | IllegalArgumentException | IOException e) {
+            // e.g. no such file or a UNC path, let the providers deal with it
+            if (LOG.isLoggable(Level.FINE)) LOG.log(Level.FINE, "Failed to sniff " + url, e);
+            return null;
+        }
+    }
+
+    /**
+     * Sniffs the container format of the given file header.
+     *
+     * @param header first bytes of a file
+     * @param length number of valid bytes in header
+     * @return container or {@code null}, if the format is not recognized
+     */
+    static Container sniff(final byte[] header, final int length) {
+        if (startsWith(header, length, 0, "RIFF") || startsWith(header, length, 0, "RF64")) {
+            return startsWith(header, length, 8, "WAVE") ? Container.WAVE : null;
+        }
+        if (startsWith(header, length, 0, "FORM")) {
+            return startsWith(header, length, 8, "AIFF") || startsWith(header, length, 8, "AIFC") ? Container.AIFF : null;
+        }
+        if (startsWith(header, length, 0, "fLaC")) return Container.FLAC;
+        if (startsWith(header, length, 0, "OggS")) return Container.OGG;
+        if (startsWith(header, length, 4, "ftyp")) return Container.MP4;
+        if (startsWith(header, length, 0, ASF_HEADER_GUID)) return Container.ASF;
+        if (startsWith(header, length, 0, "ID3") && length >= 10) {
+            // ID3v2 tag size is a 28 bit synchsafe integer, excluding the 10 byte header and optional footer
+            final int size = (header[6] & 0x7F) << 21 | (header[7] & 0x7F) << 14 | (header[8] & 0x7F) << 7 | header[9] & 0x7F;
+            final boolean footer = (header[5] & 0x10) != 0;
+            final int offset = 10 + size + (footer ? 10 : 0);
+            // tags are usually used with MPEG, but some tools also prepend them to FLAC
+            if (startsWith(header, length, offset, "fLaC")) return Container.FLAC;
+            // otherwise MPEG, even if the tag is too large to see what follows
+            return Container.MPEG;
+        }
+        if (isMPEGSync(header, length, 0)) return Container.MPEG;
+        return null;
+    }
+
+    private static boolean isMPEGSync(final byte[] header, final int length, final int offset) {
+        // 11 bit frame sync
+        return length >= offset + 2 && (header[offset] & 0xFF) == 0xFF && (header[offset + 1] & 0xE0) == 0xE0;
+    }
+
+    private static boolean startsWith(final byte[] header, final int length, final int offset, final String magic) {
+        if (offset < 0 || length < offset + magic.length()) return false;
+        for (int i = 0; i < magic.length(); i++) {
+            if (header[offset + i] != (byte) magic.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static boolean startsWith(final byte[] header, final int length, final int offset, final byte[] magic) {
+        if (offset < 0 || length < offset + magic.length) return false;
+        for (int i = 0; i < magic.length; i++) {
+            if (header[offset + i] != magic[i]) return false;
+        }
+        return true;
+    }
+}
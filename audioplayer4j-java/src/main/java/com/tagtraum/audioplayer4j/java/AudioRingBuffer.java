@@ -0,0 +1,263 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated, lock-free single-producer/single-consumer ring buffer for PCM audio.
+ * <p>
+ * The producer (decoder thread) reads directly from an {@link InputStream}
+ * into the ring via {@link #write(InputStream, int)}, the consumer copies
+ * data out via {@link #read(byte[], int, int)}.
+ * All positions are absolute byte counts, which never wrap.
+ * <p>
+ * The bytes returned by the most recent {@link #read(byte[], int, int)} call are
+ * protected from being overwritten until the next read, so that they can
+ * be pushed back with {@link #unread(int)}, which simply moves the read cursor.
+ * <p>
+ * All lengths are multiples of the frame size.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+final class AudioRingBuffer {
+
+    private final byte[] buffer;
+    private final int frameSize;
+    /** Written by the producer only. */
+    private final AtomicLong writePosition = new AtomicLong();
+    /** Written by the consumer only. */
+    private final AtomicLong readPosition = new AtomicLong();
+    /** Written by the consumer only. Bytes before this position may be overwritten. */
+    private final AtomicLong releasePosition = new AtomicLong();
+    private volatile boolean endOfStream;
+    private volatile Thread waitingConsumer;
+
+    /**
+     * Creates a ring buffer.
+     *
+     * @param capacity capacity in bytes, rounded up to a multiple of the frame size
+     * @param frameSize frame size in bytes
+     */
+    public AudioRingBuffer(final int capacity, final int frameSize) {
+        if (frameSize <= 0) throw new IllegalArgumentException("Frame size must be greater than 0: " + frameSize);
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be greater than 0: " + capacity);
+        this.frameSize = frameSize;
+        this.buffer = new byte[((capacity + frameSize - 1) / frameSize) * frameSize];
+    }
+
+    /**
+     * Capacity in bytes.
+     *
+     * @return capacity
+     */
+    public int getCapacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Number of bytes that can currently be read.
+     *
+     * @return available bytes
+     */
+    public int available() {
+        return (int) (writePosition.get() - readPosition.get());
+    }
+
+    /**
+     * Number of bytes the producer can currently write.
+     *
+     * @return writable bytes
+     */
+    public int writable() {
+        return (int) (buffer.length - (writePosition.get() - releasePosition.get()));
+    }
+
+    /**
+     * Indicates that the producer has signalled the end of the stream
+     * and all data has been consumed.
+     *
+     * @return true or false
+     */
+    public boolean isEndOfStream() {
+        return endOfStream && available() == 0;
+    }
+
+    // ----- producer side
+
+    /**
+     * Reads at most {@code maxLength} bytes from the given stream directly into
+     * the ring. If the stream has ended, the end of stream is signalled to the consumer.
+     * Must only be called by the producer.
+     *
+     * @param in stream to read from
+     * @param maxLength max number of bytes to transfer
+     * @return number of bytes transferred, or {@code -1}, if the stream has ended
+     * @throws IOException if reading from the stream fails
+     */
+    public int write(final InputStream in, final int maxLength) throws IOException {
+        final long write = writePosition.get();
+        final int index = (int) (write % buffer.length);
+        final int length = alignToFrame(Math.min(Math.min(maxLength, writable()), buffer.length - index));
+        if (length <= 0) return 0;
+        final int justRead = in.read(buffer, index, length);
+        if (justRead < 0) {
+            signalEndOfStream();
+            return -1;
+        }
+        // volatile store, so that the consumer cannot miss it when going to sleep
+        writePosition.set(write + justRead);
+        wakeUpConsumer();
+        return justRead;
+    }
+
+    /**
+     * Signals the end of the stream to the consumer.
+     * Must only be called by the producer.
+     */
+    public void signalEndOfStream() {
+        endOfStream = true;
+        wakeUpConsumer();
+    }
+
+    private void wakeUpConsumer() {
+        final Thread waiter = waitingConsumer;
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    // ----- consumer side
+
+    /**
+     * Copies available data to the given buffer, without blocking.
+     * Must only be called by the consumer.
+     *
+     * @param buf target buffer
+     * @param off offset
+     * @param len max number of bytes to copy
+     * @return number of bytes copied, possibly 0
+     */
+    public int read(final byte[] buf, final int off, final int len) {
+        final long read = readPosition.get();
+        // bytes returned by the previous read may be overwritten from now on
+        releasePosition.lazySet(read);
+        return copy(read, buf, off, len);
+    }
+
+    /**
+     * Releases the bytes returned by the most recent {@link #read(byte[], int, int)}
+     * call, i.e. they can no longer be pushed back and the producer may overwrite them.
+     * Must only be called by the consumer.
+     */
+    public void release() {
+        releasePosition.set(readPosition.get());
+    }
+
+    private int copy(final long read, final byte[] buf, final int off, final int len) {
+        final int length = alignToFrame(Math.min(len, available()));
+        if (length <= 0) return 0;
+        final int index = (int) (read % buffer.length);
+        final int firstPart = Math.min(length, buffer.length - index);
+        System.arraycopy(buffer, index, buf, off, firstPart);
+        if (firstPart < length) {
+            System.arraycopy(buffer, 0, buf, off + firstPart, length - firstPart);
+        }
+        readPosition.lazySet(read + length);
+        return length;
+    }
+
+    /**
+     * Discards available data without copying it. Discarded bytes cannot be pushed back.
+     * Must only be called while the consumer is known to not access the buffer,
+     * e.g. because it is waiting for a skip to finish.
+     *
+     * @param len max number of bytes to discard
+     * @return number of bytes discarded, possibly 0
+     */
+    public int skip(final int len) {
+        final int length = alignToFrame(Math.min(len, available()));
+        final long read = readPosition.get() + length;
+        readPosition.set(read);
+        releasePosition.set(read);
+        return length;
+    }
+
+    /**
+     * Pushes back the last {@code length} bytes returned by the most recent
+     * {@link #read(byte[], int, int)} call by moving the read cursor.
+     * Must only be called by the consumer.
+     *
+     * @param length number of bytes
+     * @throws IllegalStateException if more bytes are pushed back than were read
+     */
+    public void unread(final int length) {
+        final long read = readPosition.get();
+        if (length > read - releasePosition.get()) {
+            throw new IllegalStateException("Cannot unread " + length + " bytes, only the last "
+                + (read - releasePosition.get()) + " bytes read can be pushed back.");
+        }
+        readPosition.lazySet(read - length);
+    }
+
+    /**
+     * Waits until data is available or the end of stream was signalled.
+     * Must only be called by the consumer.
+     *
+     * @param timeout timeout
+     * @param unit timeout unit
+     * @return false, if the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean await(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (available() == 0 && !endOfStream) {
+            waitingConsumer = Thread.currentThread();
+            try {
+                // re-check after announcing ourselves, to not miss a wake-up
+                if (available() == 0 && !endOfStream) {
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) return false;
+                    LockSupport.parkNanos(this, remaining);
+                }
+            } finally {
+                waitingConsumer = null;
+            }
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+        return true;
+    }
+
+    /**
+     * Discards all data and resets the end of stream flag.
+     * Must only be called while the consumer is known to not access the buffer,
+     * e.g. because it is waiting for a seek to finish.
+     */
+    public void clear() {
+        final long write = writePosition.get();
+        readPosition.set(write);
+        releasePosition.set(write);
+        endOfStream = false;
+    }
+
+    private int alignToFrame(final int length) {
+        return length - length % frameSize;
+    }
+
+    @Override
+    public String toString() {
+        return "AudioRingBuffer{" +
+            "capacity=" + buffer.length +
+            ", available=" + available() +
+            ", endOfStream=" + endOfStream +
+            '}';
+    }
+}
@@ -10,8 +10,18 @@ import javax.sound.sampled.*;
 import javax.sound.sampled.spi.AudioFileReader;
 import javax.sound.sampled.spi.FormatConversionProvider;
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -28,8 +38,6 @@ public final class ExtAudioSystem {
     private static final boolean MAC = OS_NAME.contains("mac");
     private static final boolean WINDOWS = OS_NAME.toLowerCase().contains("win");
     private static final boolean UNIX = OS_NAME.contains("nix") || OS_NAME.contains("nux") || OS_NAME.contains("aix");
-    private static final FormatConversionProvider FF_CONVERSION = createFFFormatConversionProvider();
-    private static final FormatConversionProvider CA_CONVERSION = createCAFormatConversionProvider();
 
     private ExtAudioSystem() {
     }
@@ -45,45 +53,56 @@ public final class ExtAudioSystem {
      * @throws UnsupportedAudioFileException if the URL does not point to valid audio
      * file data recognized by the system
      * @throws IOException if an input/output exception occurs
+     * @see #probe(URL)
      */
     public static AudioFileFormat getAudioFileFormat(final URL url)
         throws UnsupportedAudioFileException, IOException {
-        // prefer CoreAudio, if on mac
-        if (MAC) {
-            final AudioFileReader caAudioFileReader = createCAAudioFileReader();
-            if (caAudioFileReader != null) {
-                try {
-                    return caAudioFileReader.getAudioFileFormat(url);
-                } catch (UnsupportedAudioFileException | IOException e) {
-                    // ignore
-                }
-            }
-        }
-        if (isAIFF(url.toString())) {
-            final AudioFileReader audioFileReader = createAIFFAudioFileReader();
-            if (audioFileReader != null) {
-                try {
-                    return audioFileReader.getAudioFileFormat(url);
-                } catch (UnsupportedAudioFileException | IOException e) {
-                    // ignore
-                }
+        return probe(url).getAudioFileFormat();
+    }
+
+    /**
+     * Obtains the audio file format of the specified URL and remembers the
+     * provider that recognized it, so that the audio input stream can later be obtained
+     * from the same provider via {@link Probe#getAudioInputStream(int)}, without trying
+     * all providers again.
+     * <p>
+     * The audio file formats of local files are cached, as long as the files are not modified.
+     *
+     * @param url the URL from which file format information should be
+     * extracted
+     * @return probe
+     * @throws UnsupportedAudioFileException if the URL does not point to valid audio
+     * file data recognized by the system
+     * @throws IOException if an input/output exception occurs
+     */
+    public static Probe probe(final URL url)
+        throws UnsupportedAudioFileException, IOException {
+        final MetadataCache metadataCache = MetadataCache.getInstance();
+        final MetadataCache.Entry entry = metadataCache.get(url);
+        if (entry != null) {
+            final AudioFileReader audioFileReader = Providers.INSTANCE.findAudioFileReader(entry.getProvider());
+            // the provider may not be installed anymore
+            if (audioFileReader != null || entry.getProvider() == null) {
+                return new Probe(url, audioFileReader, entry.getAudioFileFormat());
             }
         }
-        // prefer FFMpeg, if on windows or *nix
-        if (WINDOWS || UNIX) {
-            final AudioFileReader ffAudioFileReader = createFFAudioFileReader();
-            if (ffAudioFileReader != null) {
-                try {
-                    return ffAudioFileReader.getAudioFileFormat(url);
-                } catch (UnsupportedAudioFileException | IOException e) {
-                    // ignore
-                }
+        final Probe probe = probeProviders(url);
+        metadataCache.put(url, probe.audioFileReader == null ? null : probe.audioFileReader.getClass().getName(),
+            probe.getAudioFileFormat());
+        return probe;
+    }
+
+    private static Probe probeProviders(final URL url) throws UnsupportedAudioFileException, IOException {
+        for (final AudioFileReader audioFileReader : getPreferredAudioFileReaders(url)) {
+            try {
+                return new Probe(url, audioFileReader, audioFileReader.getAudioFileFormat(url));
+            } catch (UnsupportedAudioFileException | IOException e) {
+                // ignore
             }
         }
-        return AudioSystem.getAudioFileFormat(url);
+        return new Probe(url, null, AudioSystem.getAudioFileFormat(url));
     }
 
-
     /**
      * Obtains an audio input stream from the URL provided.  The URL must
      * point to valid audio file data.
@@ -100,47 +119,48 @@ public final class ExtAudioSystem {
     public static AudioInputStream getAudioInputStream(final URL url, final int bufferSize)
         throws UnsupportedAudioFileException, IOException {
         if (LOG.isLoggable(Level.FINE)) LOG.fine("Opening AudioInputStream for " + url);
-        // prefer CoreAudio, if on mac
-        if (MAC) {
-            final AudioFileReader caAudioFileReader = createCAAudioFileReader();
-            if (caAudioFileReader != null) {
-                try {
-                    return (AudioInputStream)caAudioFileReader
-                        .getClass()
-                        .getMethod("getAudioInputStream", URL.class, Integer.TYPE)
-                        .invoke(caAudioFileReader, url,  bufferSize);
-                } catch (IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-                    LOG.log(Level.SEVERE, e.toString(), e);
-                }
-                try {
-                    return caAudioFileReader.getAudioInputStream(url);
-                } catch (UnsupportedAudioFileException | IOException e) {
-                    // ignore
-                }
+        for (final AudioFileReader audioFileReader : getPreferredAudioFileReaders(url)) {
+            try {
+                return getAudioInputStream(audioFileReader, url, bufferSize);
+            } catch (UnsupportedAudioFileException | IOException e) {
+                // ignore
             }
         }
-        if (isAIFF(url.toString())) {
-            final AudioFileReader audioFileReader = createAIFFAudioFileReader();
-            if (audioFileReader != null) {
-                try {
-                    return audioFileReader.getAudioInputStream(url);
-                } catch (UnsupportedAudioFileException | IOException e) {
-                    // ignore
-                }
+        return AudioSystem.getAudioInputStream(url);
+    }
+
+    private static AudioInputStream getAudioInputStream(final AudioFileReader audioFileReader, final URL url, final int bufferSize)
+        throws UnsupportedAudioFileException, IOException {
+        final Providers providers = Providers.INSTANCE;
+        if (audioFileReader == providers.caAudioFileReader && providers.caGetAudioInputStream != null) {
+            try {
+                return (AudioInputStream) providers.caGetAudioInputStream.invokeExact(url, bufferSize);
+            } catch (UnsupportedAudioFileException | IOException | RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IOException(t);
             }
         }
-        // prefer FFMpeg, if on windows or unix
-        if (WINDOWS || UNIX) {
-            final AudioFileReader ffAudioFileReader = createFFAudioFileReader();
-            if (ffAudioFileReader != null) {
-                try {
-                    return ffAudioFileReader.getAudioInputStream(url);
-                } catch (UnsupportedAudioFileException | IOException e) {
-                    // ignore
-                }
-            }
+        return audioFileReader.getAudioInputStream(url);
+    }
+
+    /**
+     * Readers to try, before falling back to {@link AudioSystem}, in order of preference.
+     * If the container format of a local file can be sniffed, the readers that support it
+     * come first. Otherwise, the order depends on platform and file extension.
+     *
+     * @param url url
+     * @return readers
+     * @see AudioFileSniffer
+     */
+    static List<AudioFileReader> getPreferredAudioFileReaders(final URL url) {
+        final AudioFileSniffer.Container container = AudioFileSniffer.sniff(url);
+        if (container != null) {
+            return Providers.INSTANCE.containerAudioFileReaders.get(container);
         }
-        return AudioSystem.getAudioInputStream(url);
+        return isAIFF(url.toString())
+            ? Providers.INSTANCE.preferredAIFFAudioFileReaders
+            : Providers.INSTANCE.preferredAudioFileReaders;
     }
 
     /**
@@ -154,77 +174,233 @@ public final class ExtAudioSystem {
      * @see AudioSystem#getAudioInputStream(AudioFormat, AudioInputStream)
      */
     public static AudioInputStream getAudioInputStream(final AudioFormat targetFormat, AudioInputStream sourceStream) {
+        final FormatConversionProvider ffConversion = Providers.INSTANCE.ffConversion;
+        final FormatConversionProvider caConversion = Providers.INSTANCE.caConversion;
         // try to stick to one XXSampledSP package for optimal performance
-        if (FF_CONVERSION != null && FF_CONVERSION.isConversionSupported(sourceStream.getFormat(), targetFormat)) {
-            sourceStream = FF_CONVERSION.getAudioInputStream(targetFormat, sourceStream);
-        } else if (CA_CONVERSION != null && CA_CONVERSION.isConversionSupported(sourceStream.getFormat(), targetFormat)) {
-            sourceStream = CA_CONVERSION.getAudioInputStream(targetFormat, sourceStream);
+        if (ffConversion != null && ffConversion.isConversionSupported(sourceStream.getFormat(), targetFormat)) {
+            sourceStream = ffConversion.getAudioInputStream(targetFormat, sourceStream);
+        } else if (caConversion != null && caConversion.isConversionSupported(sourceStream.getFormat(), targetFormat)) {
+            sourceStream = caConversion.getAudioInputStream(targetFormat, sourceStream);
         } else {
             sourceStream = AudioSystem.getAudioInputStream(targetFormat, sourceStream);
         }
         return sourceStream;
     }
 
-    private static AudioFileReader createAIFFAudioFileReader() {
-        if (MAC) {
-            try {
-                return (AudioFileReader) Class.forName("com.tagtraum.casampledsp.CAAudioFileReader").getConstructor().newInstance();
-            } catch (InstantiationException | IllegalAccessException | ClassNotFoundException | NoSuchMethodException | InvocationTargetException e) {
-                LOG.log(Level.WARNING, "Failed to use com.tagtraum.casampledsp.CAAudioFileReader", e);
-            }
-        }
-        try {
-            return (AudioFileReader) Class.forName("com.sun.media.sound.AiffFileReader").getConstructor().newInstance();
-        } catch (InstantiationException | IllegalAccessException | ClassNotFoundException | NoSuchMethodException | InvocationTargetException e) {
-            LOG.log(Level.WARNING, "Failed to use com.sun.media.sound.AiffFileReader", e);
-        }
-        return null;
-    }
-
     private static boolean isAIFF(final String path) {
         final String lowerCase = path.toLowerCase();
         return lowerCase.endsWith(".aif") || lowerCase.endsWith(".aiff");
     }
 
-
-    private static FormatConversionProvider createCAFormatConversionProvider() {
-        FormatConversionProvider conversion = null;
+    /**
+     * Instantiates a provider via its public no-arg constructor.
+     *
+     * @param className provider class name
+     * @param type provider type
+     * @return provider or {@code null}, if it cannot be instantiated
+     */
+    private static <T> T newInstance(final String className, final Class<T> type) {
         try {
-            conversion = (FormatConversionProvider)Class.forName("com.tagtraum.casampledsp.CAFormatConversionProvider").getConstructor().newInstance();
-        } catch (InstantiationException | IllegalAccessException | ClassNotFoundException | NoSuchMethodException | InvocationTargetException e) {
-            LOG.info("No CASampledSP installed.");
+            return type.cast(Class.forName(className).getConstructor().newInstance());
+        } catch (InstantiationException | IllegalAccessException | ClassNotFoundException | NoSuchMethodException
+            | InvocationTargetException | ClassCastException e) {
+            if (LOG.isLoggable(Level.FINE)) LOG.log(Level.FINE, "Failed to instantiate " + className, e);
+            return null;
         }
-        return conversion;
     }
 
-    private static FormatConversionProvider createFFFormatConversionProvider() {
-        FormatConversionProvider conversion = null;
-        try {
-            conversion = (FormatConversionProvider)Class.forName("com.tagtraum.ffsampledsp.FFFormatConversionProvider").getConstructor().newInstance();
-        } catch (InstantiationException | IllegalAccessException | ClassNotFoundException | NoSuchMethodException | InvocationTargetException e) {
-            LOG.info("No FFSampledSP installed.");
+    /**
+     * Providers and reflective handles, resolved once, when first needed.
+     * Providers are stateless, so they can be shared.
+     */
+    private static final class Providers {
+
+        private static final Providers INSTANCE = new Providers();
+
+        private final AudioFileReader caAudioFileReader;
+        private final AudioFileReader ffAudioFileReader;
+        private final AudioFileReader aiffAudioFileReader;
+        /** {@code CAAudioFileReader.getAudioInputStream(URL, int)}, bound to {@link #caAudioFileReader}. */
+        private final MethodHandle caGetAudioInputStream;
+        private final FormatConversionProvider ffConversion;
+        private final FormatConversionProvider caConversion;
+        private final List<AudioFileReader> preferredAudioFileReaders;
+        private final List<AudioFileReader> preferredAIFFAudioFileReaders;
+        private final Map<AudioFileSniffer.Container, List<AudioFileReader>> containerAudioFileReaders;
+
+        private Providers() {
+            this.caAudioFileReader = newInstance("com.tagtraum.casampledsp.CAAudioFileReader", AudioFileReader.class);
+            this.caConversion = newInstance("com.tagtraum.casampledsp.CAFormatConversionProvider", FormatConversionProvider.class);
+            if (caAudioFileReader == null || caConversion == null) LOG.info("No CASampledSP installed.");
+            this.ffAudioFileReader = newInstance("com.tagtraum.ffsampledsp.FFAudioFileReader", AudioFileReader.class);
+            this.ffConversion = newInstance("com.tagtraum.ffsampledsp.FFFormatConversionProvider", FormatConversionProvider.class);
+            if (ffAudioFileReader == null || ffConversion == null) LOG.info("No FFSampledSP installed.");
+            this.caGetAudioInputStream = findGetAudioInputStreamWithBufferSize(caAudioFileReader);
+
+            AudioFileReader aiffAudioFileReader = MAC ? caAudioFileReader : null;
+            if (aiffAudioFileReader == null) {
+                // not exported by java.desktop, but provided as service
+                aiffAudioFileReader = findInstalledAudioFileReader("com.sun.media.sound.AiffFileReader");
+                if (aiffAudioFileReader == null) LOG.warning("Failed to use com.sun.media.sound.AiffFileReader");
+            }
+            this.aiffAudioFileReader = aiffAudioFileReader;
+
+            final List<AudioFileReader> readers = new ArrayList<>();
+            final List<AudioFileReader> aiffReaders = new ArrayList<>();
+            // prefer CoreAudio, if on mac
+            if (MAC) {
+                addIfNotNull(readers, caAudioFileReader);
+                addIfNotNull(aiffReaders, caAudioFileReader);
+            }
+            addIfNotNull(aiffReaders, aiffAudioFileReader);
+            // prefer FFMpeg, if on windows or *nix
+            if (WINDOWS || UNIX) {
+                addIfNotNull(readers, ffAudioFileReader);
+                addIfNotNull(aiffReaders, ffAudioFileReader);
+            }
+            this.preferredAudioFileReaders = Collections.unmodifiableList(readers);
+            this.preferredAIFFAudioFileReaders = Collections.unmodifiableList(aiffReaders);
+
+            final Map<AudioFileSniffer.Container, List<AudioFileReader>> containerReaders = new EnumMap<>(AudioFileSniffer.Container.class);
+            for (final AudioFileSniffer.Container container : AudioFileSniffer.Container.values()) {
+                final List<AudioFileReader> list = new ArrayList<>();
+                switch (container) {
+                    case WAVE:
+                        // preferred order is fine
+                        break;
+                    case AIFF:
+                        addIfNotNull(list, aiffAudioFileReader);
+                        break;
+                    case OGG:
+                    case ASF:
+                        // not supported by CoreAudio
+                        addIfNotNull(list, ffAudioFileReader);
+                        break;
+                    default:
+                        if (MAC) addIfNotNull(list, caAudioFileReader);
+                        addIfNotNull(list, ffAudioFileReader);
+                        break;
+                }
+                // fall back to the preferred order, in case the sniffer was wrong
+                for (final AudioFileReader reader : container == AudioFileSniffer.Container.AIFF ? aiffReaders : readers) {
+                    addIfNotNull(list, reader);
+                }
+                containerReaders.put(container, Collections.unmodifiableList(list));
+            }
+            this.containerAudioFileReaders = Collections.unmodifiableMap(containerReaders);
         }
-        return conversion;
-    }
 
-    private static AudioFileReader createCAAudioFileReader() {
-        AudioFileReader reader = null;
-        try {
-            reader = (AudioFileReader)Class.forName("com.tagtraum.casampledsp.CAAudioFileReader").getConstructor().newInstance();
-        } catch (InstantiationException | IllegalAccessException | ClassNotFoundException | NoSuchMethodException | InvocationTargetException e) {
-            LOG.info("No CASampledSP installed.");
+        /**
+         * Finds one of our readers by class name.
+         *
+         * @param className class name, may be {@code null}
+         * @return reader or {@code null}, if not found
+         */
+        private AudioFileReader findAudioFileReader(final String className) {
+            if (className == null) return null;
+            for (final AudioFileReader audioFileReader : new AudioFileReader[]{caAudioFileReader, ffAudioFileReader, aiffAudioFileReader}) {
+                if (audioFileReader != null && className.equals(audioFileReader.getClass().getName())) return audioFileReader;
+            }
+            return null;
         }
-        return reader;
-    }
 
-    private static AudioFileReader createFFAudioFileReader() {
-        AudioFileReader reader = null;
-        try {
-            reader = (AudioFileReader)Class.forName("com.tagtraum.ffsampledsp.FFAudioFileReader").getConstructor().newInstance();
-        } catch (InstantiationException | IllegalAccessException | ClassNotFoundException | NoSuchMethodException | InvocationTargetException e) {
-            LOG.info("No FFSampledSP installed.");
+        private static AudioFileReader findInstalledAudioFileReader(final String className) {
+            try {
+                return ServiceLoader.load(AudioFileReader.class).stream()
+                    .filter(provider -> className.equals(provider.type().getName()))
+                    .map(ServiceLoader.Provider::get)
+                    .findFirst()
+                    .orElse(null);
+            } catch (ServiceConfigurationError e) {
+                if (LOG.isLoggable(Level.FINE)) LOG.log(Level.FINE, "Failed to load " + className, e);
+                return null;
+            }
+        }
+
+        private static MethodHandle findGetAudioInputStreamWithBufferSize(final AudioFileReader audioFileReader) {
+            if (audioFileReader == null) return null;
+            try {
+                return MethodHandles.publicLookup()
+                    .findVirtual(audioFileReader.getClass(), "getAudioInputStream",
+                        MethodType.methodType(AudioInputStream.class, URL.class, Integer.TYPE))
+                    .bindTo(audioFileReader);
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                LOG.log(Level.SEVERE, e.toString(), e);
+                return null;
+            }
+        }
+
+        private static void addIfNotNull(final List<AudioFileReader> audioFileReaders, final AudioFileReader audioFileReader) {
+            if (audioFileReader != null && !audioFileReaders.contains(audioFileReader)) audioFileReaders.add(audioFileReader);
         }
-        return reader;
     }
 
+    /**
+     * Audio file format of a URL together with the provider that recognized it.
+     *
+     * @see #probe(URL)
+     */
+    public static final class Probe {
+
+        private final URL url;
+        private final AudioFileReader audioFileReader;
+        private final AudioFileFormat audioFileFormat;
+
+        private Probe(final URL url, final AudioFileReader audioFileReader, final AudioFileFormat audioFileFormat) {
+            this.url = url;
+            this.audioFileReader = audioFileReader;
+            this.audioFileFormat = audioFileFormat;
+        }
+
+        public URL getURL() {
+            return url;
+        }
+
+        public AudioFileFormat getAudioFileFormat() {
+            return audioFileFormat;
+        }
+
+        /**
+         * Provider that recognized the audio file format.
+         *
+         * @return reader or {@code null}, if the format was recognized by {@link AudioSystem}
+         */
+        AudioFileReader getAudioFileReader() {
+            return audioFileReader;
+        }
+
+        /**
+         * Obtains a new audio input stream from the provider that recognized the
+         * audio file format. Should that fail, all providers are tried, like
+         * {@link ExtAudioSystem#getAudioInputStream(URL, int)} does.
+         *
+         * @param bufferSize buffer size, may be ignored. Use small buffers for low latency.
+         * @return an <code>AudioInputStream</code> object based on the audio file data pointed
+         * to by the URL
+         * @throws UnsupportedAudioFileException if the URL does not point to valid audio
+         * file data recognized by the system
+         * @throws IOException if an I/O exception occurs
+         */
+        public AudioInputStream getAudioInputStream(final int bufferSize) throws UnsupportedAudioFileException, IOException {
+            if (LOG.isLoggable(Level.FINE)) LOG.fine("Opening AudioInputStream for " + url + " with " + audioFileReader);
+            if (audioFileReader == null) {
+                return AudioSystem.getAudioInputStream(url);
+            }
+            try {
+                return ExtAudioSystem.getAudioInputStream(audioFileReader, url, bufferSize);
+            } catch (UnsupportedAudioFileException | IOException e) {
+                LOG.log(Level.WARNING, audioFileReader + " recognized, but failed to open " + url + ". Trying other providers.", e);
+                return ExtAudioSystem.getAudioInputStream(url, bufferSize);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Probe{" +
+                "url=" + url +
+                ", audioFileReader=" + audioFileReader +
+                ", audioFileFormat=" + audioFileFormat +
+                '}';
+        }
+    }
 }
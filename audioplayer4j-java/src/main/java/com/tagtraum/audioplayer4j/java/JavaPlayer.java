@@ -9,13 +9,14 @@ package com.tagtraum.audioplayer4j.java;
 import com.tagtraum.audioplayer4j.AudioDevice;
 import com.tagtraum.audioplayer4j.AudioPlayer;
 import com.tagtraum.audioplayer4j.AudioPlayerListener;
+import com.tagtraum.audioplayer4j.EventExecutors;
+import com.tagtraum.audioplayer4j.ExecutorPropertyChangeSupport;
+import com.tagtraum.audioplayer4j.PositionListener;
+import com.tagtraum.audioplayer4j.TimeTicker;
 import com.tagtraum.audioplayer4j.device.DefaultAudioDevice;
 
 import javax.sound.sampled.*;
-import javax.swing.*;
-import javax.swing.event.SwingPropertyChangeSupport;
 import java.beans.PropertyChangeListener;
-import java.beans.PropertyChangeSupport;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.ref.Cleaner;
@@ -25,13 +26,21 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.prefs.Preferences;
@@ -47,6 +56,11 @@ import static javax.sound.sampled.AudioSystem.NOT_SPECIFIED;
 
 /**
  * Plays an audio resource using standard Java APIs.
+ * <p>
+ * Resources added via {@link #enqueue(URI)} are opened and decoded ahead of time.
+ * If the next resource can be played with the format of the current line,
+ * it is written to the same line without draining and re-opening it,
+ * i.e. playback is gapless.
  *
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  */
@@ -61,32 +75,44 @@ public class JavaPlayer implements AudioPlayer {
     private static final String JAVAPLAYER_BUFFER = "javaplayer.buffer";
     private static final AtomicInteger id = new AtomicInteger(0);
 
-    private final PropertyChangeSupport propertyChangeSupport = new SwingPropertyChangeSupport(this, true);
+    private final ExecutorPropertyChangeSupport propertyChangeSupport = new ExecutorPropertyChangeSupport(this);
     private final ExecutorService serializer;
-    private final List<AudioPlayerListener> audioPlayerListeners = new ArrayList<>();
+    private final List<AudioPlayerListener> audioPlayerListeners = new CopyOnWriteArrayList<>();
+    // copy-on-write array, so that iterating on each write to the line doesn't allocate an iterator
+    private volatile PositionListener[] positionListeners = new PositionListener[0];
+    private final Deque<QueuedSong> queue = new ArrayDeque<>();
+    private final LineListener lineListener = this::lineUpdate;
     private final Cleaner instanceCleaner;
+    private final Threading threading;
 
     private float bufferSizeInSeconds = PREFERENCES.getFloat(JAVAPLAYER_BUFFER,
         Float.parseFloat(System.getProperty(JAVAPLAYER_BUFFER, "" + DEFAULT_BUFFER_SIZE)));
 
+    private Duration readAheadLowWatermark = SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_LOW_WATERMARK;
+    private Duration readAheadHighWatermark = SingleThreadedAudioInputStream.DEFAULT_READ_AHEAD_HIGH_WATERMARK;
     private int minTimeEventDifference = DEFAULT_MIN_TIME_EVENT_DIFFERENCE;
     private URI song;
     private AudioFormat audioFormat;
     private AudioFileFormat audioFileFormat;
+    /** Provider that recognized the song, so that we don't try them all when (re-)opening its stream. */
+    private ExtAudioSystem.Probe probe;
     private Duration duration;
     private SourceDataLine line;
     private float volume = 1f;
     private float effectiveVolume = 1f;
     private SingleThreadedAudioInputStream stream;
     private boolean paused = true;
-    private Duration seekTime = null;
+    /** Pending seek, latest wins. Written while holding the monitor, read without it. */
+    private volatile SeekRequest seekRequest = null;
+    private final SeekStatistics seekStatistics = new SeekStatistics();
     private Duration time = null;
+    private long timeFrame = NOT_SPECIFIED;
     private boolean muted;
     private boolean endOfMedia;
     private boolean unstarted;
     private boolean unfinished;
     private AudioDevice audioDevice = DefaultAudioDevice.getInstance();
-    private StreamLinePump streamLinePump;
+    private volatile StreamLinePump streamLinePump;
     private float gain;
     private Cleaner.Cleanable streamCleanable;
     private Cleaner.Cleanable lineCleanable;
@@ -107,12 +133,46 @@ public class JavaPlayer implements AudioPlayer {
      *                eligible for garbage collection
      */
     public JavaPlayer(final Cleaner cleaner) {
-        this.serializer = java.util.concurrent.Executors.newSingleThreadExecutor(
-            r -> new Thread(r, "Player Thread " + id.incrementAndGet())
-        );
+        this(cleaner, Threading.DEDICATED);
+    }
+
+    /**
+     * Create an instance using the specified cleaner instance and threading model.
+     *
+     * @param cleaner cleaner instance used to ensure proper clean up when this instance becomes
+     *                eligible for garbage collection
+     * @param threading threading model
+     */
+    public JavaPlayer(final Cleaner cleaner, final Threading threading) {
+        Objects.requireNonNull(threading, "Threading must not be null");
+        if (threading == Threading.VIRTUAL && !PlayerExecutors.isVirtualThreadsSupported()) {
+            LOG.warning("Virtual threads are not supported by this Java runtime. Falling back to " + Threading.SHARED + ".");
+            this.threading = Threading.SHARED;
+        } else {
+            this.threading = threading;
+        }
+        if (this.threading == Threading.VIRTUAL) {
+            this.serializer = new SerialExecutor(PlayerExecutors.getVirtualPumpExecutor());
+        } else if (this.threading == Threading.SHARED) {
+            this.serializer = new SerialExecutor(PlayerExecutors.getPumpExecutor());
+        } else {
+            this.serializer = java.util.concurrent.Executors.newSingleThreadExecutor(
+                r -> new Thread(r, "Player Thread " + id.incrementAndGet())
+            );
+        }
         this.instanceCleaner = cleaner;
     }
 
+    /**
+     * Threading model used by this player. This may differ from the requested
+     * model, if {@link Threading#VIRTUAL} was requested, but is not supported.
+     *
+     * @return threading model
+     */
+    public Threading getThreading() {
+        return threading;
+    }
+
     @Override
     public int getMinTimeEventDifference() {
         return minTimeEventDifference;
@@ -138,6 +198,51 @@ public class JavaPlayer implements AudioPlayer {
         }
     }
 
+    /**
+     * Amount of decoded audio below which the decoder resumes reading ahead.
+     *
+     * @return low watermark
+     */
+    public Duration getReadAheadLowWatermark() {
+        return readAheadLowWatermark;
+    }
+
+    /**
+     * Sets the amount of decoded audio below which the decoder resumes reading ahead.
+     * Takes effect when the next song is opened.
+     *
+     * @param readAheadLowWatermark low watermark, must not be negative or greater than
+     *                              the {@link #getReadAheadHighWatermark() high watermark}
+     * @throws IllegalArgumentException if the watermark is invalid
+     */
+    public void setReadAheadLowWatermark(final Duration readAheadLowWatermark) {
+        SingleThreadedAudioInputStream.checkWatermarks(readAheadLowWatermark, this.readAheadHighWatermark);
+        this.readAheadLowWatermark = readAheadLowWatermark;
+    }
+
+    /**
+     * Amount of decoded audio the decoder reads ahead, before it pauses.
+     *
+     * @return high watermark
+     */
+    public Duration getReadAheadHighWatermark() {
+        return readAheadHighWatermark;
+    }
+
+    /**
+     * Sets the amount of decoded audio the decoder reads ahead, before it pauses.
+     * Larger values let slow decoders or slow storage absorb jitter, at the cost
+     * of memory. Takes effect when the next song is opened.
+     *
+     * @param readAheadHighWatermark high watermark, must be positive and not less than
+     *                               the {@link #getReadAheadLowWatermark() low watermark}
+     * @throws IllegalArgumentException if the watermark is invalid
+     */
+    public void setReadAheadHighWatermark(final Duration readAheadHighWatermark) {
+        SingleThreadedAudioInputStream.checkWatermarks(this.readAheadLowWatermark, readAheadHighWatermark);
+        this.readAheadHighWatermark = readAheadHighWatermark;
+    }
+
     @Override
     public void setAudioDevice(final AudioDevice audioDevice) throws IllegalArgumentException {
         Objects.requireNonNull(audioDevice, "AudioDevice must not be null");
@@ -154,16 +259,22 @@ public class JavaPlayer implements AudioPlayer {
                 this.audioDevice = audioDevice;
                 if (this.audioFileFormat != null) {
                     final boolean startPump = streamLinePump != null && streamLinePump.isRunning();
+                    final boolean preroll = streamLinePump != null && streamLinePump.isPrerolling();
                     openLine();
                     if (this.streamLinePump != null) {
-                        this.streamLinePump.stop();
+                        this.streamLinePump.close();
                     }
                     this.streamLinePump = new StreamLinePump(stream, line);
+                    if (preroll) {
+                        this.streamLinePump.preroll();
+                    }
                     this.serializer.submit(streamLinePump);
                     if (startPump) {
                         if (LOG.isLoggable(Level.FINE)) LOG.fine("streamLinePump.start()");
                         this.streamLinePump.start();
                     }
+                    // the new line may have a different format
+                    prepareQueuedSong();
                 }
                 setVolume(this.volume);
                 setMuted(this.muted);
@@ -203,15 +314,8 @@ public class JavaPlayer implements AudioPlayer {
             this.paused = oldPaused;
         }
         try {
-            final URL url = song.toURL();
-            if (url.toString().toLowerCase().endsWith(".m4p")) {
-                throw new UnsupportedAudioFileException("DRM protected content not supported.");
-            }
-            if (url.toString().startsWith("file:")) {
-                final Path file = Paths.get(song);
-                if (Files.notExists(file) || !Files.isReadable(file)) throw new FileNotFoundException(file.toString());
-            }
-            this.audioFileFormat = ExtAudioSystem.getAudioFileFormat(url);
+            this.probe = ExtAudioSystem.probe(toReadableURL(song));
+            this.audioFileFormat = probe.getAudioFileFormat();
             this.duration = getDuration(audioFileFormat);
 
             try {
@@ -223,7 +327,7 @@ public class JavaPlayer implements AudioPlayer {
                 throw reE;
             }
 
-            open(url);
+            open(probe);
 
             internalSetTime(ZERO, false);
             this.streamLinePump = new StreamLinePump(stream, line);
@@ -235,9 +339,11 @@ public class JavaPlayer implements AudioPlayer {
             if (!paused) {
                 play();
             }
+            prepareQueuedSong();
         } catch (Exception e) {
             this.paused = oldPaused;
             this.song = null;
+            this.probe = null;
             this.audioFileFormat = null;
             this.audioFormat = null;
             this.duration = null;
@@ -279,12 +385,161 @@ public class JavaPlayer implements AudioPlayer {
         return null;
     }
 
+    /**
+     * Converts the URI to a URL and makes sure it points to something we can read.
+     *
+     * @param uri uri
+     * @return url
+     * @throws UnsupportedAudioFileException if the resource is DRM protected
+     * @throws IOException if the resource is a file that does not exist or isn't readable
+     */
+    private static URL toReadableURL(final URI uri) throws UnsupportedAudioFileException, IOException {
+        final URL url = uri.toURL();
+        if (url.toString().toLowerCase().endsWith(".m4p")) {
+            throw new UnsupportedAudioFileException("DRM protected content not supported.");
+        }
+        if (url.toString().startsWith("file:")) {
+            final Path file = Paths.get(uri);
+            if (Files.notExists(file) || !Files.isReadable(file)) throw new FileNotFoundException(file.toString());
+        }
+        return url;
+    }
+
+    @Override
+    public void enqueue(final URI song) throws UnsupportedAudioFileException, IOException {
+        Objects.requireNonNull(song, "URI must not be null");
+        if (LOG.isLoggable(Level.FINE)) LOG.fine("enqueue(): " + song);
+        final ExtAudioSystem.Probe probe = ExtAudioSystem.probe(toReadableURL(song));
+        synchronized (queue) {
+            queue.add(new QueuedSong(song, probe));
+        }
+        prepareQueuedSong();
+    }
+
+    @Override
+    public void clearQueue() {
+        final List<QueuedSong> cleared;
+        synchronized (queue) {
+            cleared = new ArrayList<>(queue);
+            queue.clear();
+        }
+        for (final QueuedSong queuedSong : cleared) {
+            queuedSong.discardStream();
+        }
+    }
+
+    /**
+     * Opens the stream for the next queued song and starts decoding it,
+     * if it can be played with the format of the current line.
+     * Does nothing, if that's already the case.
+     * Problems are logged. The song will then be opened regularly, once it's its turn.
+     */
+    private void prepareQueuedSong() {
+        final QueuedSong next;
+        final AudioFormat lineFormat = this.audioFormat;
+        synchronized (queue) {
+            next = queue.peek();
+            if (next == null || lineFormat == null || next.isPreparedFor(lineFormat)) return;
+        }
+        // line format changed since we prepared
+        next.discardStream();
+        if (!toSignedPCM(next.audioFileFormat.getFormat()).matches(lineFormat)) {
+            if (LOG.isLoggable(Level.FINE)) LOG.fine("Not preparing " + next.song + ", because its format "
+                + next.audioFileFormat.getFormat() + " does not match the line format " + lineFormat);
+            return;
+        }
+        try {
+            final SingleThreadedAudioInputStream stream = new SingleThreadedAudioInputStream(next.probe,
+                lineFormat, readAheadLowWatermark, readAheadHighWatermark, getDecoderExecutor());
+            final Cleaner.Cleanable cleanable = instanceCleaner.register(this, new Destroyer(stream));
+            if (!next.setStream(stream, cleanable)) {
+                // prepared concurrently
+                cleanable.clean();
+                return;
+            }
+            stream.prefetch();
+            if (LOG.isLoggable(Level.FINE)) LOG.fine("Prepared " + next.song);
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Failed to prepare " + next.song + ": " + e, e);
+        }
+    }
+
+    /**
+     * Hands the next queued song to a new pump, which keeps writing to the current line.
+     * Called by the pump, when its stream has ended.
+     *
+     * @param pump pump that has reached the end of its stream
+     * @return true, if the next song has been started, false if there is no next song
+     *  or it could not be prepared for the current line
+     */
+    private boolean startQueuedSongGapless(final StreamLinePump pump) {
+        final QueuedSong next;
+        synchronized (queue) {
+            next = queue.peek();
+            if (next == null || !next.isPreparedFor(pump.line.getFormat()) || next.stream == null) return false;
+            queue.poll();
+        }
+        if (LOG.isLoggable(Level.FINE)) LOG.fine("Continuing gapless with " + next.song);
+        final URI oldSong = this.song;
+        final Duration oldDuration = this.duration;
+        this.endOfMedia = true;
+        fireFinished();
+        if (this.streamCleanable != null) {
+            this.streamCleanable.clean();
+        }
+        this.stream = next.stream;
+        this.streamCleanable = next.streamCleanable;
+        this.song = next.song;
+        this.probe = next.probe;
+        this.audioFileFormat = next.audioFileFormat;
+        this.duration = getDuration(next.audioFileFormat);
+        this.endOfMedia = false;
+        this.unstarted = true;
+        this.unfinished = true;
+        internalSetTime(ZERO, true);
+        // the line still holds the end of the previous song
+        this.streamLinePump = new StreamLinePump(stream, line, pump.getLineFramePosition());
+        this.serializer.submit(streamLinePump);
+        if (pump.isRunning()) {
+            // the line keeps running, so there won't be a START event.
+            // the new pump fires started, once the line has played the previous song's tail
+            this.streamLinePump.start();
+        }
+        firePropertyChange("uri", oldSong, this.song);
+        firePropertyChange("duration", oldDuration, this.duration);
+        prepareQueuedSong();
+        return true;
+    }
+
+    /**
+     * Opens the next queued song the regular way, i.e. with a new line.
+     * Called by the pump after the line for the ended song was closed.
+     */
+    private void openQueuedSong() {
+        while (true) {
+            final QueuedSong next;
+            synchronized (queue) {
+                next = queue.poll();
+            }
+            if (next == null) return;
+            next.discardStream();
+            try {
+                open(next.song);
+                return;
+            } catch (IOException | UnsupportedAudioFileException e) {
+                LOG.log(Level.SEVERE, "Failed to open queued song " + next.song + ". Skipping it.", e);
+                fireFailed(next.song, e);
+            }
+        }
+    }
 
     private void reopen() throws InterruptedException, UnsupportedAudioFileException, LineUnavailableException, ExecutionException, IOException {
         if (LOG.isLoggable(Level.FINE)) LOG.fine("Re-opening " + song);
         final boolean startPump = streamLinePump != null && streamLinePump.isRunning();
+        final boolean preroll = streamLinePump != null && streamLinePump.isPrerolling();
+        final PcmSeekCache seekCache = streamLinePump != null ? streamLinePump.seekCache : null;
         if (this.streamLinePump != null) {
-            this.streamLinePump.stop();
+            this.streamLinePump.close();
         }
         // empty current line
         if (line != null && line.isOpen()) {
@@ -294,32 +549,40 @@ public class JavaPlayer implements AudioPlayer {
         if (line != null && !line.isOpen()) {
             openLine();
         }
-        final URL url = song.toURL();
-        if (url.toString().toLowerCase().endsWith(".m4p")) {
-            throw new UnsupportedAudioFileException("DRM protected content not supported.");
-        }
-        if (url.toString().startsWith("file:")) {
-            final Path file = Paths.get(song);
-            if (Files.notExists(file) || !Files.isReadable(file)) throw new FileNotFoundException(file.toString());
-        }
-        open(url);
+        // make sure the file is still there
+        toReadableURL(song);
+        open(probe);
         this.streamLinePump = new StreamLinePump(stream, line);
+        // same song, same format. pumps run one after another on the serializer, so the old pump is done with it
+        if (seekCache != null) this.streamLinePump.seekCache = seekCache;
+        if (preroll) {
+            this.streamLinePump.preroll();
+        }
         this.serializer.submit(streamLinePump);
         if (startPump) {
             this.streamLinePump.start();
         }
     }
 
-    private void open(final URL url) throws UnsupportedAudioFileException, IOException, ExecutionException, InterruptedException {
+    private void open(final ExtAudioSystem.Probe probe) throws UnsupportedAudioFileException, IOException, ExecutionException, InterruptedException {
         if (this.streamCleanable != null) {
             this.streamCleanable.clean();
             this.streamCleanable = null;
         }
         this.stream = null;
-        this.stream = new SingleThreadedAudioInputStream(url, this.audioFormat);
+        this.stream = new SingleThreadedAudioInputStream(probe, this.audioFormat, readAheadLowWatermark, readAheadHighWatermark,
+            getDecoderExecutor());
         this.streamCleanable = instanceCleaner.register(this, new Destroyer(this.stream));
     }
 
+    private Executor getDecoderExecutor() {
+        switch (threading) {
+            case VIRTUAL: return PlayerExecutors.getVirtualDecoderExecutor();
+            case SHARED: return PlayerExecutors.getDecoderExecutor();
+            default: return null;
+        }
+    }
+
     private void openLine() throws LineUnavailableException {
         if (LOG.isLoggable(Level.FINE)) LOG.fine("openLine()");
         final AudioFormat format = audioFileFormat.getFormat();
@@ -347,9 +610,46 @@ public class JavaPlayer implements AudioPlayer {
     }
 
     private void openLine(final AudioFormat desiredFormat) throws LineUnavailableException, IllegalArgumentException {
+        final int bufferSize = desiredFormat.getFrameSize() *  (int)(desiredFormat.getFrameRate() * this.bufferSizeInSeconds);
+        final SourceDataLine pooledLine = LinePool.getInstance().acquire(audioDevice, desiredFormat, bufferSize);
+        final SourceDataLine line = pooledLine != null ? pooledLine : openNewLine(desiredFormat, bufferSize);
+        if (line != this.line) {
+            releaseLine();
+            this.lineCleanable = instanceCleaner.register(this, new LineReleaser(audioDevice, line, bufferSize, lineListener));
+        }
+        this.line = line;
+        this.line.addLineListener(lineListener);
+
+        if (!line.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
+            LOG.warning("Master gain control not supported by line " + line + " for " + desiredFormat);
+        }
+        if (!line.isControlSupported(BooleanControl.Type.MUTE)) {
+            LOG.warning("Mute control not supported by line " + line + " for " + desiredFormat);
+        }
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Requested line buffer: " + bufferSize + ". Obtained: " + this.line.getBufferSize());
+        }
+
+        // restore state from when line was not open/didn't exist
+        updateMasterGainControl();
+        updatedMutedControl();
+    }
+
+    private SourceDataLine openNewLine(final AudioFormat desiredFormat, final int bufferSize) throws LineUnavailableException, IllegalArgumentException {
+        try {
+            return openNewLineOnce(desiredFormat, bufferSize);
+        } catch (LineUnavailableException e) {
+            // idle lines of a different format may be what keeps the device from opening another one
+            final int closed = LinePool.getInstance().clear(audioDevice);
+            if (closed == 0) throw e;
+            LOG.info("Closed " + closed + " idle line(s) on mixer " + audioDevice + ". Retrying...");
+            return openNewLineOnce(desiredFormat, bufferSize);
+        }
+    }
+
+    private SourceDataLine openNewLineOnce(final AudioFormat desiredFormat, final int bufferSize) throws LineUnavailableException, IllegalArgumentException {
         final DataLine.Info lineInfo = new DataLine.Info(SourceDataLine.class, desiredFormat);
         final SourceDataLine line = (SourceDataLine)audioDevice.getLine(lineInfo);
-        final int bufferSize = desiredFormat.getFrameSize() *  (int)(desiredFormat.getFrameRate() * this.bufferSizeInSeconds);
         try {
             line.open(desiredFormat, bufferSize);
         } catch (LineUnavailableException e) {
@@ -365,35 +665,33 @@ public class JavaPlayer implements AudioPlayer {
                 throw e1;
             }
         }
-        if (line != this.line) {
-            if (this.lineCleanable != null) {
-                this.lineCleanable.clean();
-            }
-            this.lineCleanable = instanceCleaner.register(this, new Destroyer(line));
-        }
-        this.line = line;
-        this.line.addLineListener(event -> {
-            if (LineEvent.Type.START.equals(event.getType())) {
-                // fire started when the playback actually starts
-                fireStarted();
-            } else if (LineEvent.Type.CLOSE.equals(event.getType())) {
-                fireFinished();
-            }
-        });
+        return line;
+    }
 
-        if (!line.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
-            LOG.warning("Master gain control not supported by line " + line + " for " + desiredFormat);
-        }
-        if (!line.isControlSupported(BooleanControl.Type.MUTE)) {
-            LOG.warning("Mute control not supported by line " + line + " for " + desiredFormat);
+    /**
+     * Stops the pump writing to the current line and hands the line back to the {@link LinePool}.
+     */
+    private void releaseLine() {
+        if (this.streamLinePump != null) {
+            this.streamLinePump.close();
         }
-        if (LOG.isLoggable(Level.FINE)) {
-            LOG.fine("Requested line buffer: " + bufferSize + ". Obtained: " + this.line.getBufferSize());
+        // forget the line before closing it, the next song may be opened as soon as it is closed
+        final Cleaner.Cleanable lineCleanable = this.lineCleanable;
+        this.lineCleanable = null;
+        this.line = null;
+        if (lineCleanable != null) {
+            lineCleanable.clean();
         }
+    }
 
-        // restore state from when line was not open/didn't exist
-        updateMasterGainControl();
-        updatedMutedControl();
+    private void lineUpdate(final LineEvent event) {
+        if (LineEvent.Type.START.equals(event.getType())) {
+            // fire started when the playback actually starts, but not during a previous song's tail
+            final StreamLinePump pump = this.streamLinePump;
+            if (pump == null || !pump.isStartPending()) fireStarted();
+        } else if (LineEvent.Type.CLOSE.equals(event.getType())) {
+            fireFinished();
+        }
     }
 
     private static AudioFormat toSignedPCM(final AudioFormat format) {
@@ -429,6 +727,25 @@ public class JavaPlayer implements AudioPlayer {
         this.propertyChangeSupport.firePropertyChange("paused", oldPaused, this.paused);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Starts decoding and fills the stopped line's buffer, so that {@link #play()}
+     * merely has to start the line.
+     */
+    @Override
+    public CompletableFuture<Void> prepare() {
+        final StreamLinePump pump = this.streamLinePump;
+        if (audioFileFormat == null || stream == null || line == null || pump == null) {
+            throw new IllegalStateException("Player wasn't opened successfully.");
+        }
+        if (LOG.isLoggable(Level.FINE)) LOG.fine("prepare()");
+        // already playing
+        if (pump.isRunning()) return CompletableFuture.completedFuture(null);
+        stream.prefetch();
+        return pump.preroll();
+    }
+
     @Override
     public void pause() {
         if (line == null) {
@@ -447,6 +764,8 @@ public class JavaPlayer implements AudioPlayer {
         final URI oldSong = song;
         final Duration oldDuration = duration;
         final boolean oldPaused = paused;
+        TimeTicker.unregisterFromAll(this);
+        clearQueue();
         quietClose();
         internalSetTime(null, false);
         this.paused = true;
@@ -460,23 +779,20 @@ public class JavaPlayer implements AudioPlayer {
      */
     private void quietClose() {
         if (LOG.isLoggable(Level.FINE)) LOG.fine("quietClose()");
-        //fireFinished();
+        // pooled lines are not closed, so we won't get a CLOSE event
+        fireFinished();
         if (this.streamCleanable != null) {
             this.streamCleanable.clean();
             this.streamCleanable = null;
         }
         this.stream = null;
         this.song = null;
+        this.probe = null;
         this.audioFileFormat = null;
         this.audioFormat = null;
         this.duration = null;
         this.paused = false;
-
-        if (this.lineCleanable != null) {
-            this.lineCleanable.clean();
-            this.lineCleanable = null;
-        }
-        this.line = null;
+        releaseLine();
     }
 
     @Override
@@ -609,10 +925,26 @@ public class JavaPlayer implements AudioPlayer {
 
     @Override
     public Duration getTime() {
-        if (audioFormat == null || stream == null || streamLinePump == null) {
+        final StreamLinePump pump = this.streamLinePump;
+        if (audioFormat == null || stream == null || pump == null) {
             return null;
         } else {
-            return streamLinePump.getTime();
+            return pump.getTime();
+        }
+    }
+
+    /**
+     * Current playback position in sample frames.
+     * This is the sample-accurate equivalent of {@link #getTime()}.
+     *
+     * @return frame position or {@link AudioSystem#NOT_SPECIFIED}, if no resource is loaded
+     */
+    public long getFramePosition() {
+        final StreamLinePump pump = this.streamLinePump;
+        if (audioFormat == null || stream == null || pump == null) {
+            return NOT_SPECIFIED;
+        } else {
+            return pump.getFramePosition();
         }
     }
 
@@ -627,26 +959,84 @@ public class JavaPlayer implements AudioPlayer {
         this.setSeekTime(time);
     }
 
-    private synchronized Duration getSeekTime() {
-        return seekTime;
+    /**
+     * Statistics about seeking, e.g. the latency from calling {@link #setTime(Duration)}
+     * to playing the first audio from the new position.
+     *
+     * @return seek statistics, never {@code null}
+     */
+    public SeekStatistics getSeekStatistics() {
+        return seekStatistics;
+    }
+
+    private SeekRequest getSeekRequest() {
+        return seekRequest;
+    }
+
+    private Duration getSeekTime() {
+        final SeekRequest seekRequest = this.seekRequest;
+        return seekRequest == null ? null : seekRequest.time;
     }
 
     private synchronized void setSeekTime(final Duration seekTime) {
-        final Duration oldSeekTime = this.seekTime;
-        this.seekTime = seekTime;
+        final SeekRequest oldSeekRequest = this.seekRequest;
+        this.seekRequest = new SeekRequest(seekTime);
         if (LOG.isLoggable(Level.FINE)) {
             LOG.fine("setSeekTime(" + seekTime + ")");
         }
-        if (seekTime != null && !seekTime.equals(oldSeekTime) && line.isOpen()) {
+        // a pending request is simply replaced, the pump only ever executes the latest one
+        seekStatistics.requested(oldSeekRequest != null);
+        if (oldSeekRequest == null && line.isOpen()) {
             line.flush();
         }
+        final StreamLinePump pump = this.streamLinePump;
+        if (pump != null) pump.wakeUp();
     }
 
     private synchronized void resetSeekTime() {
-        setSeekTime(null);
+        this.seekRequest = null;
+    }
+
+    /**
+     * Resets the given seek request, unless it has been superseded by a newer one.
+     *
+     * @param seekRequest seek request that has been executed
+     * @return true, if the request was still current
+     */
+    private synchronized boolean resetSeekRequest(final SeekRequest seekRequest) {
+        if (this.seekRequest != seekRequest) return false;
+        this.seekRequest = null;
+        return true;
     }
 
     private synchronized void internalSetTime(final Duration time, final boolean forceFire) {
+        final AudioFormat format = this.audioFormat;
+        internalSetTime(time, time == null || format == null ? NOT_SPECIFIED : toFrames(time, format.getFrameRate()), forceFire);
+    }
+
+    /**
+     * Sets the current time in frames. Only creates a {@link Duration}, if an
+     * event is actually going to be fired, as this is called after each write to the line.
+     * {@link PositionListener}s are always notified, without holding the player's lock,
+     * so that they may call back into the player from any thread.
+     *
+     * @param frame frame position
+     * @param frameRate frame rate
+     * @param forceFire fire, even if the last event was fired less than
+     *                  {@link #getMinTimeEventDifference()} ms ago
+     */
+    private void internalSetFramePosition(final long frame, final float frameRate, final boolean forceFire) {
+        firePositionChanged(frame, frameRate);
+        synchronized (this) {
+            if (!forceFire && this.time != null && this.timeFrame != NOT_SPECIFIED) {
+                final long diff = frame - this.timeFrame;
+                if (diff >= 0 && diff * 1000f <= minTimeEventDifference * frameRate) return;
+            }
+            internalSetTime(toDuration(frame, frameRate), frame, forceFire);
+        }
+    }
+
+    private void internalSetTime(final Duration time, final long frame, final boolean forceFire) {
         final Duration oldTime = this.time;
         if (this.time == null || time == null) {
 
@@ -655,6 +1045,7 @@ public class JavaPlayer implements AudioPlayer {
             }
 
             this.time = time;
+            this.timeFrame = frame;
             firePropertyChange("time", oldTime, time);
         } else {
             // don't fire more often than once every x milliseconds (minTimeEventDifference)
@@ -666,16 +1057,39 @@ public class JavaPlayer implements AudioPlayer {
                 }
 
                 this.time = time;
+                this.timeFrame = frame;
                 firePropertyChange("time", oldTime, time);
             }
         }
     }
 
+    private void firePositionChanged(final long frame, final float frameRate) {
+        final PositionListener[] listeners = this.positionListeners;
+        if (listeners.length == 0) return;
+        final long micros = Math.round(frame * 1000000.0 / frameRate);
+        for (final PositionListener listener : listeners) {
+            try {
+                listener.positionChanged(this, frame, micros);
+            } catch (RuntimeException e) {
+                LOG.log(Level.SEVERE, "PositionListener failed: " + listener, e);
+            }
+        }
+    }
+
+    private static Duration toDuration(final long frames, final float frameRate) {
+        return Duration.ofNanos(Math.round(frames * 1000000000.0 / frameRate));
+    }
+
+    private static long toFrames(final Duration duration, final float frameRate) {
+        // toNanos() overflows after ~292 years, which we don't expect to see
+        return Math.round(duration.toNanos() * (double) frameRate / 1000000000.0);
+    }
+
     private void fireStarted() {
         if (unstarted) {
             unstarted = false;
             final URI s = song;
-            SwingUtilities.invokeLater(() -> {
+            propertyChangeSupport.getExecutor().execute(() -> {
                 for (final AudioPlayerListener listener : audioPlayerListeners) {
                     listener.started(JavaPlayer.this, s);
                 }
@@ -687,14 +1101,23 @@ public class JavaPlayer implements AudioPlayer {
         if (unfinished && !unstarted) {
             unfinished = false;
             final URI s = song;
-            SwingUtilities.invokeLater(() -> {
+            final boolean e = endOfMedia;
+            propertyChangeSupport.getExecutor().execute(() -> {
                 for (final AudioPlayerListener listener : audioPlayerListeners) {
-                    listener.finished(JavaPlayer.this, s, this.endOfMedia);
+                    listener.finished(JavaPlayer.this, s, e);
                 }
             });
         }
     }
 
+    private void fireFailed(final URI uri, final Exception exception) {
+        propertyChangeSupport.getExecutor().execute(() -> {
+            for (final AudioPlayerListener listener : audioPlayerListeners) {
+                listener.failed(JavaPlayer.this, uri, exception);
+            }
+        });
+    }
+
     private void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
         // do not fire, if both are null
         if (oldValue != null || newValue != null) {
@@ -722,6 +1145,16 @@ public class JavaPlayer implements AudioPlayer {
         this.propertyChangeSupport.removePropertyChangeListener(propertyName, propertyChangeListener);
     }
 
+    @Override
+    public Executor getEventExecutor() {
+        return propertyChangeSupport.getExecutor();
+    }
+
+    @Override
+    public void setEventExecutor(final Executor executor) {
+        propertyChangeSupport.setExecutor(executor == null ? EventExecutors.edt() : executor);
+    }
+
     @Override
     public void addAudioPlayerListener(final AudioPlayerListener listener) {
         audioPlayerListeners.add(listener);
@@ -732,6 +1165,38 @@ public class JavaPlayer implements AudioPlayer {
         audioPlayerListeners.remove(listener);
     }
 
+    /**
+     * Adds a {@link PositionListener}, which is called on the playback thread
+     * after each chunk written to the line and after seeking.
+     * Calls don't allocate any objects. Adding a listener twice has no effect.
+     *
+     * @param listener listener
+     */
+    @Override
+    public synchronized void addPositionListener(final PositionListener listener) {
+        Objects.requireNonNull(listener, "listener must not be null");
+        for (final PositionListener l : positionListeners) {
+            if (l.equals(listener)) return;
+        }
+        final PositionListener[] listeners = Arrays.copyOf(positionListeners, positionListeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        positionListeners = listeners;
+    }
+
+    @Override
+    public synchronized void removePositionListener(final PositionListener listener) {
+        final PositionListener[] listeners = positionListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i].equals(listener)) {
+                final PositionListener[] removed = new PositionListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, removed, 0, i);
+                System.arraycopy(listeners, i + 1, removed, i, listeners.length - i - 1);
+                positionListeners = removed;
+                return;
+            }
+        }
+    }
+
     @Override
     public String toString() {
         return "JavaPlayer{" +
@@ -742,58 +1207,42 @@ public class JavaPlayer implements AudioPlayer {
             ", paused=" + paused +
             ", stream=" + stream +
             ", bufferSizeInSeconds=" + bufferSizeInSeconds +
+            ", readAheadLowWatermark=" + readAheadLowWatermark +
+            ", readAheadHighWatermark=" + readAheadHighWatermark +
+            ", threading=" + threading +
             '}';
     }
 
-    private static class Volume24Bit {
-
+    /**
+     * Threading model of a {@link JavaPlayer}.
+     */
+    public enum Threading {
         /**
-         * A constant holding the minimum value a <code>signed24bit</code> can
-         * have, -2<sup>22</sup>.
+         * Each player uses its own thread and each opened stream
+         * uses its own decoder thread.
          */
-        private static final int MIN_VALUE_24BIT = -2 << 22;
-
+        DEDICATED,
         /**
-         * A constant holding the maximum value a <code>signed24bit</code> can
-         * have, 2<sup>22</sup>-1.
+         * All players share a pool of player threads and a pool of
+         * decoder threads, which is sized to the number of available cores.
+         * Tasks of each player and stream are still executed in order.
+         * Recommended, when many players are kept open at the same time.
+         * <p>
+         * Note that only the decoder pool is bounded. A player blocks while writing to its line,
+         * so it holds a player thread for as long as it plays. Paused players don't hold one.
+         * The number of player threads therefore grows with the number of players that play
+         * at the same time. To avoid this, use {@link #VIRTUAL}.
          */
-        private static final int MAX_VALUE_24BIT = -MIN_VALUE_24BIT-1;
-
-        public void filter(final byte[] buffer, final AudioFormat format, final float volume) {
-            final int bytesPerChannel = format.getFrameSize() / format.getChannels();
-            for (int frame = 0; frame<buffer.length/bytesPerChannel; frame++) {
-                final int sample = byteToSample(buffer, bytesPerChannel, frame);
-                int scaledSample = (int)(sample*volume);
-                if (scaledSample > MAX_VALUE_24BIT) scaledSample = MAX_VALUE_24BIT;
-                else if (scaledSample < MIN_VALUE_24BIT) scaledSample = MIN_VALUE_24BIT;
-                writeSample(scaledSample, buffer, bytesPerChannel, frame);
-            }
-        }
-
-        private int byteToSample(final byte[] bytes, final int bytesPerChannel, final int sampleOffset) {
-            int sample = 0;
-            for (int byteIndex=0; byteIndex<bytesPerChannel; byteIndex++) {
-                final int aByte = bytes[sampleOffset*bytesPerChannel+byteIndex] & 0xff;
-                //sample += aByte << (8*(bytesPerChannel-byteIndex-1));
-
-                // little endian:
-                sample += aByte << (8*byteIndex);
-            }
-            return sample > MAX_VALUE_24BIT ? sample + MIN_VALUE_24BIT + MIN_VALUE_24BIT : sample;
-        }
-
-        private void writeSample(final int sample, final byte[] bytes, final int bytesPerChannel, final int sampleOffset) {
-            for (int byteIndex=0; byteIndex<bytesPerChannel; byteIndex++) {
-                //final int shift = 8 * (bytesPerChannel - byteIndex - 1);
-
-                // little endian:
-                final int shift = 8 * byteIndex;
-                bytes[sampleOffset*bytesPerChannel+byteIndex] = (byte)(sample >>> shift);
-            }
-        }
+        SHARED,
+        /**
+         * Players and decoding run on virtual threads, so that a loaded, but
+         * paused player does not tie up a platform thread.
+         * Recommended, when thousands of players are kept open at the same time.
+         * Requires Java 21 or later. On older runtimes {@link #SHARED} is used instead.
+         */
+        VIRTUAL
     }
 
-
     /**
      * Pumps data from a stream to the line in a <code>run()</code> loop.
      * The loop automatically breaks, if the line is closed or the stream
@@ -804,120 +1253,360 @@ public class JavaPlayer implements AudioPlayer {
         private final SourceDataLine line;
         private final boolean useCustomGainControl;
         private final SingleThreadedAudioInputStream stream;
-        private long lineTimeDiff; // TODO: Use frames instead of timestamps
+        // not using the monitor, because waiting on it pins virtual threads to their carrier
+        private final ReentrantLock runningLock = new ReentrantLock();
+        private final Condition runningChanged = runningLock.newCondition();
+        // held while writing, so that close() can wait for the last write
+        private final ReentrantLock writeLock = new ReentrantLock();
+        private final float frameRate;
+        private final int frameSize;
+        /** Line frame position minus stream frame position. Only written by the pump. */
+        private volatile long lineFrameDiff;
+        /** Whether this pump continues to write to a line after another pump, see {@link #startQueuedSongGapless(StreamLinePump)}. */
+        private final boolean continuation;
+        /**
+         * Line frame position of the stream's first frame, while the line is still playing the previous song's tail.
+         * {@code NOT_SPECIFIED} once started has been fired or if this pump is not a continuation.
+         */
+        private volatile long startLineFrame = NOT_SPECIFIED;
         private boolean running;
+        /**
+         * Whether {@link #run()} has returned to free the serializer's thread, because there was
+         * nothing to do while the line is stopped. Guarded by {@link #runningLock}.
+         */
+        private boolean parked;
+        /** Whether {@link #run()} has been called before, i.e. it continues after being parked. */
+        private boolean resumed;
+        /** Audio read from the stream, but not written to the line yet. Allocated on first run. */
+        private byte[] buf;
+        private volatile boolean closed;
+        /** Whether to fill the line's buffer while it is stopped, see {@link JavaPlayer#prepare()}. */
+        private volatile boolean preroll;
+        /** Completes, once the stopped line's buffer is full. */
+        private final CompletableFuture<Void> prerolled = new CompletableFuture<>();
+        /** Recently decoded audio for backward seeks, {@code null} if turned off. Only used by the pump. */
+        private PcmSeekCache seekCache;
+        /** Next frame to read from {@link #seekCache} or {@code NOT_SPECIFIED}, if not replaying. */
+        private long replayFrame = NOT_SPECIFIED;
+        /** Stream frame position at which replaying from {@link #seekCache} ends. */
+        private long replayEnd;
+        /** Whether the most recent read was served from {@link #seekCache}. */
+        private boolean readFromCache;
+        /** Completed seek request, whose first write to the running line is still outstanding. For {@link #seekStatistics}. */
+        private SeekRequest unplayedSeekRequest;
 
         private StreamLinePump(final SingleThreadedAudioInputStream stream, final SourceDataLine line) {
+            this(stream, line, false);
+            markLineFrameDiff(getStreamFramePosition());
+        }
+
+        /**
+         * Creates a pump that continues writing to a line, after another pump has written
+         * up to the given line frame position.
+         *
+         * @param stream new stream, not read from yet
+         * @param line line
+         * @param lineFramePosition line frame position at which the first frame of the stream is going to be played
+         */
+        private StreamLinePump(final SingleThreadedAudioInputStream stream, final SourceDataLine line, final long lineFramePosition) {
+            this(stream, line, true);
+            this.lineFrameDiff = lineFramePosition - getStreamFramePosition();
+            this.startLineFrame = lineFramePosition;
+        }
+
+        private StreamLinePump(final SingleThreadedAudioInputStream stream, final SourceDataLine line, final boolean continuation) {
             if (!line.isOpen()) throw new IllegalStateException("Line must be open, but isn't: " + line);
             this.line = line;
             this.running = line.isRunning();
             this.useCustomGainControl = line.getFormat().getSampleSizeInBits() == 24
                 && !line.isControlSupported(FloatControl.Type.MASTER_GAIN);
             this.stream = stream;
-            markLineTimeDiff(getStreamTime());
+            this.frameRate = line.getFormat().getFrameRate();
+            this.frameSize = line.getFormat().getFrameSize();
+            this.continuation = continuation;
+            // seekable streams never replay from the cache, don't copy everything into it
+            this.seekCache = stream.isSeekable() ? null : PcmSeekCache.create(frameSize, frameRate);
+        }
+
+        private boolean isRunning() {
+            runningLock.lock();
+            try {
+                return running;
+            } finally {
+                runningLock.unlock();
+            }
+        }
+
+        private void setRunning(final boolean running) {
+            runningLock.lock();
+            try {
+                final boolean oldRunning = this.running;
+                this.running = running;
+                if (oldRunning != running) {
+                    if (LOG.isLoggable(Level.FINE)) LOG.fine("Pump: running = " + this.running + ", Line: isActive=" + line.isActive()
+                        + ", isRunning=" + line.isRunning()
+                        + ", isOpen=" + line.isOpen());
+                    if (running) wakeUp();
+                    else runningChanged.signalAll();
+                }
+            } finally {
+                runningLock.unlock();
+            }
+        }
+
+        /**
+         * Lets the pump continue, either by resubmitting it, if it is parked,
+         * or by waking it up, if it's waiting.
+         */
+        private void wakeUp() {
+            runningLock.lock();
+            try {
+                if (parked) {
+                    parked = false;
+                    if (!closed) {
+                        if (LOG.isLoggable(Level.FINE)) LOG.fine("Resuming parked pump");
+                        serializer.submit(this);
+                    }
+                } else {
+                    runningChanged.signalAll();
+                }
+            } finally {
+                runningLock.unlock();
+            }
         }
 
-        private synchronized boolean isRunning() {
-            return running;
+        /**
+         * Marks this pump as parked, if it has nothing to do, i.e. the line is stopped,
+         * there is no seek request and nothing to pre-roll.
+         * The caller must then return from {@link #run()}, so that the serializer's thread is freed
+         * until {@link #wakeUp()} resubmits the pump.
+         *
+         * @return true, if parked
+         */
+        private boolean park() {
+            runningLock.lock();
+            try {
+                if (running || closed || getSeekTime() != null || preroll && !prerolled.isDone()) return false;
+                if (LOG.isLoggable(Level.FINE)) LOG.fine("Parking pump while the line is stopped");
+                parked = true;
+                return true;
+            } finally {
+                runningLock.unlock();
+            }
         }
 
-        private synchronized void setRunning(final boolean running) {
-            final boolean oldRunning = this.running;
-            this.running = running;
-            if (oldRunning != running) {
-                if (LOG.isLoggable(Level.FINE)) LOG.fine("Pump: running = " + this.running + ", Line: isActive=" + line.isActive()
-                    + ", isRunning=" + line.isRunning()
-                    + ", isOpen=" + line.isOpen());
-                notifyAll();
+        /**
+         * Lets the pump fill the line's buffer while the line is stopped.
+         *
+         * @return future that completes, once the line's buffer is full,
+         *  the stream has ended or this pump is closed
+         */
+        private CompletableFuture<Void> preroll() {
+            this.preroll = true;
+            // wake up the pump, if it's waiting for the line to start
+            wakeUp();
+            if (closed) prerolled.complete(null);
+            return prerolled;
+        }
+
+        private boolean isPrerolling() {
+            return preroll;
+        }
+
+        /**
+         * Indicates whether started has not been fired yet, because the line is
+         * still playing the previous song's tail.
+         *
+         * @return true or false
+         */
+        private boolean isStartPending() {
+            return startLineFrame != NOT_SPECIFIED;
+        }
+
+        /**
+         * Fires started for a continuation, once the running line has reached the stream's first frame.
+         *
+         * @param force fire, even if the line hasn't reached the first frame yet
+         */
+        private void fireStartedWhenReached(final boolean force) {
+            final long startLineFrame = this.startLineFrame;
+            if (startLineFrame == NOT_SPECIFIED) return;
+            if (force || isRunning() && line.getLongFramePosition() >= startLineFrame) {
+                this.startLineFrame = NOT_SPECIFIED;
+                fireStarted();
+            }
+        }
+
+        /**
+         * Waits at most 100ms or until running was changed.
+         *
+         * @throws InterruptedException if interrupted
+         */
+        private void awaitRunningChange() throws InterruptedException {
+            runningLock.lock();
+            try {
+                runningChanged.await(100, TimeUnit.MILLISECONDS);
+            } finally {
+                runningLock.unlock();
             }
         }
 
         public void stop() {
+            if (closed) return;
             this.line.stop();
             setRunning(false);
         }
 
+        /**
+         * Stops this pump for good and waits until it does not write to the line anymore.
+         * Afterwards the line may be re-used by someone else.
+         */
+        public void close() {
+            if (closed) return;
+            closed = true;
+            // also unblocks a pending write
+            this.line.stop();
+            this.line.flush();
+            writeLock.lock();
+            writeLock.unlock();
+            setRunning(false);
+            prerolled.complete(null);
+        }
+
+        /**
+         * Indicates whether the line is open and this pump may still write to it.
+         *
+         * @return true or false
+         */
+        private boolean isLineOpen() {
+            return !closed && line.isOpen();
+        }
+
         public void start() {
             // NOTE: Starting the line does not lead to a START LineEvent, unless
             //       something actually gets written to the line.
             //       that's why we have to start the pump as well.
+            if (closed) return;
             this.line.start();
             setRunning(true);
         }
 
         public Duration getTime() {
-            synchronized (JavaPlayer.this) {
-                final Duration time;
+            // report the requested time while seeking, not its frame approximation
+            final Duration seekTime = getSeekTime();
+            if (seekTime != null) return seekTime;
+            return toDuration(getFramePosition(), frameRate);
+        }
+
+        /**
+         * Current frame position. Does not lock, so that polling the position
+         * (e.g. from a UI timer) never blocks the pump.
+         * <p>
+         * When a seek completes, the pump first updates {@link #lineFrameDiff} and
+         * then resets the seek time. So if no seek time is set before and after
+         * reading the line position and the line frame diff is unchanged,
+         * the values read belong together. Otherwise we simply read again.
+         *
+         * @return frame position
+         */
+        public long getFramePosition() {
+            while (true) {
+                final long framePosition;
                 final Duration seekTime = getSeekTime();
+                final long lineFrameDiff = this.lineFrameDiff;
                 if (seekTime != null) {
-                    time = seekTime;
-                } else if (line != null && line.isOpen()) {
-                    time = of(line.getMicrosecondPosition() - lineTimeDiff, MICROS);
+                    framePosition = toFrames(seekTime, frameRate);
+                } else if (isLineOpen()) {
+                    // negative while the line still plays the end of a previous song
+                    framePosition = Math.max(0L, line.getLongFramePosition() - lineFrameDiff);
+                    if (getSeekTime() != null || lineFrameDiff != this.lineFrameDiff) continue;
                 } else {
-                    time = getStreamTime();
+                    framePosition = getStreamFramePosition();
                 }
                 if (LOG.isLoggable(Level.FINE))
-                    LOG.fine("time=" + time
+                    LOG.fine("framePosition=" + framePosition
                         + ", seekTime=" + seekTime
-                        + ", streamTime=" + getStreamTime()
-                        + (line == null ? ", line=null" :
-                        ", line.open=" + line.isOpen() + ", line.active=" + line.isActive()
-                            + ", line.running=" + line.isRunning()
-                            + ", line.TimeDiff=" + lineTimeDiff
-                            + ", line.MicrosecondPosition=" + line.getMicrosecondPosition()));
-                return time;
+                        + ", streamFramePosition=" + getStreamFramePosition()
+                        + ", line.open=" + line.isOpen() + ", line.active=" + line.isActive()
+                        + ", line.running=" + line.isRunning()
+                        + ", line.FrameDiff=" + lineFrameDiff
+                        + ", line.LongFramePosition=" + line.getLongFramePosition());
+                return framePosition;
             }
         }
 
-        private Duration getStreamTime() {
-            if (stream == null || audioFormat == null) return null;
-            else return of((long) (stream.getFrameNumber() / audioFormat.getSampleRate() * 1000000), MICROS);
+        private long getStreamFramePosition() {
+            return stream.getFrameNumber();
+        }
+
+        /**
+         * Line frame position at which the next frame read from the stream
+         * is going to be played.
+         *
+         * @return line frame position
+         */
+        private long getLineFramePosition() {
+            return getStreamFramePosition() + lineFrameDiff;
         }
 
         @Override
         public void run() {
-            markLineTimeDiff(getStreamTime());
-            final AudioFormat lineFormat = line.getFormat();
-            final int bytesPerSecond = lineFormat.getFrameSize() * (int)lineFormat.getSampleRate();
-            if (LOG.isLoggable(Level.FINE)) {
-                LOG.fine("Line data rate in bytes/s: " + bytesPerSecond);
-                LOG.fine("Required buffer size for 10s: " + (bytesPerSecond*10));
+            if (!resumed) {
+                resumed = true;
+                if (!continuation) markLineFrameDiff(getStreamFramePosition());
+                final AudioFormat lineFormat = line.getFormat();
+                final int bytesPerSecond = lineFormat.getFrameSize() * (int) lineFormat.getSampleRate();
+                if (LOG.isLoggable(Level.FINE)) {
+                    LOG.fine("Line data rate in bytes/s: " + bytesPerSecond);
+                    LOG.fine("Required buffer size for 10s: " + (bytesPerSecond * 10));
+                }
+                buf = new byte[10 * bytesPerSecond];
             }
-            final byte[] buf = new byte[10 * bytesPerSecond];
+            final byte[] buf = this.buf;
             int justRead;
+            boolean parking = false;
             try {
-                while (line.isOpen()) {
+                while (isLineOpen()) {
                     // if (isStopped()) throw new InterruptedException("Stopping " + this);
                     // seek with seek()
                     seekWithSeekableStream();
 
                     // if (isStopped()) throw new InterruptedException("Stopping " + this);
 
-                    final Duration seekTime = getSeekTime();
-                    final Duration streamTime = getStreamTime();
+                    final SeekRequest seekRequest = getSeekRequest();
+                    final Duration seekTime = seekRequest == null ? null : seekRequest.time;
+                    final long streamFramePosition = getStreamFramePosition();
                     if (LOG.isLoggable(Level.FINE)) {
-                        LOG.fine("seekTime=" + seekTime + ", streamTime=" + streamTime);
+                        LOG.fine("seekTime=" + seekTime + ", streamFramePosition=" + streamFramePosition);
                     }
 
-                    if (seekTime == null || streamTime == null) {
+                    if (seekTime == null || audioFormat == null) {
                         if (LOG.isLoggable(Level.FINE)) {
                             LOG.fine("Reading, NOT seeking");
                         }
                         // regular read (no seeking)
-                        justRead = stream.read(buf);
+                        justRead = read(buf);
                         if (justRead < 0) {
                             if (LOG.isLoggable(Level.FINE)) {
                                 LOG.fine("Stream has ended.");
                             }
                             if (seekTime == null) {
-                                // stream has ended
+                                // stream has ended, a very short song may not have been reached yet
+                                fireStartedWhenReached(true);
+                                if (startQueuedSongGapless(this)) {
+                                    // another pump takes over the line
+                                    return;
+                                }
                                 if (LOG.isLoggable(Level.FINE)) {
                                     LOG.fine("line.drain()");
                                 }
                                 line.drain();
                                 // if (isStopped()) throw new InterruptedException("Stopping " + this);
                                 JavaPlayer.this.endOfMedia = true;
+                                // don't rely on the asynchronous CLOSE event, we may open the next song right away
+                                fireFinished();
                                 quietClose();
+                                openQueuedSong();
                                 break;
                             } else {
                                 // we are still seeking and should not simply
@@ -926,38 +1615,48 @@ public class JavaPlayer implements AudioPlayer {
                                 justRead = 0;
                             }
                         }
-                        internalSetTime(getTime(), false);
+                        internalSetFramePosition(getFramePosition(), frameRate, false);
                     } else {
                         if (LOG.isLoggable(Level.FINE)) {
                             LOG.fine("Seeking, NOT reading");
                         }
                         // we are in seek mode - are we already past the seek point?
-                        if (seekTime.compareTo(streamTime) >= 0) {
-                            // keep on reading, until we reach seekTime
+                        final long seekFrame = toFrames(seekTime, frameRate);
+                        replayFrame = NOT_SPECIFIED;
+                        final boolean cached = seekFrame < streamFramePosition && seekCache != null
+                            && seekCache.contains(seekFrame, streamFramePosition);
+                        long fromFrame = streamFramePosition;
+                        if (!cached && (seekFrame < streamFramePosition || seekFrame - streamFramePosition > frameRate)) {
+                            // decode from a checkpoint close to seekTime, instead of everything before it
+                            final long restartFrame = restart(seekFrame);
+                            if (restartFrame != NOT_SPECIFIED) {
+                                fromFrame = restartFrame;
+                            }
+                        }
+                        if (seekFrame >= fromFrame) {
+                            // skip ahead, until we reach seekTime
                             if (LOG.isLoggable(Level.FINE)) {
                                 LOG.fine("seekTime >= streamTime: Skipping ahead in stream");
                             }
-                            long bytesStillToSkip = getBytesToSkip(lineFormat, seekTime, streamTime);
+                            final long framesToSkip = seekFrame - fromFrame;
+                            final long skipped = skip(framesToSkip, seekRequest);
+                            if (skipped >= 0 && skipped < framesToSkip) {
+                                // stream end - seek time is unreachable
+                                quietClose();
+                                return;
+                            }
                             justRead = 0;
-                            while (bytesStillToSkip > 0) {
-                                justRead = stream.read(buf);
-                                if (justRead < 0) {
-                                    // stream end - seek time is unreachable
-                                    quietClose();
-                                    return;
-                                } else {
-                                    if (justRead > bytesStillToSkip) {
-                                        // we have already read audio we want to play
-                                        // lets drop the parts we don't want to play
-                                        System.arraycopy(buf, (int)bytesStillToSkip, buf, 0, justRead-(int)bytesStillToSkip);
-                                        justRead = justRead - (int)bytesStillToSkip;
-                                        bytesStillToSkip = 0;
-                                    } else {
-                                        bytesStillToSkip -= justRead;
-                                    }
-                                }
+                            // otherwise superseded, the next iteration takes care of the newer request
+                            if (skipped >= 0) reachedSeekFrame(seekRequest, seekFrame);
+                        } else if (cached) {
+                            // we've already read past seekTime, but still have the audio in memory
+                            if (LOG.isLoggable(Level.FINE)) {
+                                LOG.fine("seekTime < streamTime: replay from seek cache");
                             }
-                            reachedSeekTime(seekTime);
+                            replayFrame = seekFrame;
+                            replayEnd = streamFramePosition;
+                            justRead = 0;
+                            reachedSeekFrame(seekRequest, seekFrame);
                         } else {
                             // we've already read past seekTime: we need to re-open the stream
                             if (LOG.isLoggable(Level.FINE)) {
@@ -967,6 +1666,7 @@ public class JavaPlayer implements AudioPlayer {
                                 reopen();
                             } catch (UnsupportedAudioFileException | LineUnavailableException | ExecutionException e) {
                                 LOG.log(Level.SEVERE, "Failed to seek, re-open " + getURI(), e);
+                                fireFailed(getURI(), e);
                             }
                             return;
                         }
@@ -983,14 +1683,33 @@ public class JavaPlayer implements AudioPlayer {
 
                     // wait until the line is actually running
                     // or we want to seek
-                    while (line.isOpen() && !isRunning() && getSeekTime() == null) {
-                        synchronized (this) {
-                            this.wait(100);
+                    // or there is room to pre-roll into the stopped line
+                    int writable = justRead;
+                    while (isLineOpen() && !isRunning() && getSeekTime() == null) {
+                        if (preroll) {
+                            // never block while the line is stopped
+                            final int available = line.available();
+                            writable = Math.min(justRead, available - available % frameSize);
+                            if (writable > 0) break;
+                            prerolled.complete(null);
+                        }
+                        // don't occupy a possibly shared thread, while there is nothing to do.
+                        // the serializer runs the pump again only after we have returned
+                        if (park()) {
+                            if (justRead > 0) unread(buf, 0, justRead);
+                            parking = true;
+                            return;
                         }
+                        awaitRunningChange();
                     }
                     int written = 0;
                     if (getSeekTime() == null) {
-                        written = writeToLine(line, buf, justRead);
+                        written = writeToLine(line, buf, isRunning() ? justRead : writable);
+                        if (written > 0 && unplayedSeekRequest != null) {
+                            // only measure seeks that complete and play without pausing in between
+                            if (isRunning()) seekStatistics.completed(System.nanoTime() - unplayedSeekRequest.nanos);
+                            unplayedSeekRequest = null;
+                        }
                         if (LOG.isLoggable(Level.FINE)) {
                             LOG.fine("End of write loop for " + justRead + " bytes. Wrote " + written + " bytes");
                         }
@@ -999,40 +1718,138 @@ public class JavaPlayer implements AudioPlayer {
                         if (LOG.isLoggable(Level.FINE)) {
                             LOG.fine("Unreading " + (justRead - written) + " bytes to stream.");
                         }
-                        stream.unread(buf, written, justRead-written);
+                        unread(buf, written, justRead-written);
                     }
                 }
                 resetSeekTime();
             } catch (IOException e) {
                 resetSeekTime();
                 LOG.log(Level.SEVERE, "An IOException occurred: " + e, e);
+                fireFailed(song, e);
             } catch (InterruptedException e) {
                 if (LOG.isLoggable(Level.FINE)) LOG.log(Level.FINE, "Pump was stopped: " + this, e);
             } catch (RuntimeException e) {
                 LOG.log(Level.SEVERE, "A RuntimeException occurred: " + e, e);
+                fireFailed(song, e);
                 throw e;
+            } finally {
+                // nothing more to pre-roll
+                if (!parking) prerolled.complete(null);
             }
         }
 
-        private void reachedSeekTime(final Duration seekTime) {
-            if (LOG.isLoggable(Level.FINE)) {
-                LOG.fine("Reached seekTime " + seekTime);
+        /**
+         * Restarts the stream close to the given frame, if it is not seekable.
+         *
+         * @param seekFrame frame to seek to
+         * @return frame the stream continues at, or {@code NOT_SPECIFIED}, if it was not restarted
+         */
+        private long restart(final long seekFrame) {
+            try {
+                return stream.restart(seekFrame);
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to restart " + song + " at frame " + seekFrame, e);
+                return NOT_SPECIFIED;
             }
-            markLineTimeDiff(seekTime);
-            resetSeekTime();
-            // force fire
-            internalSetTime(getTime(), true);
         }
 
-        private long getBytesToSkip(final AudioFormat lineFormat, final Duration seekTime, final Duration currentTime) {
-            final Duration timeToSkip = seekTime.minus(currentTime);
-            long bytesStillToSkip;
-            try {
-                bytesStillToSkip = ((long) (timeToSkip.toNanos() * lineFormat.getSampleRate() / (1000L * 1000L * 1000L))) * lineFormat.getFrameSize();
-            } catch (ArithmeticException e) {
-                bytesStillToSkip = ((long) (timeToSkip.toMillis() * lineFormat.getSampleRate() / 1000L)) * lineFormat.getFrameSize();
+        /**
+         * Skips frames in slices of about one second, so that a newer seek request
+         * does not have to wait for an outdated one to finish skipping.
+         *
+         * @param frames number of frames to skip
+         * @param seekRequest seek request that is being executed
+         * @return number of frames skipped, less than requested, if the stream ended,
+         * or {@code -1}, if the request was superseded
+         * @throws IOException if skipping fails
+         */
+        private long skip(final long frames, final SeekRequest seekRequest) throws IOException {
+            final long slice = Math.max(1L, (long) frameRate);
+            long skipped = 0;
+            while (skipped < frames) {
+                if (getSeekRequest() != seekRequest) {
+                    if (LOG.isLoggable(Level.FINE)) LOG.fine("Seek to " + seekRequest.time + " superseded after skipping " + skipped + " frames");
+                    return -1;
+                }
+                final long length = Math.min(slice, frames - skipped);
+                final long justSkipped = stream.skip(length);
+                skipped += justSkipped;
+                if (justSkipped < length) break;
+            }
+            return skipped;
+        }
+
+        /**
+         * Reads from the {@link #seekCache} while replaying, otherwise from the stream.
+         *
+         * @param buf buffer
+         * @return number of bytes read or {@code -1} at the end of the stream
+         * @throws IOException if reading fails
+         */
+        private int read(final byte[] buf) throws IOException {
+            readFromCache = false;
+            if (replayFrame != NOT_SPECIFIED) {
+                if (replayFrame < replayEnd) {
+                    final int length = (int) Math.min(buf.length, (replayEnd - replayFrame) * frameSize);
+                    final int justRead = seekCache.read(replayFrame, buf, 0, length);
+                    if (justRead > 0) {
+                        replayFrame += justRead / frameSize;
+                        readFromCache = true;
+                        return justRead;
+                    }
+                    // cannot happen, as nothing is added to the cache while replaying
+                    LOG.warning("Seek cache is missing frame " + replayFrame + ". Skipping to " + replayEnd);
+                }
+                // caught up with the stream
+                replayFrame = NOT_SPECIFIED;
+            }
+            return readStream(buf);
+        }
+
+        /**
+         * Reads from the stream and remembers the decoded audio in the {@link #seekCache}.
+         *
+         * @param buf buffer
+         * @return number of bytes read or {@code -1} at the end of the stream
+         * @throws IOException if reading fails
+         */
+        private int readStream(final byte[] buf) throws IOException {
+            final long frame = getStreamFramePosition();
+            final int justRead = stream.read(buf);
+            if (justRead > 0 && seekCache != null) {
+                seekCache.put(frame, buf, 0, justRead);
+            }
+            return justRead;
+        }
+
+        /**
+         * Pushes back data returned by the most recent {@link #read(byte[])}.
+         *
+         * @param buf buffer
+         * @param off offset
+         * @param length length
+         */
+        private void unread(final byte[] buf, final int off, final int length) {
+            if (readFromCache) replayFrame -= length / frameSize;
+            else stream.unread(buf, off, length);
+        }
+
+        private void reachedSeekFrame(final SeekRequest seekRequest, final long seekFrame) {
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.fine("Reached seekTime " + seekRequest.time + " (frame " + seekFrame + ")");
+            }
+            // drop anything written between the request and the pump noticing it
+            line.flush();
+            markLineFrameDiff(seekFrame);
+            // the previous song's tail is gone
+            if (isStartPending()) startLineFrame = line.getLongFramePosition();
+            if (resetSeekRequest(seekRequest)) {
+                unplayedSeekRequest = isRunning() ? seekRequest : null;
+                // force fire
+                internalSetFramePosition(getFramePosition(), frameRate, true);
+            } else if (LOG.isLoggable(Level.FINE)) {
+                LOG.fine("Seek to " + seekRequest.time + " was superseded");
             }
-            return bytesStillToSkip;
         }
 
         /**
@@ -1047,7 +1864,7 @@ public class JavaPlayer implements AudioPlayer {
         private int writeToLine(final SourceDataLine line, final byte[] buf, final int length) throws InterruptedException {
             final AudioFormat lineFormat = line.getFormat();
             int pos = 0;
-            while (pos < length && line.isOpen()) {
+            while (pos < length && isLineOpen()) {
                 if (LOG.isLoggable(Level.FINE)) {
                     LOG.fine("Wrote " + pos + "/" + length + " bytes, line.isRunning()=" + line.isRunning());
                 }
@@ -1077,7 +1894,14 @@ public class JavaPlayer implements AudioPlayer {
                 if (LOG.isLoggable(Level.FINE)) {
                     LOG.fine("Attempt at writing " + chunkLength + " bytes to line... (line.isActive=" + line.isActive() + ", line.isRunning=" + line.isRunning() + ")");
                 }
-                final int written = line.write(buf, pos, chunkLength);
+                final int written;
+                writeLock.lock();
+                try {
+                    if (closed) break;
+                    written = line.write(buf, pos, chunkLength);
+                } finally {
+                    writeLock.unlock();
+                }
                 pos += written;
                 if (LOG.isLoggable(Level.FINE)) {
                     LOG.fine("Written: " + written + " bytes");
@@ -1086,13 +1910,14 @@ public class JavaPlayer implements AudioPlayer {
                 if (getSeekTime() != null) {
                     break;
                 }
-                internalSetTime(getTime(), false);
+                internalSetFramePosition(getFramePosition(), frameRate, false);
+                fireStartedWhenReached(false);
                 if (written == 0) {
+                    // the line was stopped, let the caller wait for it to start again
+                    if (!isRunning()) break;
                     // wait a little to make this less of a busy wait
                     // we will be notified, when a line event occurs (start/stop)
-                    synchronized (this) {
-                        this.wait(100);
-                    }
+                    awaitRunningChange();
                 }
             }
             return pos;
@@ -1121,16 +1946,15 @@ public class JavaPlayer implements AudioPlayer {
          * method.
          */
         private void seekWithSeekableStream() throws InterruptedException {
-            final Duration seekTime = getSeekTime();
-            if (seekTime != null) {
+            final SeekRequest seekRequest = getSeekRequest();
+            if (seekRequest != null) {
+                final Duration seekTime = seekRequest.time;
                 try {
                     final boolean seekable = stream.isSeekable();
                     if (seekable) {
+                        replayFrame = NOT_SPECIFIED;
                         stream.seek(seekTime);
-                        markLineTimeDiff(seekTime);
-                        resetSeekTime();
-                        // force fire
-                        internalSetTime(getTime(), true);
+                        reachedSeekFrame(seekRequest, toFrames(seekTime, frameRate));
                     } else {
                         if (LOG.isLoggable(Level.FINE)) LOG.fine("Seek not supported.");
                     }
@@ -1140,6 +1964,7 @@ public class JavaPlayer implements AudioPlayer {
                         JavaPlayer.this.reopen();
                     } catch (UnsupportedAudioFileException | LineUnavailableException | ExecutionException | IOException e1) {
                         LOG.log(Level.SEVERE, "Failed to re-open " + song, e1);
+                        fireFailed(song, e1);
                     }
                     this.running = false;
                     final InterruptedException interruptedException = new InterruptedException("Seek failed with " + e );
@@ -1149,12 +1974,105 @@ public class JavaPlayer implements AudioPlayer {
             }
         }
 
-        private void markLineTimeDiff(final Duration time) {
-            synchronized (JavaPlayer.this) {
-                lineTimeDiff = line.getMicrosecondPosition() - time.dividedBy(MICROS.getDuration());
-                if (LOG.isLoggable(Level.FINE)) {
-                    LOG.fine("New line time diff: " + lineTimeDiff + " micros");
-                }
+        private void markLineFrameDiff(final long framePosition) {
+            // must happen before the seek time is reset, see getFramePosition()
+            lineFrameDiff = line.getLongFramePosition() - framePosition;
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.fine("New line frame diff: " + lineFrameDiff + " frames");
+            }
+        }
+    }
+
+    /**
+     * Seek request. Compared by identity, so that the pump can tell whether
+     * the request it is executing has been superseded.
+     */
+    private static final class SeekRequest {
+
+        private final Duration time;
+        /** {@link System#nanoTime()} of the request. */
+        private final long nanos = System.nanoTime();
+
+        private SeekRequest(final Duration time) {
+            this.time = time;
+        }
+    }
+
+    /**
+     * Song in the queue. Its stream is opened ahead of time, if it matches the line format.
+     */
+    private static class QueuedSong {
+
+        private final URI song;
+        private final ExtAudioSystem.Probe probe;
+        private final AudioFileFormat audioFileFormat;
+        // guarded by this
+        private SingleThreadedAudioInputStream stream;
+        private Cleaner.Cleanable streamCleanable;
+
+        private QueuedSong(final URI song, final ExtAudioSystem.Probe probe) {
+            this.song = song;
+            this.probe = probe;
+            this.audioFileFormat = probe.getAudioFileFormat();
+        }
+
+        /**
+         * Indicates whether this song is prepared for the given line format, i.e.
+         * it either has a stream in that format or can't be played gaplessly in it anyway.
+         *
+         * @param lineFormat line format
+         * @return true or false
+         */
+        private synchronized boolean isPreparedFor(final AudioFormat lineFormat) {
+            if (stream != null) return stream.getFormat().matches(lineFormat);
+            return !toSignedPCM(audioFileFormat.getFormat()).matches(lineFormat);
+        }
+
+        private synchronized boolean setStream(final SingleThreadedAudioInputStream stream, final Cleaner.Cleanable streamCleanable) {
+            if (this.stream != null) return false;
+            this.stream = stream;
+            this.streamCleanable = streamCleanable;
+            return true;
+        }
+
+        private void discardStream() {
+            final Cleaner.Cleanable cleanable;
+            synchronized (this) {
+                cleanable = this.streamCleanable;
+                this.stream = null;
+                this.streamCleanable = null;
+            }
+            if (cleanable != null) cleanable.clean();
+        }
+    }
+
+    /**
+     * Hands a line back to the {@link LinePool}, when the player is done with it
+     * or has become eligible for garbage collection.
+     */
+    private static class LineReleaser implements Runnable {
+
+        private final AudioDevice audioDevice;
+        private final SourceDataLine line;
+        private final int bufferSize;
+        private final LineListener lineListener;
+
+        public LineReleaser(final AudioDevice audioDevice, final SourceDataLine line, final int bufferSize,
+                            final LineListener lineListener) {
+            this.audioDevice = audioDevice;
+            this.line = line;
+            this.bufferSize = bufferSize;
+            this.lineListener = lineListener;
+        }
+
+        @Override
+        public void run() {
+            if (LOG.isLoggable(Level.FINE)) LOG.fine("Releasing " + line);
+            try {
+                line.removeLineListener(lineListener);
+                LinePool.getInstance().release(audioDevice, line, bufferSize);
+            } catch (Exception e) {
+                LOG.log(Level.SEVERE, "Failed to release " + line, e);
             }
         }
     }
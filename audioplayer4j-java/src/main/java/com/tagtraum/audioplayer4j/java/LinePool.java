@@ -0,0 +1,269 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import com.tagtraum.audioplayer4j.AudioDevice;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.SourceDataLine;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps released {@link SourceDataLine}s open for a while, so that they can be
+ * re-used by the next {@link JavaPlayer#open(java.net.URI)} with the same
+ * {@link AudioDevice}, {@link AudioFormat} and buffer size, across players.
+ * On some mixers opening a line takes tens of milliseconds.
+ * <p>
+ * Released lines are stopped and flushed. Idle lines are closed after
+ * {@link #getIdleTimeout()} or when more than {@link #getMaxIdleLines()}
+ * lines are idle, whichever happens first. Since idle lines count against
+ * a device's line limit, {@link JavaPlayer} closes a device's idle lines
+ * with {@link #clear(AudioDevice)}, when it fails to open a new one.
+ * <p>
+ * The number of idle lines can be configured with the system property
+ * {@code javaplayer.linepool.maxidle}. {@code 0} turns pooling off.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+final class LinePool {
+
+    private static final Logger LOG = Logger.getLogger(LinePool.class.getName());
+    private static final String JAVAPLAYER_LINEPOOL_MAXIDLE = "javaplayer.linepool.maxidle";
+    static final int DEFAULT_MAX_IDLE_LINES = 4;
+    static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofSeconds(30);
+    private static final LinePool INSTANCE = new LinePool(
+        Integer.getInteger(JAVAPLAYER_LINEPOOL_MAXIDLE, DEFAULT_MAX_IDLE_LINES), DEFAULT_IDLE_TIMEOUT);
+
+    private final int maxIdleLines;
+    private final Duration idleTimeout;
+    // oldest first
+    private final List<IdleLine> idleLines = new ArrayList<>();
+    private ScheduledFuture<?> eviction;
+
+    /**
+     * Creates a pool.
+     *
+     * @param maxIdleLines max number of idle lines to keep open, {@code 0} to turn pooling off
+     * @param idleTimeout time after which an idle line is closed
+     */
+    LinePool(final int maxIdleLines, final Duration idleTimeout) {
+        if (maxIdleLines < 0) throw new IllegalArgumentException("Max idle lines must not be negative: " + maxIdleLines);
+        Objects.requireNonNull(idleTimeout, "Idle timeout must not be null");
+        this.maxIdleLines = maxIdleLines;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Pool shared by all {@link JavaPlayer}s.
+     *
+     * @return pool
+     */
+    public static LinePool getInstance() {
+        return INSTANCE;
+    }
+
+    public int getMaxIdleLines() {
+        return maxIdleLines;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Number of currently idle lines.
+     *
+     * @return number of idle lines
+     */
+    public synchronized int getIdleLineCount() {
+        return idleLines.size();
+    }
+
+    /**
+     * Takes an idle line out of the pool.
+     *
+     * @param audioDevice device the line belongs to
+     * @param format line format
+     * @param bufferSize buffer size in bytes that was requested when the line was opened
+     * @return open, stopped and flushed line or {@code null}, if there is no matching idle line
+     */
+    public SourceDataLine acquire(final AudioDevice audioDevice, final AudioFormat format, final int bufferSize) {
+        final List<SourceDataLine> closedLines = new ArrayList<>();
+        SourceDataLine line = null;
+        synchronized (this) {
+            // most recently released first
+            for (int i = idleLines.size() - 1; i >= 0; i--) {
+                final IdleLine idleLine = idleLines.get(i);
+                if (!idleLine.line.isOpen()) {
+                    // closed by someone else
+                    idleLines.remove(i);
+                    closedLines.add(idleLine.line);
+                } else if (idleLine.matches(audioDevice, format, bufferSize)) {
+                    idleLines.remove(i);
+                    line = idleLine.line;
+                    break;
+                }
+            }
+        }
+        close(closedLines);
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine((line == null ? "No idle line for " : "Re-using idle line for ") + format + " on " + audioDevice);
+        }
+        return line;
+    }
+
+    /**
+     * Stops and flushes the line and keeps it open for re-use.
+     * If pooling is turned off, the line is closed instead.
+     *
+     * @param audioDevice device the line belongs to
+     * @param line line
+     * @param bufferSize buffer size in bytes that was requested when the line was opened
+     */
+    public void release(final AudioDevice audioDevice, final SourceDataLine line, final int bufferSize) {
+        if (!line.isOpen()) return;
+        if (maxIdleLines == 0) {
+            close(List.of(line));
+            return;
+        }
+        line.stop();
+        line.flush();
+        final List<SourceDataLine> evicted = new ArrayList<>();
+        synchronized (this) {
+            idleLines.add(new IdleLine(audioDevice, line, bufferSize, System.nanoTime()));
+            while (idleLines.size() > maxIdleLines) {
+                evicted.add(idleLines.remove(0).line);
+            }
+            if (eviction == null) {
+                scheduleEviction(idleTimeout.toNanos());
+            }
+        }
+        close(evicted);
+    }
+
+    /**
+     * Closes all idle lines.
+     */
+    public void clear() {
+        final List<SourceDataLine> lines = new ArrayList<>();
+        synchronized (this) {
+            for (final IdleLine idleLine : idleLines) {
+                lines.add(idleLine.line);
+            }
+            idleLines.clear();
+        }
+        close(lines);
+    }
+
+    /**
+     * Closes all idle lines of the given device, e.g. because the device
+     * has no lines left for a different format.
+     *
+     * @param audioDevice device
+     * @return number of closed lines
+     */
+    public int clear(final AudioDevice audioDevice) {
+        final List<SourceDataLine> lines = new ArrayList<>();
+        synchronized (this) {
+            for (final Iterator<IdleLine> iterator = idleLines.iterator(); iterator.hasNext(); ) {
+                final IdleLine idleLine = iterator.next();
+                if (idleLine.belongsTo(audioDevice)) {
+                    iterator.remove();
+                    lines.add(idleLine.line);
+                }
+            }
+        }
+        close(lines);
+        return lines.size();
+    }
+
+    private void scheduleEviction(final long delayNanos) {
+        this.eviction = EvictionHolder.EXECUTOR.schedule(this::evictIdleLines, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void evictIdleLines() {
+        final List<SourceDataLine> evicted = new ArrayList<>();
+        synchronized (this) {
+            this.eviction = null;
+            final long now = System.nanoTime();
+            final long timeout = idleTimeout.toNanos();
+            for (final Iterator<IdleLine> iterator = idleLines.iterator(); iterator.hasNext(); ) {
+                final IdleLine idleLine = iterator.next();
+                if (now - idleLine.since >= timeout) {
+                    iterator.remove();
+                    evicted.add(idleLine.line);
+                }
+            }
+            if (!idleLines.isEmpty()) {
+                scheduleEviction(idleLines.get(0).since + timeout - now);
+            }
+        }
+        close(evicted);
+    }
+
+    private static void close(final List<SourceDataLine> lines) {
+        for (final SourceDataLine line : lines) {
+            if (LOG.isLoggable(Level.FINE)) LOG.fine("Closing idle line " + line);
+            try {
+                line.close();
+            } catch (RuntimeException e) {
+                LOG.log(Level.SEVERE, "Failed to close " + line, e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "LinePool{" +
+            "maxIdleLines=" + maxIdleLines +
+            ", idleTimeout=" + idleTimeout +
+            ", idleLines=" + idleLines.size() +
+            '}';
+    }
+
+    private static class IdleLine {
+        private final AudioDevice audioDevice;
+        private final SourceDataLine line;
+        private final int bufferSize;
+        private final long since;
+
+        private IdleLine(final AudioDevice audioDevice, final SourceDataLine line, final int bufferSize, final long since) {
+            this.audioDevice = audioDevice;
+            this.line = line;
+            this.bufferSize = bufferSize;
+            this.since = since;
+        }
+
+        private boolean matches(final AudioDevice audioDevice, final AudioFormat format, final int bufferSize) {
+            // AudioFormat does not implement equals()
+            return this.bufferSize == bufferSize
+                && line.getFormat().matches(format)
+                && belongsTo(audioDevice);
+        }
+
+        private boolean belongsTo(final AudioDevice audioDevice) {
+            // DefaultAudioDevice.equals() enumerates all mixers, so try identity first
+            return this.audioDevice == audioDevice || this.audioDevice.equals(audioDevice);
+        }
+    }
+
+    private static class EvictionHolder {
+        private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(
+            PlayerExecutors.daemonThreadFactory("Line Pool Eviction Thread", Thread.NORM_PRIORITY)
+        );
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads PCM straight from the memory-mapped data chunk of a local WAVE or AIFF file,
+ * whose format already is the desired output format. Compared to going through an
+ * {@link javax.sound.sampled.AudioInputStream} and the read-ahead buffer, this saves
+ * copies and the decoder thread's wake-ups, and seeking is just setting a position.
+ * <p>
+ * The data chunk is located with the file's linear {@link SeekIndex}.
+ * Mappings are released by the garbage collector, as there is no public way to unmap them.
+ * <p>
+ * If the file is truncated while it is mapped, accessing the missing pages raises {@code SIGBUS}.
+ * The JVM reports this as {@link InternalError}, but possibly only after the access, when it's
+ * too late to catch it. So before accessing the mapping, the size of the file is checked.
+ * <p>
+ * Not thread-safe, except for {@link #touch(long, int)}, which may be called from
+ * another thread to fault in pages before they are read.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+final class MappedPcmReader {
+
+    private static final Logger LOG = Logger.getLogger(MappedPcmReader.class.getName());
+    /**
+     * System property to turn memory-mapping off, e.g. {@code -Djavaplayer.mmap=false}.
+     */
+    static final String JAVAPLAYER_MMAP = "javaplayer.mmap";
+    // a single mapping is limited to Integer.MAX_VALUE bytes
+    private static final long MAX_SEGMENT_SIZE = 1L << 30;
+    private static final int PAGE_SIZE = 4096;
+
+    // typed ByteBuffer, so that calls bind to methods that exist in Java 9
+    private final ByteBuffer[] segments;
+    /** Duplicates of {@link #segments} for {@link #touch(long, int)}, so that it does not interfere with reading. */
+    private final ByteBuffer[] touchSegments;
+    private final Path file;
+    private final long offset;
+    private final long segmentSize;
+    private final int frameSize;
+    private final long length;
+    private long position;
+
+    /**
+     * Maps PCM data.
+     *
+     * @param file file, to check whether it was truncated, or {@code null}
+     * @param channel channel of the file
+     * @param offset offset of the first frame
+     * @param length number of bytes, a multiple of the frame size
+     * @param frameSize frame size in bytes
+     * @throws IOException if mapping fails
+     */
+    MappedPcmReader(final Path file, final FileChannel channel, final long offset, final long length, final int frameSize) throws IOException {
+        if (frameSize <= 0) throw new IllegalArgumentException("Frame size must be positive: " + frameSize);
+        if (length % frameSize != 0) throw new IllegalArgumentException("Length " + length + " is not a multiple of the frame size " + frameSize);
+        this.file = file;
+        this.offset = offset;
+        this.frameSize = frameSize;
+        this.length = length;
+        // segments never split a frame
+        this.segmentSize = MAX_SEGMENT_SIZE - MAX_SEGMENT_SIZE % frameSize;
+        final int count = (int) Math.max(1, (length + segmentSize - 1) / segmentSize);
+        this.segments = new ByteBuffer[count];
+        this.touchSegments = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            final long start = i * segmentSize;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start, Math.min(segmentSize, length - start));
+            touchSegments[i] = segments[i].duplicate();
+        }
+    }
+
+    /**
+     * Maps the PCM data of a local file, if it can be passed on as is.
+     *
+     * @param url url
+     * @param sourceFormat format of the file's audio
+     * @param frameLength length of the file's audio in frames
+     * @param format desired format
+     * @return reader or {@code null}, if the file is not local, not linear PCM in a WAVE or AIFF file,
+     * its format does not match the desired format, or mapping is turned off
+     * @see #JAVAPLAYER_MMAP
+     */
+    static MappedPcmReader open(final URL url, final AudioFormat sourceFormat, final long frameLength, final AudioFormat format) {
+        if (!Boolean.parseBoolean(System.getProperty(JAVAPLAYER_MMAP, "true"))) return null;
+        // check the format first, so that we don't index compressed files just to find out
+        if (frameLength <= 0 || !AudioFormat.Encoding.PCM_SIGNED.equals(sourceFormat.getEncoding())
+            || !format.matches(sourceFormat)) return null;
+        final Path path = SeekIndex.toPath(url);
+        if (path == null) return null;
+        final SeekIndex index = SeekIndex.get(url);
+        if (index == null || !index.isLinear() || index.getBytesPerFrame() != sourceFormat.getFrameSize()) return null;
+        final int frameSize = index.getBytesPerFrame();
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long offset = index.offset(0);
+            // don't trust the header, the file may be truncated
+            long length = Math.min(frameLength * frameSize, channel.size() - offset);
+            length -= length % frameSize;
+            if (length <= 0) return null;
+            final MappedPcmReader reader = new MappedPcmReader(path, channel, offset, length, frameSize);
+            if (LOG.isLoggable(Level.FINE)) LOG.fine("Mapped " + length + " bytes of " + url);
+            return reader;
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Failed to map " + url, e);
+            return null;
+        }
+    }
+
+    long getFrameLength() {
+        return length / frameSize;
+    }
+
+    long getFramePosition() {
+        return position / frameSize;
+    }
+
+    /**
+     * Sets the position of the next read.
+     *
+     * @param frame frame, clamped to {@code [0, frameLength]}
+     */
+    void setFramePosition(final long frame) {
+        position = Math.max(0, Math.min(getFrameLength(), frame)) * frameSize;
+    }
+
+    /**
+     * Copies whole frames into the given buffer.
+     *
+     * @param buf buffer
+     * @param off offset
+     * @param len maximum number of bytes
+     * @return number of bytes read or {@code -1}, if all data has been read
+     * @throws IOException if the file cannot be read, e.g. because it was truncated
+     */
+    int read(final byte[] buf, final int off, final int len) throws IOException {
+        if (position >= length) return -1;
+        final int total = (int) Math.min(len - len % frameSize, length - position);
+        checkFileSize(position + total);
+        int read = 0;
+        try {
+            while (read < total) {
+                final ByteBuffer segment = segments[(int) (position / segmentSize)];
+                final int segmentPosition = (int) (position % segmentSize);
+                final int chunk = Math.min(total - read, segment.limit() - segmentPosition);
+                segment.position(segmentPosition);
+                segment.get(buf, off + read, chunk);
+                read += chunk;
+                position += chunk;
+            }
+        } catch (InternalError e) {
+            throw toIOException(e);
+        }
+        return total;
+    }
+
+    /**
+     * Reads one byte per page, so that the pages are loaded before {@link #read(byte[], int, int)}
+     * needs them, and a slow disk does not stall the reader.
+     *
+     * @param frame first frame
+     * @param bytes number of bytes
+     * @throws IOException if the file cannot be read, e.g. because it was truncated
+     */
+    void touch(final long frame, final int bytes) throws IOException {
+        final long end = Math.min(length, frame * frameSize + bytes);
+        checkFileSize(end);
+        try {
+            for (long p = Math.max(0, frame * frameSize); p < end; p += PAGE_SIZE) {
+                touchSegments[(int) (p / segmentSize)].get((int) (p % segmentSize));
+            }
+        } catch (InternalError e) {
+            throw toIOException(e);
+        }
+    }
+
+    /**
+     * Makes sure the file still holds the mapped data up to the given position.
+     *
+     * @param end position relative to the first frame
+     * @throws IOException if the file was truncated
+     */
+    private void checkFileSize(final long end) throws IOException {
+        if (file != null && Files.size(file) < offset + end) {
+            throw new IOException("Mapped file was truncated: " + file);
+        }
+    }
+
+    /**
+     * Accessing a mapped page that no longer exists, because the file was truncated
+     * after it was mapped, raises {@code SIGBUS}, which the JVM reports as {@link InternalError}.
+     *
+     * @param e error
+     * @return exception
+     */
+    private static IOException toIOException(final InternalError e) {
+        return new IOException("Failed to read mapped file, it may have been truncated: " + e.getMessage(), e);
+    }
+
+    @Override
+    public String toString() {
+        return "MappedPcmReader{" +
+            "length=" + length +
+            ", frameSize=" + frameSize +
+            ", segments=" + segments.length +
+            ", position=" + position +
+            '}';
+    }
+}
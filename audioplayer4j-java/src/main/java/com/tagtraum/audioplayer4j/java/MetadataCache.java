@@ -0,0 +1,602 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caches the {@link AudioFileFormat} of local files together with the class name of the
+ * provider that recognized it, so that {@link ExtAudioSystem#probe(URL)} does not have to
+ * parse the same file again. Entries are validated against the file's size and
+ * last modification time.
+ * <p>
+ * Recently used entries are kept in memory. Optionally, entries are also kept in a
+ * {@link Store}, so that they survive restarts.
+ * <p>
+ * The number of entries kept in memory can be configured with the system property
+ * {@code javaplayer.metadatacache.size}. {@code 0} turns caching off.
+ * To keep entries on disk, set {@code javaplayer.metadatacache.dir} to a directory.
+ * <p>
+ * Entries may also carry a {@link SeekIndex}, which is validated and stored along with them.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+final class MetadataCache {
+
+    private static final Logger LOG = Logger.getLogger(MetadataCache.class.getName());
+    private static final String JAVAPLAYER_METADATACACHE_SIZE = "javaplayer.metadatacache.size";
+    private static final String JAVAPLAYER_METADATACACHE_DIR = "javaplayer.metadatacache.dir";
+    static final int DEFAULT_SIZE = 4096;
+
+    private final int size;
+    private final Store store;
+    // access order, least recently used first
+    private final Map<String, Entry> entries;
+
+    /**
+     * Creates a cache.
+     *
+     * @param size max number of entries kept in memory, {@code 0} to turn caching off
+     * @param store store for entries that are not in memory, may be {@code null}
+     */
+    MetadataCache(final int size, final Store store) {
+        if (size < 0) throw new IllegalArgumentException("Size must not be negative: " + size);
+        this.size = size;
+        this.store = store;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, MetadataCache.Entry> eldest) {
+                return size() > MetadataCache.this.size;
+            }
+        };
+    }
+
+    /**
+     * Cache shared by all players.
+     *
+     * @return cache
+     */
+    public static MetadataCache getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public Store getStore() {
+        return store;
+    }
+
+    /**
+     * Number of entries currently kept in memory.
+     *
+     * @return number of entries
+     */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Looks up the metadata of a local file.
+     *
+     * @param url url
+     * @return valid entry or {@code null}, if the file is not cached, was modified since it was cached
+     * or is not a local file
+     */
+    public Entry get(final URL url) {
+        if (size == 0) return null;
+        final Path path = toPath(url);
+        if (path == null) return null;
+        final String key = url.toString();
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null && store != null) {
+            try {
+                entry = store.load(key);
+            } catch (IOException | RuntimeException e) {
+                LOG.log(Level.WARNING, "Failed to load metadata for " + url + " from " + store, e);
+            }
+            if (entry != null) {
+                synchronized (this) {
+                    entries.put(key, entry);
+                }
+            }
+        }
+        if (entry == null) return null;
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (entry.getSize() == attributes.size() && entry.getLastModified() == attributes.lastModifiedTime().toMillis()) {
+                if (LOG.isLoggable(Level.FINE)) LOG.fine("Using cached metadata for " + url);
+                return entry;
+            }
+        } catch (IOException e) {
+            // gone, we'll see what the providers have to say about that
+        }
+        if (LOG.isLoggable(Level.FINE)) LOG.fine("Cached metadata for " + url + " is stale");
+        synchronized (this) {
+            entries.remove(key);
+        }
+        return null;
+    }
+
+    /**
+     * Caches the metadata of a local file.
+     * Does nothing, if caching is turned off or the URL does not point to a local file.
+     *
+     * @param url url
+     * @param provider class name of the provider that recognized the format,
+     *                 {@code null}, if it was recognized by {@link javax.sound.sampled.AudioSystem}
+     * @param audioFileFormat audio file format
+     */
+    public void put(final URL url, final String provider, final AudioFileFormat audioFileFormat) {
+        if (size == 0) return;
+        final Path path = toPath(url);
+        if (path == null) return;
+        final Entry entry;
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            entry = new Entry(url.toString(), attributes.size(), attributes.lastModifiedTime().toMillis(),
+                provider, audioFileFormat);
+        } catch (IOException e) {
+            if (LOG.isLoggable(Level.FINE)) LOG.log(Level.FINE, "Failed to read attributes of " + url, e);
+            return;
+        }
+        synchronized (this) {
+            entries.put(entry.getKey(), entry);
+        }
+        if (store != null) {
+            try {
+                store.save(entry);
+            } catch (IOException | RuntimeException e) {
+                LOG.log(Level.WARNING, "Failed to save metadata for " + url + " to " + store, e);
+            }
+        }
+    }
+
+    /**
+     * Looks up the seek index of a local file.
+     *
+     * @param url url
+     * @return index or {@code null}, if the file's metadata is not cached or has no index
+     * @see #get(URL)
+     */
+    public SeekIndex getSeekIndex(final URL url) {
+        final Entry entry = get(url);
+        if (entry == null) return null;
+        SeekIndex seekIndex = entry.getSeekIndex();
+        if (seekIndex == null && store != null) {
+            try {
+                seekIndex = store.loadSeekIndex(entry.getKey());
+            } catch (IOException | RuntimeException e) {
+                LOG.log(Level.WARNING, "Failed to load seek index for " + url + " from " + store, e);
+            }
+            if (seekIndex != null) entry.setSeekIndex(seekIndex);
+        }
+        return seekIndex;
+    }
+
+    /**
+     * Caches the seek index of a local file.
+     * Does nothing, if the file's metadata is not cached.
+     *
+     * @param url url
+     * @param seekIndex seek index
+     */
+    public void putSeekIndex(final URL url, final SeekIndex seekIndex) {
+        final Entry entry = get(url);
+        if (entry == null) return;
+        entry.setSeekIndex(Objects.requireNonNull(seekIndex, "SeekIndex must not be null"));
+        if (store != null) {
+            try {
+                store.saveSeekIndex(entry.getKey(), seekIndex);
+            } catch (IOException | RuntimeException e) {
+                LOG.log(Level.WARNING, "Failed to save seek index for " + url + " to " + store, e);
+            }
+        }
+    }
+
+    /**
+     * Removes all entries from memory. Does not affect the store.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private static Path toPath(final URL url) {
+        if (!"file".equals(url.getProtocol())) return null;
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "MetadataCache{" +
+            "size=" + size +
+            ", store=" + store +
+            ", entries=" + entries.size() +
+            '}';
+    }
+
+    /**
+     * Metadata of a file.
+     */
+    static final class Entry {
+
+        private final String key;
+        private final long size;
+        private final long lastModified;
+        private final String provider;
+        private final AudioFileFormat audioFileFormat;
+        private volatile SeekIndex seekIndex;
+
+        Entry(final String key, final long size, final long lastModified, final String provider,
+              final AudioFileFormat audioFileFormat) {
+            this.key = Objects.requireNonNull(key, "Key must not be null");
+            this.size = size;
+            this.lastModified = lastModified;
+            this.provider = provider;
+            this.audioFileFormat = Objects.requireNonNull(audioFileFormat, "AudioFileFormat must not be null");
+        }
+
+        /**
+         * URL the metadata belongs to.
+         *
+         * @return url as string
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * File size in bytes at the time the metadata was obtained.
+         *
+         * @return size
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Last modification time in ms at the time the metadata was obtained.
+         *
+         * @return time in ms since the epoch
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Class name of the provider that recognized the format.
+         *
+         * @return class name or {@code null}, if {@link javax.sound.sampled.AudioSystem} recognized it
+         */
+        public String getProvider() {
+            return provider;
+        }
+
+        public AudioFileFormat getAudioFileFormat() {
+            return audioFileFormat;
+        }
+
+        /**
+         * Seek index of the file, if it has been built.
+         *
+         * @return index or {@code null}
+         */
+        public SeekIndex getSeekIndex() {
+            return seekIndex;
+        }
+
+        void setSeekIndex(final SeekIndex seekIndex) {
+            this.seekIndex = seekIndex;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                "key='" + key + '\'' +
+                ", size=" + size +
+                ", lastModified=" + lastModified +
+                ", provider='" + provider + '\'' +
+                ", audioFileFormat=" + audioFileFormat +
+                '}';
+        }
+    }
+
+    /**
+     * Second level storage for entries that are not (or no longer) in memory.
+     */
+    interface Store {
+
+        /**
+         * Loads an entry.
+         *
+         * @param key key, i.e. the URL as string
+         * @return entry or {@code null}, if not stored
+         * @throws IOException if the entry cannot be read
+         */
+        Entry load(String key) throws IOException;
+
+        /**
+         * Saves an entry, replacing an entry with the same key.
+         *
+         * @param entry entry
+         * @throws IOException if the entry cannot be written
+         */
+        void save(Entry entry) throws IOException;
+
+        /**
+         * Loads the seek index of an entry.
+         *
+         * @param key key, i.e. the URL as string
+         * @return index or {@code null}, if not stored
+         * @throws IOException if the index cannot be read
+         */
+        default SeekIndex loadSeekIndex(final String key) throws IOException {
+            return null;
+        }
+
+        /**
+         * Saves the seek index of an entry. Saving the entry itself
+         * via {@link #save(Entry)} must discard its previous index.
+         *
+         * @param key key, i.e. the URL as string
+         * @param seekIndex seek index
+         * @throws IOException if the index cannot be written
+         */
+        default void saveSeekIndex(final String key, final SeekIndex seekIndex) throws IOException {
+        }
+    }
+
+    /**
+     * Stores each entry as properties file in a directory.
+     * Only properties with string, boolean or numeric values are stored.
+     * Seek indices are stored in binary files next to the properties files.
+     */
+    static final class DirectoryStore implements Store {
+
+        private static final String FILE_PROPERTY_PREFIX = "file.";
+        private static final String FORMAT_PROPERTY_PREFIX = "format.";
+        private static final String PROPERTIES_SUFFIX = ".properties";
+        private static final String SEEK_INDEX_SUFFIX = ".seekindex";
+        private final Path directory;
+
+        DirectoryStore(final Path directory) {
+            this.directory = Objects.requireNonNull(directory, "Directory must not be null");
+        }
+
+        public Path getDirectory() {
+            return directory;
+        }
+
+        @Override
+        public Entry load(final String key) throws IOException {
+            final Properties properties = new Properties();
+            try (final InputStream in = Files.newInputStream(toFile(key, PROPERTIES_SUFFIX))) {
+                properties.load(in);
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+            // guard against hash collisions
+            if (!key.equals(properties.getProperty("key"))) return null;
+            try {
+                final AudioFormat audioFormat = new AudioFormat(
+                    toEncoding(properties.getProperty("encoding")),
+                    Float.parseFloat(properties.getProperty("sampleRate")),
+                    Integer.parseInt(properties.getProperty("sampleSizeInBits")),
+                    Integer.parseInt(properties.getProperty("channels")),
+                    Integer.parseInt(properties.getProperty("frameSize")),
+                    Float.parseFloat(properties.getProperty("frameRate")),
+                    Boolean.parseBoolean(properties.getProperty("bigEndian")),
+                    toMap(properties, FORMAT_PROPERTY_PREFIX));
+                final AudioFileFormat audioFileFormat = new AudioFileFormat(
+                    toType(properties.getProperty("type"), properties.getProperty("extension")),
+                    audioFormat,
+                    Integer.parseInt(properties.getProperty("frameLength")),
+                    toMap(properties, FILE_PROPERTY_PREFIX));
+                return new Entry(key,
+                    Long.parseLong(properties.getProperty("size")),
+                    Long.parseLong(properties.getProperty("lastModified")),
+                    properties.getProperty("provider"),
+                    audioFileFormat);
+            } catch (NullPointerException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IOException("Corrupt metadata for " + key, e);
+            }
+        }
+
+        @Override
+        public void save(final Entry entry) throws IOException {
+            final AudioFileFormat audioFileFormat = entry.getAudioFileFormat();
+            final AudioFormat audioFormat = audioFileFormat.getFormat();
+            final Properties properties = new Properties();
+            properties.setProperty("key", entry.getKey());
+            properties.setProperty("size", Long.toString(entry.getSize()));
+            properties.setProperty("lastModified", Long.toString(entry.getLastModified()));
+            if (entry.getProvider() != null) properties.setProperty("provider", entry.getProvider());
+            properties.setProperty("type", audioFileFormat.getType().toString());
+            properties.setProperty("extension", audioFileFormat.getType().getExtension());
+            properties.setProperty("frameLength", Integer.toString(audioFileFormat.getFrameLength()));
+            properties.setProperty("encoding", audioFormat.getEncoding().toString());
+            properties.setProperty("sampleRate", Float.toString(audioFormat.getSampleRate()));
+            properties.setProperty("sampleSizeInBits", Integer.toString(audioFormat.getSampleSizeInBits()));
+            properties.setProperty("channels", Integer.toString(audioFormat.getChannels()));
+            properties.setProperty("frameSize", Integer.toString(audioFormat.getFrameSize()));
+            properties.setProperty("frameRate", Float.toString(audioFormat.getFrameRate()));
+            properties.setProperty("bigEndian", Boolean.toString(audioFormat.isBigEndian()));
+            putAll(properties, FILE_PROPERTY_PREFIX, audioFileFormat.properties());
+            putAll(properties, FORMAT_PROPERTY_PREFIX, audioFormat.properties());
+
+            Files.createDirectories(directory);
+            // the file may have changed, so its index is no longer valid
+            Files.deleteIfExists(toFile(entry.getKey(), SEEK_INDEX_SUFFIX));
+            write(toFile(entry.getKey(), PROPERTIES_SUFFIX), out -> properties.store(out, null));
+        }
+
+        @Override
+        public SeekIndex loadSeekIndex(final String key) throws IOException {
+            try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(toFile(key, SEEK_INDEX_SUFFIX))))) {
+                // guard against hash collisions
+                if (!key.equals(in.readUTF())) return null;
+                return SeekIndex.read(in);
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public void saveSeekIndex(final String key, final SeekIndex seekIndex) throws IOException {
+            Files.createDirectories(directory);
+            write(toFile(key, SEEK_INDEX_SUFFIX), out -> {
+                final DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out));
+                dataOut.writeUTF(key);
+                seekIndex.write(dataOut);
+                dataOut.flush();
+            });
+        }
+
+        /**
+         * Writes atomically, so that concurrent readers never see half a file.
+         */
+        private void write(final Path file, final Writer writer) throws IOException {
+            final Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                try (final OutputStream out = Files.newOutputStream(tempFile)) {
+                    writer.write(out);
+                }
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+
+        private Path toFile(final String key, final String suffix) {
+            try {
+                final byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+                final StringBuilder sb = new StringBuilder(digest.length * 2 + suffix.length());
+                for (final byte b : digest) {
+                    sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+                }
+                return directory.resolve(sb.append(suffix).toString());
+            } catch (NoSuchAlgorithmException e) {
+                // every Java platform must support SHA-256
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static void putAll(final Properties properties, final String prefix, final Map<String, Object> map) {
+            for (final Map.Entry<String, Object> e : map.entrySet()) {
+                final Object value = e.getValue();
+                if (value instanceof String || value instanceof Boolean || value instanceof Integer
+                    || value instanceof Long || value instanceof Float || value instanceof Double) {
+                    // remember the type, so that we can restore it
+                    properties.setProperty(prefix + e.getKey(), value.getClass().getSimpleName() + ":" + value);
+                }
+            }
+        }
+
+        private static Map<String, Object> toMap(final Properties properties, final String prefix) {
+            final Map<String, Object> map = new HashMap<>();
+            for (final String name : properties.stringPropertyNames()) {
+                if (!name.startsWith(prefix)) continue;
+                final String typedValue = properties.getProperty(name);
+                final int colon = typedValue.indexOf(':');
+                final String value = typedValue.substring(colon + 1);
+                final Object object;
+                switch (typedValue.substring(0, colon)) {
+                    case "String": object = value; break;
+                    case "Boolean": object = Boolean.valueOf(value); break;
+                    case "Integer": object = Integer.valueOf(value); break;
+                    case "Long": object = Long.valueOf(value); break;
+                    case "Float": object = Float.valueOf(value); break;
+                    case "Double": object = Double.valueOf(value); break;
+                    default: throw new IllegalArgumentException("Unsupported type: " + typedValue);
+                }
+                map.put(name.substring(prefix.length()), object);
+            }
+            return map;
+        }
+
+        /**
+         * Players compare with the predefined encodings by identity.
+         */
+        private static AudioFormat.Encoding toEncoding(final String name) {
+            for (final AudioFormat.Encoding encoding : new AudioFormat.Encoding[]{AudioFormat.Encoding.PCM_SIGNED,
+                AudioFormat.Encoding.PCM_UNSIGNED, AudioFormat.Encoding.PCM_FLOAT, AudioFormat.Encoding.ULAW,
+                AudioFormat.Encoding.ALAW}) {
+                if (encoding.toString().equals(name)) return encoding;
+            }
+            return new AudioFormat.Encoding(name);
+        }
+
+        /**
+         * Players compare with the predefined types by identity.
+         */
+        private static AudioFileFormat.Type toType(final String name, final String extension) {
+            for (final AudioFileFormat.Type type : new AudioFileFormat.Type[]{AudioFileFormat.Type.WAVE,
+                AudioFileFormat.Type.AU, AudioFileFormat.Type.AIFF, AudioFileFormat.Type.AIFC,
+                AudioFileFormat.Type.SND}) {
+                if (type.toString().equals(name) && type.getExtension().equals(extension)) return type;
+            }
+            return new AudioFileFormat.Type(name, extension);
+        }
+
+        private interface Writer {
+            void write(OutputStream out) throws IOException;
+        }
+
+        @Override
+        public String toString() {
+            return "DirectoryStore{" +
+                "directory=" + directory +
+                '}';
+        }
+    }
+
+    private static class InstanceHolder {
+        private static final MetadataCache INSTANCE = createInstance();
+
+        private static MetadataCache createInstance() {
+            final String directory = System.getProperty(JAVAPLAYER_METADATACACHE_DIR);
+            final Store store = directory == null || directory.isEmpty() ? null : new DirectoryStore(Paths.get(directory));
+            final MetadataCache cache = new MetadataCache(Integer.getInteger(JAVAPLAYER_METADATACACHE_SIZE, DEFAULT_SIZE), store);
+            if (LOG.isLoggable(Level.FINE)) LOG.fine("Created " + cache);
+            return cache;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of recently decoded PCM, so that short backward seeks in streams
+ * that don't support seeking can be served from memory instead of re-opening
+ * and decoding the stream from the start.
+ * <p>
+ * Audio is stored in fixed-size blocks keyed by their first frame. Each block
+ * holds one contiguous range of valid frames. When the cache is full, the least
+ * recently used block is evicted and its memory re-used.
+ * <p>
+ * Not thread-safe. Meant to be used by a single playback thread.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+final class PcmSeekCache {
+
+    /**
+     * System property for the amount of audio to cache per player in seconds. {@code 0} turns caching off.
+     */
+    static final String JAVAPLAYER_SEEKCACHE_SECONDS = "javaplayer.seekcache.seconds";
+    static final int DEFAULT_SECONDS = 15;
+    private static final int BLOCK_BYTES = 64 * 1024;
+
+    private final int frameSize;
+    private final int blockFrames;
+    private final int maxBlocks;
+    // access order, least recently used first
+    private final Map<Long, Block> blocks = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Creates a cache.
+     *
+     * @param frameSize frame size in bytes
+     * @param maxBytes maximum number of bytes to cache, rounded up to whole blocks
+     */
+    PcmSeekCache(final int frameSize, final long maxBytes) {
+        if (frameSize <= 0) throw new IllegalArgumentException("Frame size must be positive: " + frameSize);
+        this.frameSize = frameSize;
+        this.blockFrames = Math.max(1, BLOCK_BYTES / frameSize);
+        final long blockBytes = (long) blockFrames * frameSize;
+        this.maxBlocks = (int) Math.min(Integer.MAX_VALUE, (Math.max(0, maxBytes) + blockBytes - 1) / blockBytes);
+    }
+
+    /**
+     * Creates a cache for the configured number of seconds of audio.
+     *
+     * @param frameSize frame size in bytes
+     * @param frameRate frame rate
+     * @return cache or {@code null}, if caching is turned off
+     * @see #JAVAPLAYER_SEEKCACHE_SECONDS
+     */
+    static PcmSeekCache create(final int frameSize, final float frameRate) {
+        final int seconds = Integer.getInteger(JAVAPLAYER_SEEKCACHE_SECONDS, DEFAULT_SECONDS);
+        if (seconds <= 0 || frameSize <= 0 || frameRate <= 0) return null;
+        return new PcmSeekCache(frameSize, (long) (seconds * frameRate) * frameSize);
+    }
+
+    int getFrameSize() {
+        return frameSize;
+    }
+
+    int getBlockFrames() {
+        return blockFrames;
+    }
+
+    int getMaxBlocks() {
+        return maxBlocks;
+    }
+
+    int getBlockCount() {
+        return blocks.size();
+    }
+
+    /**
+     * Stores decoded audio.
+     *
+     * @param frame frame position of the first frame in {@code buf}
+     * @param buf audio data
+     * @param off offset
+     * @param length length in bytes, partial frames are ignored
+     */
+    void put(final long frame, final byte[] buf, final int off, final int length) {
+        if (maxBlocks == 0 || frame < 0) return;
+        final int frames = length / frameSize;
+        int done = 0;
+        while (done < frames) {
+            final long currentFrame = frame + done;
+            final long key = currentFrame / blockFrames;
+            final int start = (int) (currentFrame - key * blockFrames);
+            final int count = Math.min(frames - done, blockFrames - start);
+            final Block block = getOrCreateBlock(key);
+            System.arraycopy(buf, off + done * frameSize, block.data, start * frameSize, count * frameSize);
+            block.add(start, start + count);
+            done += count;
+        }
+    }
+
+    /**
+     * Indicates whether all frames in the given range are cached.
+     *
+     * @param fromFrame first frame, inclusive
+     * @param toFrame last frame, exclusive
+     * @return true, if all frames are cached
+     */
+    boolean contains(final long fromFrame, final long toFrame) {
+        if (fromFrame < 0 || toFrame <= fromFrame) return false;
+        for (long key = fromFrame / blockFrames; key * blockFrames < toFrame; key++) {
+            final Block block = blocks.get(key);
+            if (block == null) return false;
+            final long blockStart = key * blockFrames;
+            final int start = (int) Math.max(0, fromFrame - blockStart);
+            final int end = (int) Math.min(blockFrames, toFrame - blockStart);
+            if (start < block.validStart || end > block.validEnd) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Copies cached audio, starting with the given frame, until the buffer is full
+     * or a frame is not cached.
+     *
+     * @param frame first frame
+     * @param buf buffer
+     * @param off offset
+     * @param length maximum number of bytes
+     * @return number of bytes copied, {@code 0}, if {@code frame} is not cached
+     */
+    int read(final long frame, final byte[] buf, final int off, final int length) {
+        final int frames = length / frameSize;
+        int done = 0;
+        while (done < frames) {
+            final long currentFrame = frame + done;
+            final long key = currentFrame / blockFrames;
+            final Block block = blocks.get(key);
+            if (block == null) break;
+            final int start = (int) (currentFrame - key * blockFrames);
+            if (start < block.validStart || start >= block.validEnd) break;
+            final int count = Math.min(frames - done, block.validEnd - start);
+            System.arraycopy(block.data, start * frameSize, buf, off + done * frameSize, count * frameSize);
+            done += count;
+        }
+        return done * frameSize;
+    }
+
+    void clear() {
+        blocks.clear();
+    }
+
+    private Block getOrCreateBlock(final long key) {
+        Block block = blocks.get(key);
+        if (block != null) return block;
+        byte[] data = null;
+        if (blocks.size() >= maxBlocks) {
+            // evict least recently used and re-use its memory
+            final Iterator<Block> eldest = blocks.values().iterator();
+            data = eldest.next().data;
+            eldest.remove();
+        }
+        block = new Block(data == null ? new byte[blockFrames * frameSize] : data);
+        blocks.put(key, block);
+        return block;
+    }
+
+    @Override
+    public String toString() {
+        return "PcmSeekCache{" +
+            "frameSize=" + frameSize +
+            ", blockFrames=" + blockFrames +
+            ", blocks=" + blocks.size() + "/" + maxBlocks +
+            '}';
+    }
+
+    /**
+     * Block of audio with one contiguous range of valid frames.
+     */
+    private static final class Block {
+        private final byte[] data;
+        private int validStart;
+        private int validEnd;
+
+        private Block(final byte[] data) {
+            this.data = data;
+        }
+
+        private void add(final int start, final int end) {
+            if (validEnd > validStart && start <= validEnd && end >= validStart) {
+                // overlapping or adjacent
+                validStart = Math.min(validStart, start);
+                validEnd = Math.max(validEnd, end);
+            } else {
+                // disjoint, the old range is no longer contiguous with the new one
+                validStart = start;
+                validEnd = end;
+            }
+        }
+    }
+}
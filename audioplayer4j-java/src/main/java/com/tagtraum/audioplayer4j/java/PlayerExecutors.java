@@ -0,0 +1,155 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Thread pools shared by all {@link JavaPlayer}s created with
+ * {@link JavaPlayer.Threading#SHARED} or {@link JavaPlayer.Threading#VIRTUAL}.
+ * <p>
+ * Decoding runs on a fixed pool sized to the number of available cores.
+ * Each player's pump occupies a thread while it is playing, pre-rolling or seeking,
+ * but releases it while the player is paused. Pumps run on an unbounded cached pool,
+ * which releases idle threads. Bounding it would stall playing players, because a pump
+ * blocks in writing to its line. Seek indices are built one at a time on a single
+ * low priority thread, so that scanning files does not compete with decoding.
+ * All threads are daemon threads.
+ * <p>
+ * Virtual threads are looked up via reflection, so that this class
+ * can be compiled for and run on Java runtimes that don't have them (before Java 21).
+ * <p>
+ * Pools are only created when first needed.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+final class PlayerExecutors {
+
+    private static final Logger LOG = Logger.getLogger(PlayerExecutors.class.getName());
+
+    private PlayerExecutors() {
+    }
+
+    /**
+     * Indicates whether the Java runtime supports virtual threads.
+     *
+     * @return true or false
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return VirtualHolder.PUMP_EXECUTOR != null;
+    }
+
+    /**
+     * Executor that runs each decoding task in a new virtual thread.
+     * Wrap in a {@link SerialExecutor} to keep per-stream tasks in order.
+     *
+     * @return virtual thread executor or {@code null}, if virtual threads are not supported
+     */
+    public static ExecutorService getVirtualDecoderExecutor() {
+        return VirtualHolder.DECODER_EXECUTOR;
+    }
+
+    /**
+     * Executor that runs each pump in a new virtual thread.
+     * Wrap in a {@link SerialExecutor} to keep per-player tasks in order.
+     *
+     * @return virtual thread executor or {@code null}, if virtual threads are not supported
+     */
+    public static ExecutorService getVirtualPumpExecutor() {
+        return VirtualHolder.PUMP_EXECUTOR;
+    }
+
+    /**
+     * Pool for decoding tasks.
+     * Wrap in a {@link SerialExecutor} to keep per-stream tasks in order.
+     *
+     * @return shared decoder pool
+     */
+    public static ExecutorService getDecoderExecutor() {
+        return DecoderHolder.EXECUTOR;
+    }
+
+    /**
+     * Pool for player pumps.
+     * Wrap in a {@link SerialExecutor} to keep per-player tasks in order.
+     *
+     * @return shared pump pool
+     */
+    public static ExecutorService getPumpExecutor() {
+        return PumpHolder.EXECUTOR;
+    }
+
+    /**
+     * Single thread for building {@link SeekIndex}es in the background.
+     * Used by all streams, regardless of their threading.
+     *
+     * @return index executor
+     */
+    public static ExecutorService getIndexExecutor() {
+        return IndexHolder.EXECUTOR;
+    }
+
+    static ThreadFactory daemonThreadFactory(final String name, final int priority) {
+        final AtomicInteger id = new AtomicInteger(0);
+        return r -> {
+            final Thread t = new Thread(r, name + " " + id.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(priority);
+            return t;
+        };
+    }
+
+    /**
+     * Creates the equivalent of
+     * {@code Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name, 1).factory())}.
+     *
+     * @param name thread name prefix
+     * @return executor or {@code null}, if virtual threads are not supported
+     */
+    private static ExecutorService createVirtualThreadExecutor(final String name) {
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, Long.TYPE).invoke(builder, name + " ", 1L);
+            final ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                .invoke(null, threadFactory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            if (LOG.isLoggable(Level.FINE)) LOG.log(Level.FINE, "Virtual threads are not supported: " + e, e);
+            return null;
+        }
+    }
+
+    private static class VirtualHolder {
+        private static final ExecutorService DECODER_EXECUTOR = createVirtualThreadExecutor("Virtual Decoder Thread");
+        private static final ExecutorService PUMP_EXECUTOR = createVirtualThreadExecutor("Virtual Player Thread");
+    }
+
+    private static class DecoderHolder {
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            daemonThreadFactory("Shared Decoder Thread", Thread.MAX_PRIORITY)
+        );
+    }
+
+    private static class IndexHolder {
+        private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(
+            daemonThreadFactory("Seek Index Thread", Thread.MIN_PRIORITY)
+        );
+    }
+
+    private static class PumpHolder {
+        private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
+            daemonThreadFactory("Shared Player Thread", Thread.NORM_PRIORITY)
+        );
+    }
+}
@@ -0,0 +1,745 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Maps frame numbers to byte offsets in a local audio file, so that a decoder that
+ * cannot seek can be restarted close to a given frame instead of decoding everything
+ * before it.
+ * <p>
+ * For PCM in WAVE or AIFF files the mapping is linear and exact. For MPEG audio and
+ * native FLAC, checkpoints are recorded at frame boundaries, about
+ * {@link #CHECKPOINTS_PER_SECOND} times per second. Reaching any frame after a restart
+ * therefore means decoding a fraction of a second (plus a little pre-roll for MPEG),
+ * no matter how far into the file it is.
+ * <p>
+ * Indices are built by scanning the container's frame headers, which is a lot
+ * cheaper than decoding, and are kept in the {@link MetadataCache}.
+ * MPEG frame headers carry the frame length, so the scan jumps from header to header.
+ * FLAC frames don't, but are never shorter than the minimum frame size given
+ * in the stream info, so the scan skips at least that much after each header.
+ * Ogg is not supported, because restarting a Vorbis or Opus decoder mid-stream
+ * requires more than splicing the stream headers in front of a page.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+final class SeekIndex {
+
+    private static final Logger LOG = Logger.getLogger(SeekIndex.class.getName());
+    static final int CHECKPOINTS_PER_SECOND = 4;
+    // 2: MPEG indices no longer count the Xing/Info frame
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * MPEG audio frames to decode before the target, because Layer III frames
+     * may reference data of previous frames (bit reservoir).
+     */
+    private static final int MPEG_PREROLL_FRAMES = 4;
+    private static final int[][] MPEG_BITRATES = {
+        // MPEG 1, Layer I, II, III
+        {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+        {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+        {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},
+        // MPEG 2 and 2.5, Layer I, II and III
+        {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+        {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},
+    };
+    private static final int[] MPEG_SAMPLE_RATES = {44100, 48000, 32000};
+
+    private final AudioFileSniffer.Container container;
+    private final long headerLength;
+    private final int bytesPerFrame;
+    private final long preroll;
+    private final long[] frames;
+    private final long[] offsets;
+
+    /**
+     * Creates an index.
+     *
+     * @param container container format
+     * @param headerLength number of bytes at the start of the file a decoder needs to see before
+     *                     the frame data (FLAC), or offset of the first PCM frame (WAVE and AIFF)
+     * @param bytesPerFrame bytes per frame for linearly mapped PCM, otherwise {@code 0}
+     * @param preroll number of frames to decode before the target frame, when restarting
+     * @param frames checkpoint frames in ascending order, starting with {@code 0}
+     * @param offsets byte offsets of the checkpoints
+     */
+    SeekIndex(final AudioFileSniffer.Container container, final long headerLength, final int bytesPerFrame,
+              final long preroll, final long[] frames, final long[] offsets) {
+        Objects.requireNonNull(container, "Container must not be null");
+        if (frames.length == 0 || frames.length != offsets.length) throw new IllegalArgumentException("Frames and offsets must have the same, non-zero length");
+        this.container = container;
+        this.headerLength = headerLength;
+        this.bytesPerFrame = bytesPerFrame;
+        this.preroll = preroll;
+        this.frames = frames;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Looks up or builds the index for a local file.
+     * Built indices are kept in the {@link MetadataCache}.
+     *
+     * @param url url
+     * @return index or {@code null}, if the URL does not point to a local file
+     * or the format is not supported
+     */
+    static SeekIndex get(final URL url) {
+        final Path path = toPath(url);
+        if (path == null) return null;
+        final MetadataCache metadataCache = MetadataCache.getInstance();
+        final SeekIndex cached = metadataCache.getSeekIndex(url);
+        if (cached != null) return cached;
+        final AudioFileSniffer.Container container = AudioFileSniffer.sniff(url);
+        if (container == null) return null;
+        try {
+            final long start = System.nanoTime();
+            final SeekIndex index = build(path, container);
+            if (LOG.isLoggable(Level.FINE))
+                LOG.fine("Built " + index + " for " + url + " in " + (System.nanoTime() - start) / 1000000L + "ms");
+            if (index != null) metadataCache.putSeekIndex(url, index);
+            return index;
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Failed to index " + url, e);
+            return null;
+        }
+    }
+
+    /**
+     * Builds the index for a file.
+     *
+     * @param path file
+     * @param container container format of the file
+     * @return index or {@code null}, if the container or the codec in it is not supported
+     * @throws IOException if reading fails
+     */
+    static SeekIndex build(final Path path, final AudioFileSniffer.Container container) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final Reader reader = new Reader(channel);
+            switch (container) {
+                case WAVE: return buildWave(reader);
+                case AIFF: return buildAiff(reader);
+                case MPEG: return buildMpeg(reader);
+                case FLAC: return buildFlac(reader);
+                default: return null;
+            }
+        } catch (EOFException e) {
+            // truncated header
+            if (LOG.isLoggable(Level.FINE)) LOG.log(Level.FINE, "Failed to index " + path, e);
+            return null;
+        }
+    }
+
+    private static SeekIndex buildWave(final Reader reader) throws IOException {
+        // RIFF/RF64 size WAVE
+        reader.skip(12);
+        int blockAlign = 0;
+        while (true) {
+            final int id = reader.readInt();
+            final long size = reader.readIntLE() & 0xFFFFFFFFL;
+            final long start = reader.position();
+            if (id == fourCC("fmt ")) {
+                final int formatTag = reader.readShortLE();
+                reader.skip(10);
+                blockAlign = reader.readShortLE();
+                // PCM, IEEE float, A-law, mu-law, extensible
+                if (formatTag != 1 && formatTag != 3 && formatTag != 6 && formatTag != 7 && formatTag != 0xFFFE) return null;
+            } else if (id == fourCC("data")) {
+                if (blockAlign <= 0) return null;
+                return linear(AudioFileSniffer.Container.WAVE, start, blockAlign);
+            }
+            // chunks are padded to even sizes
+            reader.seek(start + size + (size & 1));
+        }
+    }
+
+    private static SeekIndex buildAiff(final Reader reader) throws IOException {
+        // FORM size AIFF/AIFC
+        reader.skip(8);
+        final boolean aifc = reader.readInt() == fourCC("AIFC");
+        int bytesPerFrame = 0;
+        while (true) {
+            final int id = reader.readInt();
+            final long size = reader.readInt() & 0xFFFFFFFFL;
+            final long start = reader.position();
+            if (id == fourCC("COMM")) {
+                final int channels = reader.readShort();
+                reader.skip(4);
+                final int sampleSize = reader.readShort();
+                reader.skip(10);
+                if (aifc) {
+                    // only uncompressed big or little endian samples map linearly
+                    final int compression = reader.readInt();
+                    if (compression != fourCC("NONE") && compression != fourCC("twos") && compression != fourCC("sowt")) return null;
+                }
+                bytesPerFrame = channels * ((sampleSize + 7) / 8);
+            } else if (id == fourCC("SSND")) {
+                if (bytesPerFrame <= 0) return null;
+                final long offset = reader.readInt() & 0xFFFFFFFFL;
+                return linear(AudioFileSniffer.Container.AIFF, start + 8 + offset, bytesPerFrame);
+            }
+            reader.seek(start + size + (size & 1));
+        }
+    }
+
+    private static SeekIndex linear(final AudioFileSniffer.Container container, final long dataOffset, final int bytesPerFrame) {
+        return new SeekIndex(container, dataOffset, bytesPerFrame, 0, new long[]{0}, new long[]{dataOffset});
+    }
+
+    private static SeekIndex buildMpeg(final Reader reader) throws IOException {
+        reader.seek(skipID3v2(reader));
+        final Checkpoints checkpoints = new Checkpoints();
+        int firstHeader = 0;
+        int samplesPerFrame = 0;
+        long frame = 0;
+        while (true) {
+            final long offset = reader.position();
+            final int header;
+            try {
+                header = reader.readInt();
+            } catch (EOFException e) {
+                break;
+            }
+            // sync, version, layer and sample rate must not change from frame to frame
+            if (firstHeader != 0 && (header & 0xFFFE0C00) != (firstHeader & 0xFFFE0C00)) break;
+            final int frameLength = mpegFrameLength(header);
+            if (frameLength <= 0) break;
+            if (firstHeader == 0) {
+                firstHeader = header;
+                samplesPerFrame = mpegSamplesPerFrame(header);
+                checkpoints.interval = mpegSampleRate(header) / CHECKPOINTS_PER_SECOND;
+                if (isMpegInfoFrame(reader, offset, header)) {
+                    // holds no audio, decoders skip it
+                    reader.seek(offset + frameLength);
+                    continue;
+                }
+            }
+            checkpoints.add(frame, offset);
+            frame += samplesPerFrame;
+            reader.seek(offset + frameLength);
+        }
+        if (firstHeader == 0) return null;
+        return checkpoints.toSeekIndex(AudioFileSniffer.Container.MPEG, 0, (long) MPEG_PREROLL_FRAMES * samplesPerFrame);
+    }
+
+    /**
+     * Length of an MPEG audio frame including its header.
+     *
+     * @param header frame header
+     * @return length in bytes or {@code 0}, if the header is invalid or uses the free format
+     */
+    static int mpegFrameLength(final int header) {
+        if ((header & 0xFFE00000) != 0xFFE00000) return 0;
+        final int version = header >>> 19 & 0x3;
+        final int layer = header >>> 17 & 0x3;
+        final int bitrateIndex = header >>> 12 & 0xF;
+        final int sampleRateIndex = header >>> 10 & 0x3;
+        if (version == 1 || layer == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) return 0;
+        final boolean mpeg1 = version == 3;
+        final int bitrate = MPEG_BITRATES[mpeg1 ? 3 - layer : layer == 3 ? 3 : 4][bitrateIndex] * 1000;
+        final int sampleRate = mpegSampleRate(header);
+        final int padding = header >>> 9 & 0x1;
+        if (layer == 3) return (12 * bitrate / sampleRate + padding) * 4;
+        if (layer == 1 && !mpeg1) return 72 * bitrate / sampleRate + padding;
+        return 144 * bitrate / sampleRate + padding;
+    }
+
+    /**
+     * Indicates whether the Layer III frame is a Xing/Info or VBRI frame, which describes the
+     * stream instead of holding audio.
+     *
+     * @param reader reader
+     * @param offset offset of the frame
+     * @param header frame header
+     * @return true, if the frame carries a Xing, Info or VBRI tag
+     */
+    private static boolean isMpegInfoFrame(final Reader reader, final long offset, final int header) throws IOException {
+        if ((header >>> 17 & 0x3) != 1) return false;
+        final boolean mpeg1 = (header >>> 19 & 0x3) == 3;
+        final boolean mono = (header >>> 6 & 0x3) == 3;
+        // Xing/Info follows the side info, VBRI always is at offset 36
+        final int sideInfoLength = mpeg1 ? mono ? 17 : 32 : mono ? 9 : 17;
+        final byte[] tag = new byte[4];
+        reader.seek(offset + 4 + sideInfoLength);
+        if (reader.peek(tag, 0, 4) && (fourCC(tag) == fourCC("Xing") || fourCC(tag) == fourCC("Info"))) return true;
+        reader.seek(offset + 36);
+        return reader.peek(tag, 0, 4) && fourCC(tag) == fourCC("VBRI");
+    }
+
+    private static int mpegSampleRate(final int header) {
+        final int version = header >>> 19 & 0x3;
+        final int sampleRate = MPEG_SAMPLE_RATES[header >>> 10 & 0x3];
+        return version == 3 ? sampleRate : version == 2 ? sampleRate / 2 : sampleRate / 4;
+    }
+
+    private static int mpegSamplesPerFrame(final int header) {
+        final int version = header >>> 19 & 0x3;
+        final int layer = header >>> 17 & 0x3;
+        if (layer == 3) return 384;
+        if (layer == 1 && version != 3) return 576;
+        return 1152;
+    }
+
+    private static SeekIndex buildFlac(final Reader reader) throws IOException {
+        final long start = skipID3v2(reader);
+        reader.seek(start);
+        if (reader.readInt() != fourCC("fLaC")) return null;
+        int minBlockSize = 0;
+        int minFrameSize = 0;
+        int sampleRate = 0;
+        long totalSamples = 0;
+        boolean last = false;
+        while (!last) {
+            final int blockHeader = reader.readInt();
+            last = (blockHeader & 0x80000000) != 0;
+            final int length = blockHeader & 0xFFFFFF;
+            final long blockStart = reader.position();
+            if ((blockHeader >>> 24 & 0x7F) == 0) {
+                // STREAMINFO
+                minBlockSize = reader.readShort();
+                final int maxBlockSize = reader.readShort();
+                if (minBlockSize != maxBlockSize) minBlockSize = 0;
+                minFrameSize = reader.readShort() << 8 | reader.read();
+                reader.skip(3);
+                final long bits = reader.readLong();
+                sampleRate = (int) (bits >>> 44);
+                totalSamples = bits & 0xFFFFFFFFFL;
+            }
+            reader.seek(blockStart + length);
+        }
+        if (sampleRate <= 0) return null;
+        final long headerLength = reader.position();
+        final Checkpoints checkpoints = new Checkpoints();
+        checkpoints.interval = sampleRate / CHECKPOINTS_PER_SECOND;
+        final byte[] header = new byte[16];
+        long nextFrame = -1;
+        while (reader.skipToFlacSync()) {
+            final long offset = reader.position();
+            if (!reader.peek(header, 0, header.length)) break;
+            final long frame = flacFrameNumber(header, minBlockSize);
+            // as we see every frame, stray sync codes in the audio data are recognized by
+            // not continuing where the previous frame left off. the first frame follows the header
+            if (frame < 0 || (nextFrame < 0 ? offset != headerLength : frame != nextFrame)) {
+                reader.skip(1);
+                continue;
+            }
+            checkpoints.add(frame, offset);
+            nextFrame = frame + flacBlockSize(header);
+            // the next frame cannot start before the minimum frame size (0, if unknown)
+            reader.skip(Math.max(1, minFrameSize));
+        }
+        if (checkpoints.count == 0) return null;
+        return checkpoints.toSeekIndex(AudioFileSniffer.Container.FLAC, headerLength, 0);
+    }
+
+    /**
+     * Decodes the number of the first sample of a FLAC frame from its header.
+     *
+     * @param header the first (up to) 16 bytes of a frame
+     * @param blockSize fixed block size of the stream or {@code 0}, if it's variable
+     * @return sample number or {@code -1}, if the header is not valid
+     */
+    static long flacFrameNumber(final byte[] header, final int blockSize) {
+        if ((header[0] & 0xFF) != 0xFF || (header[1] & 0xFE) != 0xF8) return -1;
+        final boolean variable = (header[1] & 0x01) != 0;
+        final int blockSizeCode = header[2] >>> 4 & 0xF;
+        final int sampleRateCode = header[2] & 0xF;
+        final int channels = header[3] >>> 4 & 0xF;
+        final int sampleSizeCode = header[3] >>> 1 & 0x7;
+        if (blockSizeCode == 0 || sampleRateCode == 15 || channels > 10 || sampleSizeCode == 3 || (header[3] & 0x1) != 0) return -1;
+        // UTF-8 like coded frame or sample number
+        final int extra = flacNumberExtraBytes(header[4]);
+        if (extra < 0) return -1;
+        long number = extra == 0 ? header[4] & 0xFF : header[4] & (0x3F >> extra);
+        int pos = 5;
+        for (int i = 0; i < extra; i++) {
+            final int b = header[pos++] & 0xFF;
+            if ((b & 0xC0) != 0x80) return -1;
+            number = number << 6 | b & 0x3F;
+        }
+        if (blockSizeCode == 6) pos++;
+        else if (blockSizeCode == 7) pos += 2;
+        if (sampleRateCode == 12) pos++;
+        else if (sampleRateCode == 13 || sampleRateCode == 14) pos += 2;
+        if (crc8(header, pos) != (header[pos] & 0xFF)) return -1;
+        if (variable) return number;
+        return blockSize > 0 ? number * blockSize : -1;
+    }
+
+    /**
+     * Number of samples in a FLAC frame.
+     *
+     * @param header valid frame header, see {@link #flacFrameNumber(byte[], int)}
+     * @return block size
+     */
+    static int flacBlockSize(final byte[] header) {
+        final int blockSizeCode = header[2] >>> 4 & 0xF;
+        final int pos = 5 + flacNumberExtraBytes(header[4]);
+        if (blockSizeCode == 1) return 192;
+        if (blockSizeCode <= 5) return 576 << blockSizeCode - 2;
+        if (blockSizeCode == 6) return (header[pos] & 0xFF) + 1;
+        if (blockSizeCode == 7) return ((header[pos] & 0xFF) << 8 | header[pos + 1] & 0xFF) + 1;
+        return 256 << blockSizeCode - 8;
+    }
+
+    private static int flacNumberExtraBytes(final byte first) {
+        final int b = first & 0xFF;
+        if (b < 0x80) return 0;
+        if (b < 0xC0) return -1;
+        if (b < 0xE0) return 1;
+        if (b < 0xF0) return 2;
+        if (b < 0xF8) return 3;
+        if (b < 0xFC) return 4;
+        if (b < 0xFE) return 5;
+        return 6;
+    }
+
+    private static int crc8(final byte[] data, final int length) {
+        int crc = 0;
+        for (int i = 0; i < length; i++) {
+            crc ^= data[i] & 0xFF;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x80) != 0 ? (crc << 1 ^ 0x07) & 0xFF : crc << 1 & 0xFF;
+            }
+        }
+        return crc;
+    }
+
+    /**
+     * @return offset of the first byte after an ID3v2 tag at the start of the file or {@code 0}
+     */
+    private static long skipID3v2(final Reader reader) throws IOException {
+        final byte[] header = new byte[10];
+        reader.seek(0);
+        if (!reader.peek(header, 0, 10)) return 0;
+        if (header[0] != 'I' || header[1] != 'D' || header[2] != '3') return 0;
+        final int size = (header[6] & 0x7F) << 21 | (header[7] & 0x7F) << 14 | (header[8] & 0x7F) << 7 | header[9] & 0x7F;
+        final boolean footer = (header[5] & 0x10) != 0;
+        return 10L + size + (footer ? 10 : 0);
+    }
+
+    private static int fourCC(final String s) {
+        return s.charAt(0) << 24 | s.charAt(1) << 16 | s.charAt(2) << 8 | s.charAt(3);
+    }
+
+    private static int fourCC(final byte[] b) {
+        return (b[0] & 0xFF) << 24 | (b[1] & 0xFF) << 16 | (b[2] & 0xFF) << 8 | b[3] & 0xFF;
+    }
+
+    static Path toPath(final URL url) {
+        if (!"file".equals(url.getProtocol())) return null;
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public AudioFileSniffer.Container getContainer() {
+        return container;
+    }
+
+    /**
+     * Indicates whether frames map linearly to offsets, i.e. the data is PCM.
+     * Restarted streams then contain raw PCM and must be wrapped in an
+     * {@link javax.sound.sampled.AudioInputStream} with the file's format.
+     *
+     * @return true, if linear
+     */
+    public boolean isLinear() {
+        return bytesPerFrame > 0;
+    }
+
+    public int getBytesPerFrame() {
+        return bytesPerFrame;
+    }
+
+    /**
+     * Number of checkpoints.
+     *
+     * @return count
+     */
+    public int getCheckpointCount() {
+        return frames.length;
+    }
+
+    /**
+     * Finds the frame to restart decoding at in order to reach the given frame.
+     *
+     * @param frame target frame
+     * @return last checkpoint at or before the target frame minus pre-roll
+     */
+    public long checkpoint(final long frame) {
+        final long target = Math.max(0, frame - preroll);
+        if (isLinear()) return target;
+        final int i = Arrays.binarySearch(frames, target);
+        return frames[i >= 0 ? i : -i - 2];
+    }
+
+    /**
+     * Byte offset of a checkpoint.
+     *
+     * @param checkpoint checkpoint as returned by {@link #checkpoint(long)}
+     * @return byte offset
+     */
+    public long offset(final long checkpoint) {
+        if (isLinear()) return offsets[0] + checkpoint * bytesPerFrame;
+        final int i = Arrays.binarySearch(frames, checkpoint);
+        if (i < 0) throw new IllegalArgumentException("Not a checkpoint: " + checkpoint);
+        return offsets[i];
+    }
+
+    /**
+     * Opens the file, so that decoding starts at the given checkpoint.
+     * For FLAC, the stream headers precede the frame data.
+     *
+     * @param url url of a local file
+     * @param checkpoint checkpoint as returned by {@link #checkpoint(long)}
+     * @return stream, which supports {@link InputStream#mark(int)}, as providers require it
+     * @throws IOException if the file cannot be read
+     */
+    public InputStream open(final URL url, final long checkpoint) throws IOException {
+        final Path path = toPath(url);
+        if (path == null) throw new IOException("Not a local file: " + url);
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            channel.position(offset(checkpoint));
+            final InputStream data = Channels.newInputStream(channel);
+            if (isLinear() || headerLength == 0) return new BufferedInputStream(data, BUFFER_SIZE);
+            final ByteBuffer header = ByteBuffer.allocate((int) headerLength);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                // keep reading
+            }
+            return new BufferedInputStream(new SequenceInputStream(
+                new ByteArrayInputStream(header.array(), 0, header.position()), data), BUFFER_SIZE);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes this index.
+     *
+     * @param out output
+     * @throws IOException if writing fails
+     * @see #read(DataInput)
+     */
+    public void write(final DataOutput out) throws IOException {
+        out.writeInt(VERSION);
+        out.writeUTF(container.name());
+        out.writeLong(headerLength);
+        out.writeInt(bytesPerFrame);
+        out.writeLong(preroll);
+        out.writeInt(frames.length);
+        for (int i = 0; i < frames.length; i++) {
+            out.writeLong(frames[i]);
+            out.writeLong(offsets[i]);
+        }
+    }
+
+    /**
+     * Reads an index.
+     *
+     * @param in input
+     * @return index
+     * @throws IOException if reading fails or the data is not a valid index
+     * @see #write(DataOutput)
+     */
+    public static SeekIndex read(final DataInput in) throws IOException {
+        final int version = in.readInt();
+        if (version != VERSION) throw new IOException("Unsupported seek index version: " + version);
+        try {
+            final AudioFileSniffer.Container container = AudioFileSniffer.Container.valueOf(in.readUTF());
+            final long headerLength = in.readLong();
+            final int bytesPerFrame = in.readInt();
+            final long preroll = in.readLong();
+            final int count = in.readInt();
+            if (count <= 0) throw new IOException("Invalid number of checkpoints: " + count);
+            final long[] frames = new long[count];
+            final long[] offsets = new long[count];
+            for (int i = 0; i < count; i++) {
+                frames[i] = in.readLong();
+                offsets[i] = in.readLong();
+            }
+            return new SeekIndex(container, headerLength, bytesPerFrame, preroll, frames, offsets);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt seek index", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SeekIndex{" +
+            "container=" + container +
+            ", headerLength=" + headerLength +
+            ", bytesPerFrame=" + bytesPerFrame +
+            ", preroll=" + preroll +
+            ", checkpoints=" + frames.length +
+            '}';
+    }
+
+    /**
+     * Collects checkpoints at least {@link #interval} frames apart.
+     */
+    private static class Checkpoints {
+
+        private long[] frames = new long[256];
+        private long[] offsets = new long[256];
+        private int count;
+        private long interval;
+
+        private void add(final long frame, final long offset) {
+            if (count > 0 && frame - frames[count - 1] < interval) return;
+            if (count == frames.length) {
+                frames = Arrays.copyOf(frames, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            frames[count] = frame;
+            offsets[count] = offset;
+            count++;
+        }
+
+        private SeekIndex toSeekIndex(final AudioFileSniffer.Container container, final long headerLength, final long preroll) {
+            return new SeekIndex(container, headerLength, 0, preroll,
+                Arrays.copyOf(frames, count), Arrays.copyOf(offsets, count));
+        }
+    }
+
+    /**
+     * Buffered, seekable big and little endian reader for scanning headers.
+     */
+    private static class Reader {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        // file position of the first byte in the buffer
+        private long bufferPosition;
+
+        private Reader(final FileChannel channel) {
+            this.channel = channel;
+            this.buffer.limit(0);
+        }
+
+        private long position() {
+            return bufferPosition + buffer.position();
+        }
+
+        private void seek(final long position) {
+            if (position >= bufferPosition && position <= bufferPosition + buffer.limit()) {
+                buffer.position((int) (position - bufferPosition));
+            } else {
+                bufferPosition = position;
+                buffer.limit(0);
+            }
+        }
+
+        private void skip(final long n) {
+            seek(position() + n);
+        }
+
+        /**
+         * Ensures that at least {@code n} bytes are buffered.
+         *
+         * @return false, if the file ends before
+         */
+        private boolean fill(final int n) throws IOException {
+            if (buffer.remaining() >= n) return true;
+            bufferPosition += buffer.position();
+            buffer.compact();
+            while (buffer.position() < n) {
+                if (channel.read(buffer, bufferPosition + buffer.position()) < 0) break;
+            }
+            buffer.flip();
+            return buffer.remaining() >= n;
+        }
+
+        /**
+         * Moves to the next FLAC frame sync code, i.e. {@code 0xFFF8} or {@code 0xFFF9},
+         * searching the buffer directly instead of reading byte by byte.
+         *
+         * @return false, if the file ends before
+         */
+        private boolean skipToFlacSync() throws IOException {
+            while (fill(2)) {
+                final byte[] array = buffer.array();
+                final int end = buffer.limit() - 1;
+                for (int i = buffer.position(); i < end; i++) {
+                    if (array[i] == (byte) 0xFF && (array[i + 1] & 0xFE) == 0xF8) {
+                        buffer.position(i);
+                        return true;
+                    }
+                }
+                // the last byte may be the first half of a sync code
+                buffer.position(end);
+            }
+            return false;
+        }
+
+        private int read() throws IOException {
+            if (!fill(1)) throw new EOFException();
+            return buffer.get() & 0xFF;
+        }
+
+        /**
+         * Copies the next {@code n} bytes without consuming them.
+         *
+         * @return false, if the file ends before
+         */
+        private boolean peek(final byte[] dst, final int off, final int n) throws IOException {
+            if (!fill(n)) return false;
+            for (int i = 0; i < n; i++) {
+                dst[off + i] = buffer.get(buffer.position() + i);
+            }
+            return true;
+        }
+
+        private int readShort() throws IOException {
+            if (!fill(2)) throw new EOFException();
+            return buffer.getShort() & 0xFFFF;
+        }
+
+        private int readShortLE() throws IOException {
+            return Short.reverseBytes((short) readShort()) & 0xFFFF;
+        }
+
+        private int readInt() throws IOException {
+            if (!fill(4)) throw new EOFException();
+            return buffer.getInt();
+        }
+
+        private int readIntLE() throws IOException {
+            return Integer.reverseBytes(readInt());
+        }
+
+        private long readLong() throws IOException {
+            if (!fill(8)) throw new EOFException();
+            return buffer.getLong();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import java.time.Duration;
+
+/**
+ * Seek statistics of a {@link JavaPlayer}, meant to help tuning seeking,
+ * e.g. while the user drags a scrub bar.
+ * <p>
+ * Seek latency is measured from the {@link JavaPlayer#setTime(Duration)} call
+ * to the first write of audio from the new position to the line.
+ * Only seeks that complete while the player is playing are measured.
+ * <p>
+ * Seek requests are latest-wins: a request that is superseded by a newer one
+ * before it completes is counted as coalesced and never executed to the end.
+ * <p>
+ * Latencies are kept in a histogram with power of two millisecond buckets,
+ * so percentiles are upper bounds.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see JavaPlayer#getSeekStatistics()
+ */
+public final class SeekStatistics {
+
+    // [0, 1ms), [1ms, 2ms), [2ms, 4ms) ... [16384ms, ...)
+    private static final int BUCKETS = 16;
+
+    private final long[] histogram = new long[BUCKETS];
+    private long requestCount;
+    private long coalescedCount;
+    private long completedCount;
+    private long totalLatency;
+    private long minLatency = Long.MAX_VALUE;
+    private long maxLatency;
+
+    SeekStatistics() {
+    }
+
+    synchronized void requested(final boolean coalesced) {
+        requestCount++;
+        if (coalesced) coalescedCount++;
+    }
+
+    synchronized void completed(final long latencyNanos) {
+        completedCount++;
+        totalLatency += latencyNanos;
+        minLatency = Math.min(minLatency, latencyNanos);
+        maxLatency = Math.max(maxLatency, latencyNanos);
+        final long millis = latencyNanos / 1000000L;
+        final int bucket = millis <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(millis);
+        histogram[Math.min(BUCKETS - 1, bucket)]++;
+    }
+
+    /**
+     * Number of seek requests, i.e. calls to {@link JavaPlayer#setTime(Duration)}.
+     *
+     * @return count
+     */
+    public synchronized long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * Number of seek requests that were superseded by a newer request before they completed.
+     *
+     * @return count
+     */
+    public synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * Number of measured seeks.
+     *
+     * @return count
+     */
+    public synchronized long getCompletedCount() {
+        return completedCount;
+    }
+
+    /**
+     * Shortest measured latency.
+     *
+     * @return latency or {@code null}, if nothing was measured
+     */
+    public synchronized Duration getMinLatency() {
+        return completedCount == 0 ? null : Duration.ofNanos(minLatency);
+    }
+
+    /**
+     * Longest measured latency.
+     *
+     * @return latency or {@code null}, if nothing was measured
+     */
+    public synchronized Duration getMaxLatency() {
+        return completedCount == 0 ? null : Duration.ofNanos(maxLatency);
+    }
+
+    /**
+     * Mean latency.
+     *
+     * @return latency or {@code null}, if nothing was measured
+     */
+    public synchronized Duration getMeanLatency() {
+        return completedCount == 0 ? null : Duration.ofNanos(totalLatency / completedCount);
+    }
+
+    /**
+     * Upper bound for the latency below which the given percentage of seeks completed.
+     *
+     * @param percentile percentile, e.g. {@code 95}
+     * @return latency or {@code null}, if nothing was measured
+     * @throws IllegalArgumentException if the percentile is not in {@code (0, 100]}
+     */
+    public synchronized Duration getLatencyPercentile(final double percentile) {
+        if (!(percentile > 0 && percentile <= 100)) throw new IllegalArgumentException("Percentile must be in (0, 100]: " + percentile);
+        if (completedCount == 0) return null;
+        final long rank = (long) Math.ceil(completedCount * percentile / 100.0);
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKETS - 1; bucket++) {
+            count += histogram[bucket];
+            if (count >= rank) {
+                return Duration.ofNanos(Math.min(maxLatency, (1L << bucket) * 1000000L));
+            }
+        }
+        return Duration.ofNanos(maxLatency);
+    }
+
+    /**
+     * Resets all counts and latencies.
+     */
+    public synchronized void reset() {
+        requestCount = 0;
+        coalescedCount = 0;
+        completedCount = 0;
+        totalLatency = 0;
+        minLatency = Long.MAX_VALUE;
+        maxLatency = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = 0;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SeekStatistics{" +
+            "requests=" + requestCount +
+            ", coalesced=" + coalescedCount +
+            ", completed=" + completedCount +
+            ", mean=" + getMeanLatency() +
+            ", p95=" + (completedCount == 0 ? null : getLatencyPercentile(95)) +
+            ", max=" + getMaxLatency() +
+            '}';
+    }
+}
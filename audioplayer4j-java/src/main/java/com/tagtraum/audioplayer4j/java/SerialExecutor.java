@@ -0,0 +1,139 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes tasks one after another, in submission order, on a (shared)
+ * backing {@link Executor}. This lets many serializers share a small pool of
+ * threads, while keeping the tasks of each serializer strictly ordered.
+ * <p>
+ * Only one task is executed per hand-off to the backing executor, so that
+ * serializers with many queued tasks don't starve others.
+ * Shutting down this executor does not shut down the backing executor.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+final class SerialExecutor extends AbstractExecutorService {
+
+    private final Executor executor;
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final Runnable runNext = this::runNext;
+    private boolean scheduled;
+    private boolean shutdown;
+    private boolean terminated;
+
+    /**
+     * Creates a serial executor.
+     *
+     * @param executor backing executor
+     */
+    public SerialExecutor(final Executor executor) {
+        this.executor = Objects.requireNonNull(executor, "Executor must not be null");
+    }
+
+    @Override
+    public synchronized void execute(final Runnable command) {
+        Objects.requireNonNull(command, "Command must not be null");
+        if (shutdown) throw new RejectedExecutionException("Executor has been shut down: " + this);
+        tasks.add(command);
+        if (!scheduled) {
+            schedule();
+        }
+    }
+
+    private void runNext() {
+        final Runnable task;
+        synchronized (this) {
+            task = tasks.poll();
+        }
+        try {
+            if (task != null) task.run();
+        } finally {
+            synchronized (this) {
+                if (tasks.isEmpty()) {
+                    scheduled = false;
+                    if (shutdown) terminate();
+                } else {
+                    schedule();
+                }
+            }
+        }
+    }
+
+    private void schedule() {
+        try {
+            executor.execute(runNext);
+            scheduled = true;
+        } catch (RejectedExecutionException e) {
+            // backing executor is gone, nothing will ever run again
+            tasks.clear();
+            scheduled = false;
+            shutdown = true;
+            terminate();
+            throw e;
+        }
+    }
+
+    private void terminate() {
+        terminated = true;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        shutdown = true;
+        if (!scheduled) terminate();
+    }
+
+    @Override
+    public synchronized List<Runnable> shutdownNow() {
+        final List<Runnable> notExecuted = new ArrayList<>(tasks);
+        tasks.clear();
+        shutdown();
+        return notExecuted;
+    }
+
+    @Override
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public synchronized boolean isTerminated() {
+        return terminated;
+    }
+
+    @Override
+    public synchronized boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!terminated) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return false;
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "SerialExecutor{" +
+            "executor=" + executor +
+            ", shutdown=" + shutdown +
+            ", terminated=" + terminated +
+            '}';
+    }
+}
@@ -10,11 +10,15 @@ import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
+import javax.sound.sampled.spi.AudioFileReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.time.Duration;
+import java.util.Objects;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
@@ -25,29 +29,165 @@ import static java.time.temporal.ChronoUnit.MICROS;
 
 /**
  * Ensure single-threaded access to a wrapped {@link AudioInputStream}.
+ * <p>
+ * Decoded audio is passed from the decoder thread to the reader via a
+ * preallocated {@link AudioRingBuffer}, so reading does not allocate.
+ * <p>
+ * The decoder reads ahead chunk by chunk until the buffered audio reaches the
+ * high watermark and resumes once it drops below the low watermark. This lets slow
+ * decoders absorb jitter instead of making the reader wait on every read.
+ * <p>
+ * Streams that are not {@linkplain #isSeekable() seekable} may still be
+ * {@linkplain #restart(long) restarted} close to a given frame, if their file can be indexed.
+ * <p>
+ * Local WAVE and AIFF files, whose PCM already has the requested format, are not
+ * decoded at all. Instead, reads copy straight from the memory-mapped file
+ * (see {@link MappedPcmReader}), and such streams are always seekable.
  */
 public class SingleThreadedAudioInputStream implements AutoCloseable {
 
     private static final Logger LOG = Logger.getLogger(SingleThreadedAudioInputStream.class.getName());
     private static final AtomicInteger id = new AtomicInteger(0);
+    private static final int READ_AHEAD_CHUNK_SIZE = 32 * 1024; // in bytes
+    private static final int SKIP_CHUNK_SIZE = 1024 * 1024; // in bytes
+    /**
+     * Default low watermark for the read-ahead buffer.
+     */
+    public static final Duration DEFAULT_READ_AHEAD_LOW_WATERMARK = Duration.ofMillis(500);
+    /**
+     * Default high watermark for the read-ahead buffer.
+     */
+    public static final Duration DEFAULT_READ_AHEAD_HIGH_WATERMARK = Duration.ofSeconds(1);
+    /**
+     * Default time a task may wait for the decoder, before it starts and its own timeout begins.
+     */
+    static final Duration DEFAULT_QUEUE_TIMEOUT = Duration.ofSeconds(10);
 
     private final AtomicLong frameNumber = new AtomicLong(0);
+    private final AtomicBoolean readAheadPending = new AtomicBoolean();
     private final ExecutorService serializer;
-    private final AudioInputStream stream;
+    private final URL url;
+    private final AudioFileReader audioFileReader;
+    /** {@code null} for mapped streams. */
+    private volatile AudioInputStream stream;
     private final AudioFormat format;
-    private final BlockingDeque<AudioChunk> bufferDeque = new LinkedBlockingDeque<>();
+    /** {@code null} for mapped streams. */
+    private final AudioRingBuffer ringBuffer;
+    private final int lowWatermark;
+    private final int highWatermark;
+    private final Runnable fillTask = this::fill;
     private String originalStream;
+    // format and length of the stream returned by the provider, only accessed by the serializer
+    private AudioFormat sourceFormat;
+    private long sourceFrameLength;
+    /** Built in the background, once it's first needed, completes with {@code null}, if there is none. */
+    private volatile CompletableFuture<SeekIndex> seekIndex;
+    private byte[] skipBuffer;
+    private volatile Duration queueTimeout = DEFAULT_QUEUE_TIMEOUT;
+    /** Memory-mapped PCM that is read instead of {@link #stream} and {@link #ringBuffer}, or {@code null}. Only used by the reader. */
+    private MappedPcmReader mapped;
 
     public SingleThreadedAudioInputStream(final URL url, final AudioFormat format) throws ExecutionException, InterruptedException, IOException, UnsupportedAudioFileException {
+        this(url, format, DEFAULT_READ_AHEAD_LOW_WATERMARK, DEFAULT_READ_AHEAD_HIGH_WATERMARK);
+    }
+
+    /**
+     * Creates a stream that reads ahead until {@code highWatermark} worth of audio
+     * is buffered and resumes reading once less than {@code lowWatermark} is buffered.
+     *
+     * @param url url
+     * @param format desired format
+     * @param lowWatermark low watermark, must not be negative
+     * @param highWatermark high watermark, must be positive and not less than {@code lowWatermark}
+     * @throws IllegalArgumentException if the watermarks are invalid
+     */
+    public SingleThreadedAudioInputStream(final URL url, final AudioFormat format,
+                                          final Duration lowWatermark, final Duration highWatermark)
+        throws ExecutionException, InterruptedException, IOException, UnsupportedAudioFileException {
+        this(url, format, lowWatermark, highWatermark, null);
+    }
+
+    /**
+     * Creates a stream that reads ahead until {@code highWatermark} worth of audio
+     * is buffered and resumes reading once less than {@code lowWatermark} is buffered.
+     * Decoding takes place on the given executor, which may be shared with other
+     * streams. Tasks belonging to this stream are still executed one after another.
+     *
+     * @param url url
+     * @param format desired format
+     * @param lowWatermark low watermark, must not be negative
+     * @param highWatermark high watermark, must be positive and not less than {@code lowWatermark}
+     * @param executor executor to decode on, or {@code null} to use a dedicated thread
+     * @throws IllegalArgumentException if the watermarks are invalid
+     */
+    public SingleThreadedAudioInputStream(final URL url, final AudioFormat format,
+                                          final Duration lowWatermark, final Duration highWatermark,
+                                          final Executor executor)
+        throws ExecutionException, InterruptedException, IOException, UnsupportedAudioFileException {
+        this(url, null, () -> ExtAudioSystem.getAudioInputStream(url, 32 * 1024), format, lowWatermark, highWatermark, executor);
+    }
+
+    /**
+     * Creates a stream for an already probed URL. The audio input stream is obtained
+     * from the provider that recognized the audio file format, without trying all
+     * providers again.
+     *
+     * @param probe probe
+     * @param format desired format
+     * @param lowWatermark low watermark, must not be negative
+     * @param highWatermark high watermark, must be positive and not less than {@code lowWatermark}
+     * @param executor executor to decode on, or {@code null} to use a dedicated thread
+     * @throws IllegalArgumentException if the watermarks are invalid
+     * @see ExtAudioSystem#probe(URL)
+     */
+    public SingleThreadedAudioInputStream(final ExtAudioSystem.Probe probe, final AudioFormat format,
+                                          final Duration lowWatermark, final Duration highWatermark,
+                                          final Executor executor)
+        throws ExecutionException, InterruptedException, IOException, UnsupportedAudioFileException {
+        this(probe.getURL(), probe.getAudioFileReader(), () -> probe.getAudioInputStream(32 * 1024), format,
+            lowWatermark, highWatermark, executor);
+    }
+
+    private SingleThreadedAudioInputStream(final URL url, final AudioFileReader audioFileReader,
+                                           final Callable<AudioInputStream> source, final AudioFormat format,
+                                           final Duration lowWatermark, final Duration highWatermark,
+                                           final Executor executor)
+        throws ExecutionException, InterruptedException, IOException, UnsupportedAudioFileException {
+        checkWatermarks(lowWatermark, highWatermark);
+        this.url = url;
+        this.audioFileReader = audioFileReader;
         try {
-            this.serializer = Executors.newSingleThreadExecutor(r -> {
-                final Thread t = new Thread(r, "SingleThreadedAudioInputStream-" + id.incrementAndGet() + " " + url);
-                t.setPriority(Thread.MAX_PRIORITY);
-                return t;
+            if (executor != null) {
+                this.serializer = new SerialExecutor(executor);
+            } else {
+                this.serializer = Executors.newSingleThreadExecutor(r -> {
+                    final Thread t = new Thread(r, "SingleThreadedAudioInputStream-" + id.incrementAndGet() + " " + url);
+                    t.setPriority(Thread.MAX_PRIORITY);
+                    return t;
+                });
+            }
+            final Future<AudioInputStream> f = submit(() -> {
+                final AudioInputStream sourceStream = source.call();
+                this.sourceFormat = sourceStream.getFormat();
+                this.sourceFrameLength = sourceStream.getFrameLength();
+                this.mapped = MappedPcmReader.open(url, sourceFormat, sourceFrameLength, format);
+                if (mapped != null) {
+                    // the mapping is read instead, don't keep the file open
+                    this.originalStream = sourceStream.toString();
+                    sourceStream.close();
+                    return null;
+                }
+                return openStream(sourceStream, format);
             });
-            final Future<AudioInputStream> f = this.serializer.submit(() -> openStream(ExtAudioSystem.getAudioInputStream(url, 32 * 1024), format));
             this.stream = f.get(1, TimeUnit.SECONDS);
-            this.format = stream.getFormat();
+            this.format = stream != null ? stream.getFormat() : sourceFormat;
+            this.lowWatermark = toBytes(this.format, lowWatermark);
+            this.highWatermark = Math.max(frameSize(this.format), toBytes(this.format, highWatermark));
+            // room for the high watermark, a chunk overshooting it, and the data the
+            // reader has not released yet, which may be as much as the high watermark.
+            // mapped streams don't decode into it
+            this.ringBuffer = mapped != null ? null
+                : new AudioRingBuffer(2 * this.highWatermark + READ_AHEAD_CHUNK_SIZE, frameSize(this.format));
         } catch (ExecutionException e) {
             if (e.getCause() instanceof UnsupportedAudioFileException) throw (UnsupportedAudioFileException)e.getCause();
             if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
@@ -58,10 +198,59 @@ public class SingleThreadedAudioInputStream implements AutoCloseable {
         }
     }
 
+    /**
+     * Validates read-ahead watermarks.
+     *
+     * @param lowWatermark low watermark
+     * @param highWatermark high watermark
+     * @throws IllegalArgumentException if the watermarks are invalid
+     */
+    static void checkWatermarks(final Duration lowWatermark, final Duration highWatermark) {
+        Objects.requireNonNull(lowWatermark, "Low watermark must not be null");
+        Objects.requireNonNull(highWatermark, "High watermark must not be null");
+        if (lowWatermark.isNegative()) throw new IllegalArgumentException("Low watermark must not be negative: " + lowWatermark);
+        if (highWatermark.isNegative() || highWatermark.isZero()) throw new IllegalArgumentException("High watermark must be positive: " + highWatermark);
+        if (lowWatermark.compareTo(highWatermark) > 0) throw new IllegalArgumentException("Low watermark " + lowWatermark
+            + " must not be greater than high watermark " + highWatermark);
+    }
+
+    private static int frameSize(final AudioFormat format) {
+        return format.getFrameSize() > 0 ? format.getFrameSize() : 1;
+    }
+
+    private static int toBytes(final AudioFormat format, final Duration duration) {
+        // unknown frame rate, assume CD quality
+        final float frameRate = format.getFrameRate() > 0 ? format.getFrameRate() : 44100f;
+        final long frames = (long) (duration.dividedBy(MICROS.getDuration()) * frameRate / 1000000.0);
+        return (int) Math.min(Integer.MAX_VALUE / 4, frames * frameSize(format));
+    }
+
     public long getFrameNumber() {
         return frameNumber.get();
     }
 
+    /**
+     * Format of the data returned by {@link #read(byte[])}.
+     *
+     * @return format
+     */
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Starts decoding up to the high watermark, without waiting for
+     * the first {@link #read(byte[])}. Useful to prepare a stream that
+     * is going to be played next.
+     */
+    public void prefetch() {
+        if (mapped != null) {
+            touchAhead();
+        } else if (isBelowLowWatermark()) {
+            readAhead();
+        }
+    }
+
     /**
      * Attempt to open an audio inputstream with a certain format.
      *
@@ -136,6 +325,7 @@ public class SingleThreadedAudioInputStream implements AutoCloseable {
 
 
     public boolean isSeekable() {
+        if (mapped != null) return true;
         try {
             return (Boolean) stream.getClass().getMethod("isSeekable").invoke(stream);
         } catch (Exception e) {
@@ -144,9 +334,17 @@ public class SingleThreadedAudioInputStream implements AutoCloseable {
     }
 
     public void seek(final Duration duration) throws IOException {
+        if (mapped != null) {
+            // same rounding as the player, so that positions agree
+            mapped.setFramePosition(Math.round(duration.toNanos() * (double) format.getFrameRate() / 1000000000.0));
+            frameNumber.set(mapped.getFramePosition());
+            touchAhead();
+            return;
+        }
         try {
-            final Future<Void> f = this.serializer.submit(() -> {
-                bufferDeque.clear();
+            final Future<Void> f = submit(() -> {
+                // the reader is blocked waiting for us, so it's safe to clear
+                ringBuffer.clear();
                 if (frameNumber.get() == 0 && duration.equals(ZERO)) {
                     LOG.warning("Unnecessary seek");
                     return null;
@@ -180,18 +378,212 @@ public class SingleThreadedAudioInputStream implements AutoCloseable {
         }
     }
 
+    /**
+     * Restarts decoding close to, but not after the given frame, using the {@link SeekIndex}
+     * of the file. This is meant for streams that are not {@linkplain #isSeekable() seekable} and
+     * would otherwise have to be decoded from the start to reach an earlier frame,
+     * or up to the frame to reach a later one.
+     * <p>
+     * The index is built in the background, when it's first needed, and kept in the {@link MetadataCache}.
+     * Until it's ready, streams cannot be restarted.
+     *
+     * @param frame target frame
+     * @return frame decoding continues at, or {@link AudioSystem#NOT_SPECIFIED}, if the
+     * stream cannot be restarted, e.g. because it's not a local file, its format cannot be indexed
+     * or its index is not ready yet
+     * @throws IOException if restarting fails
+     */
+    public long restart(final long frame) throws IOException {
+        final CompletableFuture<SeekIndex> seekIndex = getSeekIndex();
+        final SeekIndex index = seekIndex.getNow(null);
+        if (index == null) {
+            if (LOG.isLoggable(Level.FINE) && !seekIndex.isDone()) LOG.fine("Seek index for " + url + " is not ready yet");
+            return AudioSystem.NOT_SPECIFIED;
+        }
+        final Future<Long> f = submit(() -> {
+            // checkpoints are samples of the source stream, which may have a different rate.
+            // the source frame rate may be the rate of compressed frames, e.g. for MPEG
+            final double ratio = sourceFormat.getSampleRate() > 0 && format.getSampleRate() > 0
+                ? sourceFormat.getSampleRate() / (double) format.getSampleRate()
+                : 1.0;
+            final long checkpoint = index.checkpoint((long) (frame * ratio));
+            final AudioInputStream restarted = openStream(openSource(index, checkpoint), format);
+            final AudioInputStream previous = stream;
+            stream = restarted;
+            try {
+                previous.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            // the reader is blocked waiting for us, so it's safe to clear
+            ringBuffer.clear();
+            final long restartFrame = (long) (checkpoint / ratio);
+            frameNumber.set(restartFrame);
+            if (LOG.isLoggable(Level.FINE)) LOG.fine("Restarted " + url + " at frame " + restartFrame + " for frame " + frame);
+            return restartFrame;
+        });
+        try {
+            // opening the file and a new decoder
+            return f.get(5, TimeUnit.SECONDS);
+        } catch (InterruptedException | TimeoutException e) {
+            // don't let the task replace the stream behind our back
+            f.cancel(true);
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Seek index used by {@link #restart(long)}. The first call starts building it in the background.
+     * Seekable streams, mapped or not, and streams of non-local files don't need or cannot have one.
+     *
+     * @return future index, completes with {@code null}, if the stream cannot be restarted
+     */
+    CompletableFuture<SeekIndex> getSeekIndex() {
+        CompletableFuture<SeekIndex> seekIndex = this.seekIndex;
+        if (seekIndex == null) {
+            synchronized (this) {
+                seekIndex = this.seekIndex;
+                if (seekIndex == null) {
+                    seekIndex = SeekIndex.toPath(url) == null || isSeekable()
+                        ? CompletableFuture.completedFuture(null)
+                        : CompletableFuture.supplyAsync(this::buildSeekIndex, PlayerExecutors.getIndexExecutor())
+                            .exceptionally(e -> null);
+                    this.seekIndex = seekIndex;
+                }
+            }
+        }
+        return seekIndex;
+    }
+
+    private SeekIndex buildSeekIndex() {
+        // don't scan files of streams that were closed while waiting for their turn
+        if (serializer.isShutdown()) return null;
+        final SeekIndex index = SeekIndex.get(url);
+        // raw PCM needs its exact length, or we'd play trailing chunks
+        if (index != null && (!index.isLinear() || index.getBytesPerFrame() == sourceFormat.getFrameSize()
+            && sourceFrameLength != AudioSystem.NOT_SPECIFIED)) {
+            return index;
+        }
+        return null;
+    }
+
+    private AudioInputStream openSource(final SeekIndex index, final long checkpoint) throws IOException, UnsupportedAudioFileException {
+        final InputStream in = index.open(url, checkpoint);
+        try {
+            if (index.isLinear()) return new AudioInputStream(in, sourceFormat, Math.max(0, sourceFrameLength - checkpoint));
+            return audioFileReader != null ? audioFileReader.getAudioInputStream(in) : AudioSystem.getAudioInputStream(in);
+        } catch (IOException | UnsupportedAudioFileException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Skips frames without passing them to the reader. Audio that has already been decoded
+     * is discarded first, then the decoder skips the rest on its own thread via
+     * {@link AudioInputStream#skip(long)}, which providers may implement without decoding,
+     * e.g. by skipping bytes in the file.
+     * <p>
+     * Long distances are skipped in chunks of about 1 MB of decoded audio, each in its own task
+     * with its own timeout. So a long skip does not time out just because it's long, and
+     * tasks of other streams sharing the executor get their turn in between.
+     * Data returned by previous reads can no longer be {@linkplain #unread(byte[], int, int) pushed back}.
+     *
+     * @param frames number of frames to skip
+     * @return number of frames skipped, less than requested, if the stream ended
+     * @throws IOException if skipping fails
+     */
+    public long skip(final long frames) throws IOException {
+        if (frames <= 0) return 0;
+        if (mapped != null) {
+            final long from = mapped.getFramePosition();
+            mapped.setFramePosition(from + frames);
+            frameNumber.set(mapped.getFramePosition());
+            touchAhead();
+            return mapped.getFramePosition() - from;
+        }
+        ringBuffer.release();
+        long skipped = 0;
+        while (skipped < frames) {
+            final long remaining = frames - skipped;
+            final Future<Long> f = submit(() -> skipChunk(remaining));
+            try {
+                // at worst, the decoder has to decode the chunk
+                final long justSkipped = f.get(5, TimeUnit.SECONDS);
+                if (justSkipped <= 0) break;
+                skipped += justSkipped;
+            } catch (InterruptedException | TimeoutException e) {
+                f.cancel(true);
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw new IOException(e.getCause());
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * Skips up to one chunk on the decoder thread.
+     *
+     * @param frames number of frames left to skip
+     * @return number of frames skipped, {@code 0}, if the stream has ended
+     */
+    private long skipChunk(final long frames) throws IOException {
+        final int frameSize = frameSize(format);
+        // the reader is blocked waiting for us, so it's safe to discard buffered data,
+        // including whatever was read ahead since the previous chunk
+        long skipped = ringBuffer.skip((int) Math.min(Integer.MAX_VALUE / frameSize, frames) * frameSize) / frameSize;
+        if (skipped < frames) {
+            final long justSkipped = skipStream(Math.min(frames - skipped, SKIP_CHUNK_SIZE / frameSize) * frameSize) / frameSize;
+            if (justSkipped > 0) skipped += justSkipped;
+        }
+        // keep the frame number valid, even if a later chunk fails
+        frameNumber.addAndGet(skipped);
+        return skipped;
+    }
+
+    /**
+     * Skips bytes in the decoded stream. Falls back to reading, if the stream
+     * does not skip.
+     *
+     * @param bytes number of bytes, a multiple of the frame size
+     * @return number of bytes skipped or {@code -1}, if the stream has ended
+     */
+    private long skipStream(final long bytes) throws IOException {
+        final long justSkipped = stream.skip(bytes);
+        if (justSkipped > 0) return justSkipped;
+        if (skipBuffer == null) skipBuffer = new byte[READ_AHEAD_CHUNK_SIZE];
+        final int length = (int) Math.min(bytes, skipBuffer.length - skipBuffer.length % frameSize(format));
+        final int justRead = stream.read(skipBuffer, 0, length);
+        if (justRead < 0) ringBuffer.signalEndOfStream();
+        return justRead;
+    }
+
     /**
      * Push data back into the stream.
+     * Only data returned by the most recent call to {@link #read(byte[])}
+     * can be pushed back, i.e. {@code buf} must be the buffer passed to that call
+     * and the pushed back bytes must be its last {@code length} read bytes.
+     * Because the read data is still in the ring buffer, this merely moves
+     * the read cursor and does not copy {@code buf}.
      *
      * @param buf buffer
      * @param off offset
      * @param length length
      */
     public void unread(final byte[] buf, final int off, final int length) {
-        if (length > 0) {
-            final AudioChunk chunk = new AudioChunk(buf, off, length);
-            bufferDeque.addFirst(chunk);
-            frameNumber.addAndGet(-chunk.getLength() / format.getFrameSize());
+        if (length > 0 && mapped != null) {
+            mapped.setFramePosition(mapped.getFramePosition() - length / format.getFrameSize());
+            frameNumber.set(mapped.getFramePosition());
+        } else if (length > 0) {
+            ringBuffer.unread(length);
+            frameNumber.addAndGet(-length / format.getFrameSize());
         }
     }
 
@@ -204,48 +596,145 @@ public class SingleThreadedAudioInputStream implements AutoCloseable {
      * @throws IOException if I/O fails
      */
     public int read(final byte[] buf) throws IOException {
+        if (mapped != null) {
+            // no more than we would have read ahead, most of a larger read would just be unread
+            final int justRead = mapped.read(buf, 0, Math.min(buf.length, highWatermark));
+            if (justRead > 0) {
+                frameNumber.addAndGet(justRead / format.getFrameSize());
+                touchAhead();
+            }
+            return justRead;
+        }
+        // we no longer need the previous read for unread(),
+        // make room for the decoder before asking it for more
+        ringBuffer.release();
         // make sure we have something to read
-        if (bufferDeque.isEmpty()) {
-            readAhead(buf.length);
+        if (isBelowLowWatermark()) {
+            readAhead();
         }
         try {
-            final AudioChunk chunk = bufferDeque.poll(15 * 1000, TimeUnit.SECONDS);
-            if (chunk == null) {
-                LOG.severe("chunk == null");
+            if (!ringBuffer.await(15, TimeUnit.SECONDS)) {
+                LOG.severe("Timeout while waiting for audio data from " + originalStream);
                 return -1;
             }
-            if (chunk.getLength() >= 0) {
-                chunk.copyTo(buf);
-                // read next chunk
-                if (bufferDeque.isEmpty()) {
-                    readAhead(buf.length);
-                }
+            if (ringBuffer.isEndOfStream()) {
+                return -1;
+            }
+            final int justRead = ringBuffer.read(buf, 0, buf.length);
+            if (isBelowLowWatermark()) {
+                readAhead();
             }
-            frameNumber.addAndGet(chunk.getLength() / format.getFrameSize());
-            return chunk.getLength();
+            frameNumber.addAndGet(justRead / format.getFrameSize());
+            return justRead;
         } catch (InterruptedException e) {
             LOG.log(Level.SEVERE, e.toString(), e);
         }
         return -1;
     }
 
-    private void readAhead(final int length) {
-        this.serializer.submit(() -> {
+    private boolean isBelowLowWatermark() {
+        final int available = ringBuffer.available();
+        return available == 0 || available < lowWatermark;
+    }
+
+    private void readAhead() {
+        if (readAheadPending.compareAndSet(false, true)) {
+            scheduleFill();
+        }
+    }
+
+    /**
+     * Lets the decoder thread fault in the mapped pages up to the high watermark,
+     * so that the reader does not wait for the disk.
+     */
+    private void touchAhead() {
+        if (readAheadPending.compareAndSet(false, true)) {
+            final MappedPcmReader mapped = this.mapped;
+            final long frame = mapped.getFramePosition();
             try {
-                final byte[] readAheadBuffer = new byte[length];
-                final int justRead = stream.read(readAheadBuffer);
-                bufferDeque.add(new AudioChunk(readAheadBuffer, 0, justRead));
-            } catch (IOException e) {
-                LOG.log(Level.SEVERE, e.toString(), e);
+                this.serializer.execute(() -> {
+                    readAheadPending.set(false);
+                    try {
+                        mapped.touch(frame, highWatermark);
+                    } catch (IOException e) {
+                        // the reader runs into the same problem and reports it
+                        if (LOG.isLoggable(Level.FINE)) LOG.log(Level.FINE, "Failed to touch pages of " + url, e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                readAheadPending.set(false);
             }
-            return null;
-        });
+        }
+    }
+
+    private void scheduleFill() {
+        try {
+            this.serializer.execute(fillTask);
+        } catch (RejectedExecutionException e) {
+            if (LOG.isLoggable(Level.FINE)) LOG.fine("Not reading ahead, because stream is closed: " + this);
+            readAheadPending.set(false);
+        }
+    }
+
+    /**
+     * Decodes one chunk into the ring buffer and reschedules itself,
+     * until the high watermark is reached. Running one chunk per task keeps
+     * seeks and close requests from waiting for the whole read-ahead.
+     */
+    private void fill() {
+        try {
+            if (ringBuffer.write(stream, READ_AHEAD_CHUNK_SIZE) < 0) {
+                readAheadPending.set(false);
+                return;
+            }
+        } catch (IOException e) {
+            LOG.log(Level.SEVERE, e.toString(), e);
+            ringBuffer.signalEndOfStream();
+            readAheadPending.set(false);
+            return;
+        }
+        if (ringBuffer.available() < highWatermark && ringBuffer.writable() > 0) {
+            // still pending
+            scheduleFill();
+            return;
+        }
+        readAheadPending.set(false);
+        // the reader may have drained the buffer while we were not pending.
+        // if nothing is writable, the reader's next read makes room and schedules us
+        if (isBelowLowWatermark() && ringBuffer.writable() > 0) {
+            readAhead();
+        }
+    }
+
+    /**
+     * Submits a task to the serializer, whose timeout starts once it runs.
+     *
+     * @param task task
+     * @param <T> result type
+     * @return future
+     * @see StartTimedTask
+     */
+    private <T> Future<T> submit(final Callable<T> task) {
+        final StartTimedTask<T> future = new StartTimedTask<>(task, queueTimeout);
+        this.serializer.execute(future);
+        return future;
+    }
+
+    /**
+     * Sets how long a task may wait for the decoder, before it is cancelled.
+     * The decoder may be busy with other streams, or blocked on slow I/O.
+     *
+     * @param queueTimeout queue timeout
+     * @see #DEFAULT_QUEUE_TIMEOUT
+     */
+    void setQueueTimeout(final Duration queueTimeout) {
+        this.queueTimeout = Objects.requireNonNull(queueTimeout, "Queue timeout must not be null");
     }
 
     public void close() {
         this.serializer.submit(() -> {
             try {
-                stream.close();
+                if (stream != null) stream.close();
             } catch (IOException e) {
                 // ignore
             }
@@ -259,44 +748,51 @@ public class SingleThreadedAudioInputStream implements AutoCloseable {
         return "SingleThreadedAudioInputStream{" +
             "originalStream='" + originalStream + '\'' +
             ", stream=" + stream +
+            ", mapped=" + mapped +
             ", format=" + format +
             ", frameNumber=" + frameNumber +
+            ", lowWatermark=" + lowWatermark +
+            ", highWatermark=" + highWatermark +
+            ", ringBuffer=" + ringBuffer +
             '}';
     }
 
-    private static class AudioChunk {
-
-        private final int length;
-        private final byte[] buf;
-        private final int offset;
-
-        public AudioChunk(final byte[] buf, final int offset, final int length) {
-            if (offset + length > buf.length) throw new IllegalArgumentException("AudioChunk arguments make no sense: buf.length="
-                + buf.length + ", offset=" + offset + ", length=" + length);
-            this.length = length;
-            this.buf = buf;
-            this.offset = offset;
-        }
+    /**
+     * Task, whose {@link #get(long, TimeUnit)} timeout starts once the task begins to run.
+     * When decoding on a shared executor, tasks of other streams may run first,
+     * and waiting for them must not count against our timeout.
+     * Waiting for the task to start is limited separately, so that a decoder blocked
+     * on I/O does not block the caller forever.
+     *
+     * @param <T> result type
+     */
+    private static final class StartTimedTask<T> extends FutureTask<T> {
 
-        public int getLength() {
-            return length;
-        }
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final Duration queueTimeout;
 
-        public byte[] getBuf() {
-            return buf;
+        private StartTimedTask(final Callable<T> callable, final Duration queueTimeout) {
+            super(callable);
+            this.queueTimeout = queueTimeout;
         }
 
-        public int getOffset() {
-            return offset;
+        @Override
+        public void run() {
+            started.countDown();
+            super.run();
         }
 
-        /**
-         * Copy chunk to the given buffer starting at index 0.
-         *
-         * @param buf byte buffer
-         */
-        public void copyTo(final byte[] buf) {
-            System.arraycopy(this.buf, this.offset, buf, 0, this.length);
+        @Override
+        public T get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            final long deadline = System.nanoTime() + queueTimeout.toNanos();
+            // a task that is cancelled before it runs never starts
+            while (!started.await(100, TimeUnit.MILLISECONDS) && !isDone()) {
+                // if cancelling fails, the task has just started
+                if (System.nanoTime() - deadline >= 0 && cancel(false)) {
+                    throw new TimeoutException("Task did not start within " + queueTimeout);
+                }
+            }
+            return super.get(timeout, unit);
         }
     }
 }
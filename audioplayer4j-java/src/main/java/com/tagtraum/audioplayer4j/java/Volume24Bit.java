@@ -0,0 +1,63 @@
+/*
+ * =================================================
+ * Copyright 2021 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.audioplayer4j.java;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Custom volume adjustment for little endian 24 bit audio,
+ * for lines that don't offer a gain control.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+class Volume24Bit {
+
+    /**
+     * A constant holding the minimum value a <code>signed24bit</code> can
+     * have, -2<sup>22</sup>.
+     */
+    private static final int MIN_VALUE_24BIT = -2 << 22;
+
+    /**
+     * A constant holding the maximum value a <code>signed24bit</code> can
+     * have, 2<sup>22</sup>-1.
+     */
+    private static final int MAX_VALUE_24BIT = -MIN_VALUE_24BIT-1;
+
+    public void filter(final byte[] buffer, final AudioFormat format, final float volume) {
+        final int bytesPerChannel = format.getFrameSize() / format.getChannels();
+        for (int frame = 0; frame<buffer.length/bytesPerChannel; frame++) {
+            final int sample = byteToSample(buffer, bytesPerChannel, frame);
+            int scaledSample = (int)(sample*volume);
+            if (scaledSample > MAX_VALUE_24BIT) scaledSample = MAX_VALUE_24BIT;
+            else if (scaledSample < MIN_VALUE_24BIT) scaledSample = MIN_VALUE_24BIT;
+            writeSample(scaledSample, buffer, bytesPerChannel, frame);
+        }
+    }
+
+    private int byteToSample(final byte[] bytes, final int bytesPerChannel, final int sampleOffset) {
+        int sample = 0;
+        for (int byteIndex=0; byteIndex<bytesPerChannel; byteIndex++) {
+            final int aByte = bytes[sampleOffset*bytesPerChannel+byteIndex] & 0xff;
+            //sample += aByte << (8*(bytesPerChannel-byteIndex-1));
+
+            // little endian:
+            sample += aByte << (8*byteIndex);
+        }
+        return sample > MAX_VALUE_24BIT ? sample + MIN_VALUE_24BIT + MIN_VALUE_24BIT : sample;
+    }
+
+    private void writeSample(final int sample, final byte[] bytes, final int bytesPerChannel, final int sampleOffset) {
+        for (int byteIndex=0; byteIndex<bytesPerChannel; byteIndex++) {
+            //final int shift = 8 * (bytesPerChannel - byteIndex - 1);
+
+            // little endian:
+            final int shift = 8 * byteIndex;
+            bytes[sampleOffset*bytesPerChannel+byteIndex] = (byte)(sample >>> shift);
+        }
+    }
+}
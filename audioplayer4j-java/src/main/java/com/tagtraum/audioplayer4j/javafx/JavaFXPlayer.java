@@ -10,6 +10,10 @@ import com.tagtraum.audioplayer4j.AudioDevice;
 import com.tagtraum.audioplayer4j.AudioPlayer;
 import com.tagtraum.audioplayer4j.AudioPlayerException;
 import com.tagtraum.audioplayer4j.AudioPlayerListener;
+import com.tagtraum.audioplayer4j.EventExecutors;
+import com.tagtraum.audioplayer4j.ExecutorPropertyChangeSupport;
+import com.tagtraum.audioplayer4j.PositionListener;
+import com.tagtraum.audioplayer4j.TimeTicker;
 import com.tagtraum.audioplayer4j.device.DefaultAudioDevice;
 import javafx.embed.swing.JFXPanel;
 import javafx.scene.media.Media;
@@ -19,23 +23,27 @@ import javafx.util.Duration;
 
 import javax.sound.sampled.UnsupportedAudioFileException;
 import javax.swing.*;
-import javax.swing.event.SwingPropertyChangeSupport;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.beans.PropertyChangeListener;
-import java.beans.PropertyChangeSupport;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -44,6 +52,9 @@ import static java.time.temporal.ChronoUnit.NANOS;
 
 /**
  * Plays an audio resource using JavaFX APIs.
+ * <p>
+ * Queued resources are opened once the current resource has ended,
+ * i.e. playback is not gapless.
  *
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  */
@@ -52,8 +63,10 @@ public class JavaFXPlayer implements AudioPlayer {
     private static final Logger LOG = Logger.getLogger(JavaFXPlayer.class.getName());
 
     private static boolean javaFXInitialized;
-    private final PropertyChangeSupport propertyChangeSupport = new SwingPropertyChangeSupport(this, true);
-    private final List<AudioPlayerListener> audioPlayerListeners = new ArrayList<>();
+    private final ExecutorPropertyChangeSupport propertyChangeSupport = new ExecutorPropertyChangeSupport(this);
+    private final List<AudioPlayerListener> audioPlayerListeners = new CopyOnWriteArrayList<>();
+    private final Map<PositionListener, PropertyChangeListener> positionListeners = new ConcurrentHashMap<>();
+    private final Deque<URI> queue = new ConcurrentLinkedDeque<>();
     private final Timer timer = new Timer(AudioPlayer.DEFAULT_MIN_TIME_EVENT_DIFFERENCE, new ActionListener() {
         @Override
         public void actionPerformed(ActionEvent e) {
@@ -277,14 +290,55 @@ public class JavaFXPlayer implements AudioPlayer {
         else pause();
     }
 
+    @Override
+    public void enqueue(final URI uri) throws IOException {
+        Objects.requireNonNull(uri, "URI must not be null");
+        if (uri.toString().startsWith("file:")) {
+            final Path file = Paths.get(uri);
+            if (Files.notExists(file) || !Files.isReadable(file)) throw new FileNotFoundException(file.toString());
+        }
+        queue.add(uri);
+    }
+
+    @Override
+    public void clearQueue() {
+        queue.clear();
+    }
 
     private void closeOnEndOfMedia() {
         this.endOfMedia = true;
-        this.close();
+        this.closePlayer();
+        if (!queue.isEmpty()) {
+            // not on the FX thread, as opening waits for the player to become ready
+            CompletableFuture.runAsync(this::openQueuedSong);
+        }
+    }
+
+    /**
+     * Opens and plays the next queued song. Songs that cannot be opened are skipped.
+     */
+    private void openQueuedSong() {
+        URI next;
+        while ((next = queue.poll()) != null) {
+            try {
+                open(next);
+                play();
+                return;
+            } catch (IOException | UnsupportedAudioFileException | RuntimeException e) {
+                LOG.log(Level.SEVERE, "Failed to open queued song " + next + ". Skipping it.", e);
+                fireFailed(next, e);
+            }
+        }
     }
 
     @Override
     public void close() {
+        TimeTicker.unregisterFromAll(this);
+        clearQueue();
+        closePlayer();
+    }
+
+    private void closePlayer() {
         if (player == null) {
             // player is not open, nothing to close
             return;
@@ -509,6 +563,16 @@ public class JavaFXPlayer implements AudioPlayer {
         propertyChangeSupport.removePropertyChangeListener(propertyName, propertyChangeListener);
     }
 
+    @Override
+    public Executor getEventExecutor() {
+        return propertyChangeSupport.getExecutor();
+    }
+
+    @Override
+    public void setEventExecutor(final Executor executor) {
+        propertyChangeSupport.setExecutor(executor == null ? EventExecutors.edt() : executor);
+    }
+
     @Override
     public void addAudioPlayerListener(final AudioPlayerListener listener) {
         audioPlayerListeners.add(listener);
@@ -519,11 +583,32 @@ public class JavaFXPlayer implements AudioPlayer {
         audioPlayerListeners.remove(listener);
     }
 
+    @Override
+    public void addPositionListener(final PositionListener listener) {
+        Objects.requireNonNull(listener, "listener must not be null");
+        // this player doesn't know frames, so we simply piggyback on "time" events
+        final PropertyChangeListener timeListener = evt -> {
+            final java.time.Duration time = (java.time.Duration) evt.getNewValue();
+            if (time != null) listener.positionChanged(this, -1, time.toNanos() / 1000);
+        };
+        if (positionListeners.putIfAbsent(listener, timeListener) == null) {
+            addPropertyChangeListener("time", timeListener);
+        }
+    }
+
+    @Override
+    public void removePositionListener(final PositionListener listener) {
+        final PropertyChangeListener timeListener = positionListeners.remove(listener);
+        if (timeListener != null) {
+            removePropertyChangeListener("time", timeListener);
+        }
+    }
+
     private void fireStarted() {
         if (unstarted) {
             unstarted = false;
             final URI s = song;
-            SwingUtilities.invokeLater(() -> {
+            propertyChangeSupport.getExecutor().execute(() -> {
                 for (final AudioPlayerListener listener : audioPlayerListeners) {
                     listener.started(JavaFXPlayer.this, s);
                 }
@@ -535,7 +620,7 @@ public class JavaFXPlayer implements AudioPlayer {
         if (unfinished && !unstarted) {
             unfinished = false;
             final URI s = song;
-            SwingUtilities.invokeLater(() -> {
+            propertyChangeSupport.getExecutor().execute(() -> {
                 for (final AudioPlayerListener listener : audioPlayerListeners) {
                     listener.finished(JavaFXPlayer.this, s, this.endOfMedia);
                 }
@@ -543,6 +628,14 @@ public class JavaFXPlayer implements AudioPlayer {
         }
     }
 
+    private void fireFailed(final URI uri, final Exception exception) {
+        propertyChangeSupport.getExecutor().execute(() -> {
+            for (final AudioPlayerListener listener : audioPlayerListeners) {
+                listener.failed(JavaFXPlayer.this, uri, exception);
+            }
+        });
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + "{" +
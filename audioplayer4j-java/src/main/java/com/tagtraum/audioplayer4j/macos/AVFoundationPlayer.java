@@ -10,11 +10,8 @@ import com.tagtraum.audioplayer4j.*;
 import com.tagtraum.audioplayer4j.device.DefaultAudioDevice;
 
 import javax.sound.sampled.UnsupportedAudioFileException;
-import javax.swing.*;
-import javax.swing.event.SwingPropertyChangeSupport;
 import java.awt.*;
 import java.beans.PropertyChangeListener;
-import java.beans.PropertyChangeSupport;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.ref.Cleaner;
@@ -37,6 +34,9 @@ import java.util.logging.Logger;
  * Property changes like time, duration, and uri can be listened to
  * via {@link PropertyChangeListener}s, playback events are accessible via
  * {@link AudioPlayerListener}s.
+ * <p>
+ * Queued resources are opened once the current resource has ended,
+ * i.e. playback is not gapless.
  *
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  */
@@ -53,9 +53,11 @@ public class AVFoundationPlayer implements AudioPlayer {
 
     private Cleaner.Cleanable nativeResource;
     private final Cleaner instanceCleaner;
-    private final PropertyChangeSupport propertyChangeSupport = new SwingPropertyChangeSupport(this, true);
+    private final ExecutorPropertyChangeSupport propertyChangeSupport = new ExecutorPropertyChangeSupport(this);
     private final ExecutorService serializer;
-    private final List<AudioPlayerListener> audioPlayerListeners = new ArrayList<>();
+    private final List<AudioPlayerListener> audioPlayerListeners = new CopyOnWriteArrayList<>();
+    private final Map<PositionListener, PropertyChangeListener> positionListeners = new ConcurrentHashMap<>();
+    private final Deque<URI> queue = new ConcurrentLinkedDeque<>();
     private long[] pointers;
     private Timer task;
     private float volume = 1f;
@@ -527,11 +529,49 @@ public class AVFoundationPlayer implements AudioPlayer {
         }
     }
 
+    /**
+     * Queues a song, which is opened and played once the current song has ended.
+     * Unlike {@link com.tagtraum.audioplayer4j.java.JavaPlayer}, this player does not play it gaplessly.
+     */
+    @Override
+    public void enqueue(final URI uri) throws IOException {
+        Objects.requireNonNull(uri, "URI must not be null");
+        if (uri.toString().startsWith("file:")) {
+            final Path file = Paths.get(uri);
+            if (Files.notExists(file) || !Files.isReadable(file)) throw new FileNotFoundException(file.toString());
+        }
+        queue.add(uri);
+    }
+
+    @Override
+    public void clearQueue() {
+        queue.clear();
+    }
+
+    /**
+     * Opens and plays the next queued song. Songs that cannot be opened are skipped.
+     */
+    private void openQueuedSong() {
+        URI next;
+        while ((next = queue.poll()) != null) {
+            try {
+                open(next);
+                if (isPaused()) play();
+                return;
+            } catch (IOException | UnsupportedAudioFileException | RuntimeException e) {
+                LOG.log(Level.SEVERE, "Failed to open queued song " + next + ". Skipping it.", e);
+                fireFailed(next, e);
+            }
+        }
+    }
+
     /**
      * Close this player and free all native resources connected to it.
      */
     @Override
     public void close() {
+        TimeTicker.unregisterFromAll(this);
+        clearQueue();
         if (this.pointers == null) {
             // player is not open, nothing to close
             return;
@@ -648,6 +688,10 @@ public class AVFoundationPlayer implements AudioPlayer {
         if (LOG.isLoggable(Level.FINE)) LOG.fine("Native callback \"didPlayToEndTime\"");
         this.endOfMedia = true;
         fireFinished();
+        if (!queue.isEmpty()) {
+            // not on the callback thread, as opening blocks on the serializer
+            CompletableFuture.runAsync(this::openQueuedSong);
+        }
     }
 
     private void fireTime(final long milliseconds) {
@@ -681,6 +725,16 @@ public class AVFoundationPlayer implements AudioPlayer {
         propertyChangeSupport.removePropertyChangeListener(propertyName, propertyChangeListener);
     }
 
+    @Override
+    public Executor getEventExecutor() {
+        return propertyChangeSupport.getExecutor();
+    }
+
+    @Override
+    public void setEventExecutor(final Executor executor) {
+        propertyChangeSupport.setExecutor(executor == null ? EventExecutors.edt() : executor);
+    }
+
     @Override
     public void addAudioPlayerListener(final AudioPlayerListener listener) {
         audioPlayerListeners.add(listener);
@@ -691,11 +745,32 @@ public class AVFoundationPlayer implements AudioPlayer {
         audioPlayerListeners.remove(listener);
     }
 
+    @Override
+    public void addPositionListener(final PositionListener listener) {
+        Objects.requireNonNull(listener, "listener must not be null");
+        // this player doesn't know frames, so we simply piggyback on "time" events
+        final PropertyChangeListener timeListener = evt -> {
+            final Duration time = (Duration) evt.getNewValue();
+            if (time != null) listener.positionChanged(this, -1, time.toNanos() / 1000);
+        };
+        if (positionListeners.putIfAbsent(listener, timeListener) == null) {
+            addPropertyChangeListener("time", timeListener);
+        }
+    }
+
+    @Override
+    public void removePositionListener(final PositionListener listener) {
+        final PropertyChangeListener timeListener = positionListeners.remove(listener);
+        if (timeListener != null) {
+            removePropertyChangeListener("time", timeListener);
+        }
+    }
+
     private void fireStarted() {
         if (unstarted) {
             unstarted = false;
             final URI s = songURI;
-            SwingUtilities.invokeLater(() -> {
+            propertyChangeSupport.getExecutor().execute(() -> {
                 for (final AudioPlayerListener listener : audioPlayerListeners) {
                     listener.started(AVFoundationPlayer.this, s);
                 }
@@ -707,7 +782,7 @@ public class AVFoundationPlayer implements AudioPlayer {
         if (unfinished && !unstarted) {
             unfinished = false;
             final URI s = songURI;
-            SwingUtilities.invokeLater(() -> {
+            propertyChangeSupport.getExecutor().execute(() -> {
                 for (final AudioPlayerListener listener : audioPlayerListeners) {
                     listener.finished(AVFoundationPlayer.this, s, this.endOfMedia);
                 }
@@ -715,6 +790,14 @@ public class AVFoundationPlayer implements AudioPlayer {
         }
     }
 
+    private void fireFailed(final URI uri, final Exception exception) {
+        propertyChangeSupport.getExecutor().execute(() -> {
+            for (final AudioPlayerListener listener : audioPlayerListeners) {
+                listener.failed(AVFoundationPlayer.this, uri, exception);
+            }
+        });
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + "{" +